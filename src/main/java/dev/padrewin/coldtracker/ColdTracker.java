@@ -2,27 +2,27 @@ package dev.padrewin.coldtracker;
 
 import dev.padrewin.colddev.ColdPlugin;
 import dev.padrewin.colddev.config.ColdSetting;
-import dev.padrewin.colddev.database.DatabaseConnector;
-import dev.padrewin.colddev.database.SQLiteConnector;
 import dev.padrewin.colddev.manager.Manager;
 import dev.padrewin.colddev.manager.PluginUpdateManager;
 import dev.padrewin.coldtracker.database.DatabaseManager;
 import dev.padrewin.coldtracker.integration.LiteBansHook;
 import dev.padrewin.coldtracker.listeners.PlayerTrackingListener;
 import dev.padrewin.coldtracker.listeners.StaffVoteListener;
+import dev.padrewin.coldtracker.manager.BackupManager;
 import dev.padrewin.coldtracker.manager.CommandManager;
 import dev.padrewin.coldtracker.manager.LocaleManager;
 import dev.padrewin.coldtracker.manager.FlexibleSchedulerManager;
+import dev.padrewin.coldtracker.manager.RetentionManager;
 import dev.padrewin.coldtracker.setting.SettingKey;
+import dev.padrewin.coldtracker.util.TrackerClock;
+import dev.padrewin.coldtracker.util.UuidLongMap;
 import net.luckperms.api.LuckPerms;
 import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
 import org.bukkit.plugin.RegisteredServiceProvider;
 import static dev.padrewin.colddev.manager.AbstractDataManager.*;
 
 import java.io.File;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 
 public final class ColdTracker extends ColdPlugin {
 
@@ -41,7 +41,8 @@ public final class ColdTracker extends ColdPlugin {
     private static ColdTracker instance;
     private LuckPerms luckPerms;
     private boolean votifierAvailable;
-    private final Map<UUID, Long> joinTimes = new HashMap<>();
+    private final UuidLongMap joinTimes = new UuidLongMap();
+    private final TrackerClock clock = TrackerClock.SYSTEM;
     private DatabaseManager databaseManager;
     private PlayerTrackingListener playerTrackingListener;
     private LiteBansHook liteBansHook;
@@ -59,12 +60,9 @@ public final class ColdTracker extends ColdPlugin {
         setupVotifier();
         setupLiteBans();
 
-        // Initialize DatabaseManager
+        // Initialize DatabaseManager; it connects and migrates on its own thread
+        long databaseStart = System.currentTimeMillis();
         databaseManager = new DatabaseManager(this, "coldtracker.db");
-        DatabaseConnector connector;
-        connector = new SQLiteConnector(this);
-        String databasePath = connector.getDatabasePath();
-        getLogger().info(ANSI_GREEN + "Database path: " + ANSI_YELLOW + databasePath + ANSI_RESET);
 
         // Cleanup last join sessions
         databaseManager.cleanupStaleSessions();
@@ -73,6 +71,23 @@ public final class ColdTracker extends ColdPlugin {
         playerTrackingListener = new PlayerTrackingListener(this);
         getServer().getPluginManager().registerEvents(playerTrackingListener, this);
 
+        // Staff already online (e.g. after a reload) never fire a join event
+        databaseManager.whenReady().whenComplete((unused, ex) -> {
+            if (ex != null) {
+                // Running against a schema that is not up to date would corrupt it; stop instead
+                getLogger().severe("[ERROR] The database could not be initialized, disabling ColdTracker.");
+                if (isEnabled()) {
+                    Bukkit.getScheduler().runTask(this, () -> getServer().getPluginManager().disablePlugin(this));
+                }
+                return;
+            }
+
+            getLogger().info(ANSI_GREEN + "Database ready in " + ANSI_YELLOW + (System.currentTimeMillis() - databaseStart) + "ms" + ANSI_RESET);
+            if (isEnabled()) {
+                Bukkit.getScheduler().runTask(this, playerTrackingListener::trackOnlineStaff);
+            }
+        });
+
         // Initialize vote tracking event listener
         if (votifierAvailable) {
             getServer().getPluginManager().registerEvents(new StaffVoteListener(this), this);
@@ -103,58 +118,32 @@ public final class ColdTracker extends ColdPlugin {
     @Override
     public void disable() {
         debugLog("Processing remaining playtime before shutdown...");
+        long start = System.currentTimeMillis();
 
         if (liteBansHook != null) {
             liteBansHook.shutdown();
         }
 
+        if (playerTrackingListener != null) {
+            playerTrackingListener.shutdown();
+        }
+
         if (databaseManager != null) {
-            List<CompletableFuture<Void>> tasks = new ArrayList<>();
-
-            if (!Bukkit.getOnlinePlayers().isEmpty()) {
-                for (Player player : Bukkit.getOnlinePlayers()) {
-                    if (player.hasPermission("coldtracker.tracktime")) {
-                        CompletableFuture<Void> task = databaseManager.removeJoinTimeAsync(player.getUniqueId())
-                                .exceptionally(ex -> {
-                                    getLogger().severe("[ERROR] Failed to remove join time for " + player.getName() + ": " + ex.getMessage());
-                                    return null;
-                                });
-                        tasks.add(task);
-                    }
+            if (!databaseManager.hasFailed()) {
+                try {
+                    int closed = databaseManager.closeAllSessionsAsync().join();
+                    debugLog("Closed " + closed + " open sessions.");
+                } catch (Exception e) {
+                    getLogger().severe("[ERROR] Failed to close open sessions: " + e.getMessage());
                 }
             }
 
-            if (!tasks.isEmpty()) {
-                CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
-
-                if (playerTrackingListener != null) {
-                    playerTrackingListener.shutdown();
-                }
-
-                databaseManager.closeConnection();
-                debugLog("Database connection closed successfully.");
-                getLogger().info(ANSI_CHINESE_PURPLE + "ColdTracker disabled." + ANSI_RESET);
-                getLogger().info("");
-            } else {
-                // No active players, safe to shutdown immediately
-                if (playerTrackingListener != null) {
-                    playerTrackingListener.shutdown();
-                }
-
-                databaseManager.closeConnection();
-                debugLog("No active players to process, database closed immediately.");
-                getLogger().info(ANSI_CHINESE_PURPLE + "ColdTracker disabled." + ANSI_RESET);
-                getLogger().info("");
-            }
-        } else {
-            // No database manager, just cleanup listener
-            if (playerTrackingListener != null) {
-                playerTrackingListener.shutdown();
-            }
-            getLogger().info("");
-            getLogger().info(ANSI_CHINESE_PURPLE + "ColdTracker disabled." + ANSI_RESET);
-            getLogger().info("");
+            databaseManager.closeConnection();
+            debugLog("Database connection closed successfully.");
         }
+
+        getLogger().info(ANSI_CHINESE_PURPLE + "ColdTracker disabled in " + (System.currentTimeMillis() - start) + "ms." + ANSI_RESET);
+        getLogger().info("");
     }
 
     @Override
@@ -162,7 +151,7 @@ public final class ColdTracker extends ColdPlugin {
         super.reload();
     }
 
-    public Map<UUID, Long> getJoinTimes() {
+    public UuidLongMap getJoinTimes() {
         return joinTimes;
     }
 
@@ -170,7 +159,9 @@ public final class ColdTracker extends ColdPlugin {
     protected List<Class<? extends Manager>> getManagerLoadPriority() {
         return List.of(
                 CommandManager.class,
-                FlexibleSchedulerManager.class
+                FlexibleSchedulerManager.class,
+                BackupManager.class,
+                RetentionManager.class
         );
     }
 
@@ -203,6 +194,10 @@ public final class ColdTracker extends ColdPlugin {
         return databaseManager;
     }
 
+    public TrackerClock getClock() {
+        return clock;
+    }
+
     public LuckPerms getLuckPerms() {
         return luckPerms;
     }
@@ -0,0 +1,55 @@
+package dev.padrewin.coldtracker.commands;
+
+import dev.padrewin.colddev.utils.StringPlaceholders;
+import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.manager.BackupManager;
+import dev.padrewin.coldtracker.manager.CommandManager;
+import dev.padrewin.coldtracker.manager.LocaleManager;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+public class BackupCommand extends BaseCommand {
+
+    public BackupCommand() {
+        super("backup", CommandManager.CommandAliases.BACKUP);
+    }
+
+    @Override
+    public void execute(@NotNull ColdTracker plugin, @NotNull CommandSender sender, @NotNull String[] args) {
+        LocaleManager localeManager = plugin.getManager(LocaleManager.class);
+
+        if (!sender.hasPermission("coldtracker.backup")) {
+            localeManager.sendMessage(sender, "no-permission");
+            return;
+        }
+
+        if (args.length > 0) {
+            localeManager.sendMessage(sender, "command-backup-usage");
+            return;
+        }
+
+        localeManager.sendMessage(sender, "command-backup-started");
+        plugin.getManager(BackupManager.class).runBackupAsync().whenComplete((backup, throwable) -> {
+            if (throwable != null) {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                localeManager.sendMessage(sender, cause instanceof IllegalStateException ? "command-backup-running" : "command-backup-fail");
+                return;
+            }
+
+            localeManager.sendMessage(sender, "command-backup-success", StringPlaceholders.builder("file", backup.file().getName())
+                    .add("size", BackupManager.formatSize(backup.size()))
+                    .add("duration", backup.durationMillis())
+                    .build());
+        });
+    }
+
+    @Override
+    public List<String> tabComplete(ColdTracker plugin, CommandSender sender, String[] args) {
+        return Collections.emptyList();
+    }
+
+}
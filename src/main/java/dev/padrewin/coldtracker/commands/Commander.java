@@ -28,6 +28,9 @@ public class Commander extends CommandHandler {
         this.registerCommand(new ShowVotesCommand());
         this.registerCommand(new ShowSanctionsCommand());
         this.registerCommand(new StatsCommand());
+        this.registerCommand(new DbStatsCommand());
+        this.registerCommand(new BackupCommand());
+        this.registerCommand(new PeriodsCommand());
 
     }
 
@@ -0,0 +1,88 @@
+package dev.padrewin.coldtracker.commands;
+
+import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.database.DatabaseManager;
+import dev.padrewin.coldtracker.database.LaneStats;
+import dev.padrewin.coldtracker.listeners.AfkSampler;
+import dev.padrewin.coldtracker.manager.CommandManager;
+import dev.padrewin.coldtracker.manager.LocaleManager;
+import org.bukkit.command.CommandSender;
+
+import java.util.Collections;
+import java.util.List;
+
+public class DbStatsCommand extends BaseCommand {
+
+    public DbStatsCommand() {
+        super("dbstats", CommandManager.CommandAliases.DBSTATS);
+    }
+
+    @Override
+    public void execute(ColdTracker plugin, CommandSender sender, String[] args) {
+        LocaleManager localeManager = plugin.getManager(LocaleManager.class);
+
+        if (!sender.hasPermission("coldtracker.dbstats")) {
+            localeManager.sendMessage(sender, "no-permission");
+            return;
+        }
+
+        if (args.length > 0) {
+            localeManager.sendMessage(sender, "command-dbstats-usage");
+            return;
+        }
+
+        DatabaseManager databaseManager = plugin.getDatabaseManager();
+        String prefix = localeManager.getLocaleMessage("prefix");
+
+        long batches = databaseManager.getCommittedWriteBatches();
+        String averageBatchSize = batches > 0
+                ? String.format("%.1f", (double) databaseManager.getCommittedWrites() / batches)
+                : "0";
+
+        sender.sendMessage(prefix + localeManager.getLocaleMessage("command-dbstats-title")
+                .replace("{backend}", databaseManager.getBackendName()));
+        sender.sendMessage(prefix + localeManager.getLocaleMessage("command-dbstats-write-queue")
+                .replace("{depth}", String.valueOf(databaseManager.getWriteQueueDepth()))
+                .replace("{rejected}", String.valueOf(databaseManager.getRejectedWrites())));
+        sender.sendMessage(prefix + localeManager.getLocaleMessage("command-dbstats-write-batches")
+                .replace("{batches}", String.valueOf(batches))
+                .replace("{average}", averageBatchSize)
+                .replace("{last}", String.valueOf(databaseManager.getLastWriteBatchSize()))
+                .replace("{max}", String.valueOf(databaseManager.getMaxWriteBatchSize())));
+        sender.sendMessage(prefix + localeManager.getLocaleMessage("command-dbstats-statement-cache")
+                .replace("{hits}", String.valueOf(databaseManager.getStatementCacheHits()))
+                .replace("{misses}", String.valueOf(databaseManager.getStatementCacheMisses())));
+
+        sendLaneStats(localeManager, sender, prefix, "command-dbstats-writer-lanes-title", databaseManager.getWriterLaneStats());
+        sendLaneStats(localeManager, sender, prefix, "command-dbstats-reader-lanes-title", databaseManager.getReaderLaneStats());
+
+        AfkSampler afkSampler = plugin.getPlayerTrackingListener() != null ? plugin.getPlayerTrackingListener().getAfkSampler() : null;
+        if (afkSampler != null) {
+            sender.sendMessage(prefix + localeManager.getLocaleMessage("command-dbstats-afk-sampler")
+                    .replace("{staff}", String.valueOf(afkSampler.getTrackedCount()))
+                    .replace("{average}", String.format("%.1f", afkSampler.getAverageSampleMicros()))
+                    .replace("{max}", String.format("%.1f", afkSampler.getMaxSampleMicros())));
+        }
+    }
+
+    private void sendLaneStats(LocaleManager localeManager, CommandSender sender, String prefix, String titleKey, List<LaneStats> lanes) {
+        if (lanes.isEmpty()) {
+            return;
+        }
+
+        sender.sendMessage(prefix + localeManager.getLocaleMessage(titleKey));
+        for (LaneStats lane : lanes) {
+            sender.sendMessage(prefix + localeManager.getLocaleMessage("command-dbstats-lane")
+                    .replace("{lane}", lane.lane())
+                    .replace("{depth}", String.valueOf(lane.depth()))
+                    .replace("{average}", String.format("%.1f", lane.averageWaitMillis()))
+                    .replace("{max}", String.valueOf(lane.maxWaitMillis()))
+                    .replace("{rejected}", String.valueOf(lane.rejected())));
+        }
+    }
+
+    @Override
+    public List<String> tabComplete(ColdTracker plugin, CommandSender sender, String[] args) {
+        return Collections.emptyList();
+    }
+}
@@ -1,6 +1,8 @@
 package dev.padrewin.coldtracker.commands;
 
 import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.database.StaffSnapshot;
+import dev.padrewin.coldtracker.database.StaffTotals;
 import dev.padrewin.coldtracker.integration.SanctionCounts;
 import dev.padrewin.coldtracker.manager.LocaleManager;
 import dev.padrewin.coldtracker.manager.CommandManager;
@@ -79,23 +81,23 @@ public class DumpCommand extends BaseCommand {
             boolean trackVotes = plugin.getConfig().getBoolean(SettingKey.TRACK_VOTES.getKey(), false);
             boolean trackSanctions = plugin.getConfig().getBoolean(SettingKey.TRACK_SANCTIONS.getKey(), false)
                     && plugin.getLiteBansHook() != null && plugin.getLiteBansHook().isAvailable();
-            long sanctionsPeriodStart = trackSanctions ? plugin.getDatabaseManager().getSanctionsPeriodStartAsync().join() : 0L;
+            // Every total comes from the same instant, however long the sanction lookups take
+            StaffSnapshot snapshot = plugin.getDatabaseManager().readSnapshotAsync().join();
+            long sanctionsPeriodStart = snapshot.sanctionsPeriodStart();
 
             List<CompletableFuture<String>> futures = new ArrayList<>();
 
             for (OfflinePlayer player : playersWithPermission) {
                 UUID playerUUID = player.getUniqueId();
 
-                CompletableFuture<Long> timeFuture = plugin.getDatabaseManager().getTotalTimeAsync(playerUUID);
-                CompletableFuture<Integer> votesFuture = plugin.getDatabaseManager().getTotalVotesAsync(playerUUID);
+                StaffTotals totals = snapshot.getTotals(playerUUID);
                 CompletableFuture<SanctionCounts> sanctionsFuture = trackSanctions
                         ? plugin.getLiteBansHook().getSanctionCountsAsync(playerUUID, sanctionsPeriodStart)
                         : CompletableFuture.completedFuture(SanctionCounts.EMPTY);
 
-                CompletableFuture<String> playerDataFuture = CompletableFuture.allOf(timeFuture, votesFuture, sanctionsFuture).thenApply(v -> {
-                    long totalTime = timeFuture.join();
-                    int totalVotes = votesFuture.join();
-                    SanctionCounts sanctionCounts = sanctionsFuture.join();
+                CompletableFuture<String> playerDataFuture = sanctionsFuture.thenApply(sanctionCounts -> {
+                    long totalTime = totals.totalTime();
+                    int totalVotes = totals.totalVotes();
 
                     long totalSeconds = totalTime / 1000;
 
@@ -200,6 +202,10 @@ public class DumpCommand extends BaseCommand {
                     });
                 }
             });
+        }).exceptionally(ex -> {
+            plugin.getLogger().severe("Failed to read the database for the dump: " + ex.getMessage());
+            Bukkit.getScheduler().runTask(plugin, () -> localeManager.sendMessage(sender, "command-dump-fail"));
+            return null;
         });
     }
 
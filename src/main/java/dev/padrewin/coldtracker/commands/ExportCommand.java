@@ -1,6 +1,8 @@
 package dev.padrewin.coldtracker.commands;
 
 import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.database.StaffSnapshot;
+import dev.padrewin.coldtracker.database.StaffTotals;
 import dev.padrewin.coldtracker.integration.SanctionCounts;
 import dev.padrewin.coldtracker.manager.CommandManager;
 import dev.padrewin.coldtracker.manager.LocaleManager;
@@ -20,6 +22,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class ExportCommand extends BaseCommand {
@@ -107,14 +110,14 @@ public class ExportCommand extends BaseCommand {
             File file = new File(folder, filePrefix + formattedDateTime + ".yml");
 
             if (file.exists() && (args.length == 0 || !args[0].equalsIgnoreCase("confirm"))) {
-                localeManager.sendMessage(sender, "command-export-warning");
+                Bukkit.getScheduler().runTask(plugin, () -> localeManager.sendMessage(sender, "command-export-warning"));
                 exportFuture.complete(file);
                 exportResultFuture.complete(new ExportResult(file, 0, 0L, 0, SanctionCounts.EMPTY, false));
                 return;
             }
 
             if (args.length > 1 || (args.length == 1 && !args[0].equalsIgnoreCase("confirm") && file.exists())) {
-                localeManager.sendMessage(sender, "command-export-description");
+                Bukkit.getScheduler().runTask(plugin, () -> localeManager.sendMessage(sender, "command-export-description"));
                 exportFuture.complete(file);
                 exportResultFuture.complete(new ExportResult(file, 0, 0L, 0, SanctionCounts.EMPTY, false));
                 return;
@@ -132,7 +135,9 @@ public class ExportCommand extends BaseCommand {
                 plugin.getDatabaseManager().flushActiveSessionsAsync().join();
                 plugin.getDatabaseManager().waitForPendingVoteWritesAsync().join();
 
-                long sanctionsPeriodStart = trackSanctions ? plugin.getDatabaseManager().getSanctionsPeriodStartAsync().join() : 0L;
+                // Every total comes from the same instant, however long the rest of the export takes
+                StaffSnapshot snapshot = plugin.getDatabaseManager().readSnapshotAsync().join();
+                long sanctionsPeriodStart = snapshot.sanctionsPeriodStart();
 
                 final int[] exportedStaffCount = {0};
                 final long[] exportedTotalTimeMs = {0L};
@@ -154,16 +159,14 @@ public class ExportCommand extends BaseCommand {
                         if (user != null && user.getCachedData().getPermissionData().checkPermission("coldtracker.tracktime").asBoolean()) {
                             UUID playerUUID = player.getUniqueId();
 
-                            CompletableFuture<Long> timeFuture = plugin.getDatabaseManager().getTotalTimeAsync(playerUUID);
-                            CompletableFuture<Integer> votesFuture = plugin.getDatabaseManager().getTotalVotesAsync(playerUUID);
+                            StaffTotals totals = snapshot.getTotals(playerUUID);
                             CompletableFuture<SanctionCounts> sanctionsFuture = trackSanctions
                                     ? plugin.getLiteBansHook().getSanctionCountsAsync(playerUUID, sanctionsPeriodStart)
                                     : CompletableFuture.completedFuture(SanctionCounts.EMPTY);
 
-                            CompletableFuture.allOf(timeFuture, votesFuture, sanctionsFuture).thenRun(() -> {
-                                long totalTime = timeFuture.join();
-                                int totalVotes = votesFuture.join();
-                                SanctionCounts sanctionCounts = sanctionsFuture.join();
+                            sanctionsFuture.thenAccept(sanctionCounts -> {
+                                long totalTime = totals.totalTime();
+                                int totalVotes = totals.totalVotes();
 
                                 long totalSeconds = totalTime / 1000;
 
@@ -237,10 +240,12 @@ public class ExportCommand extends BaseCommand {
                     }).join();
                 }
 
-                String prefix = localeManager.getLocaleMessage("prefix");
-                String successMessage = prefix + localeManager.getLocaleMessage("command-export-success")
-                        .replace("{folder}", folderName);
-                sender.sendMessage(successMessage);
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    String prefix = localeManager.getLocaleMessage("prefix");
+                    String successMessage = prefix + localeManager.getLocaleMessage("command-export-success")
+                            .replace("{folder}", folderName);
+                    sender.sendMessage(successMessage);
+                });
                 exportFuture.complete(file);
                 exportResultFuture.complete(new ExportResult(
                         file,
@@ -251,12 +256,25 @@ public class ExportCommand extends BaseCommand {
                         hadWriteErrors[0]
                 ));
 
+            } catch (CompletionException e) {
+                plugin.getLogger().severe("Failed to read the database for " + file.getName() + ": " + e.getMessage());
+                file.delete();
+
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    String prefix = localeManager.getLocaleMessage("prefix");
+                    String failMessage = prefix + localeManager.getLocaleMessage("command-export-fail");
+                    sender.sendMessage(failMessage);
+                });
+                exportFuture.completeExceptionally(e);
+                exportResultFuture.completeExceptionally(e);
             } catch (IOException e) {
                 plugin.getLogger().severe("Failed to create " + file.getName() + ": " + e.getMessage());
 
-                String prefix = localeManager.getLocaleMessage("prefix");
-                String failMessage = prefix + localeManager.getLocaleMessage("command-export-fail");
-                sender.sendMessage(failMessage);
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    String prefix = localeManager.getLocaleMessage("prefix");
+                    String failMessage = prefix + localeManager.getLocaleMessage("command-export-fail");
+                    sender.sendMessage(failMessage);
+                });
                 exportFuture.completeExceptionally(e);
                 exportResultFuture.completeExceptionally(e);
             }
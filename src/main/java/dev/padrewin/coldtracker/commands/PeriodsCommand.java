@@ -0,0 +1,133 @@
+package dev.padrewin.coldtracker.commands;
+
+import dev.padrewin.colddev.utils.StringPlaceholders;
+import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.database.StaffPeriod;
+import dev.padrewin.coldtracker.database.StaffTotals;
+import dev.padrewin.coldtracker.manager.CommandManager;
+import dev.padrewin.coldtracker.manager.LocaleManager;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class PeriodsCommand extends BaseCommand {
+
+    private static final int TOP_STAFF = 10;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    public PeriodsCommand() {
+        super("periods", CommandManager.CommandAliases.PERIODS);
+    }
+
+    @Override
+    public void execute(@NotNull ColdTracker plugin, @NotNull CommandSender sender, @NotNull String[] args) {
+        LocaleManager localeManager = plugin.getManager(LocaleManager.class);
+
+        if (!sender.hasPermission("coldtracker.periods")) {
+            localeManager.sendMessage(sender, "no-permission");
+            return;
+        }
+
+        if (args.length == 0) {
+            listPeriods(plugin, localeManager, sender);
+            return;
+        }
+
+        int period;
+        try {
+            period = Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) {
+            period = -1;
+        }
+        if (period <= 0 || args.length > 1) {
+            localeManager.sendMessage(sender, "command-periods-usage");
+            return;
+        }
+
+        showPeriod(plugin, localeManager, sender, period);
+    }
+
+    private void listPeriods(ColdTracker plugin, LocaleManager localeManager, CommandSender sender) {
+        // Completes on a DB thread; answer the sender from the main thread
+        plugin.getDatabaseManager().getPeriodsAsync().thenAccept(periods -> Bukkit.getScheduler().runTask(plugin, () -> {
+            if (periods.isEmpty()) {
+                localeManager.sendMessage(sender, "command-periods-none");
+                return;
+            }
+
+            localeManager.sendMessage(sender, "command-periods-title");
+            for (StaffPeriod period : periods) {
+                localeManager.sendSimpleMessage(sender, "command-periods-entry", StringPlaceholders.builder("period", period.id())
+                        .add("start", period.startedAt() > 0 ? DATE_FORMAT.format(Instant.ofEpochMilli(period.startedAt())) : "-")
+                        .add("end", DATE_FORMAT.format(Instant.ofEpochMilli(period.endedAt())))
+                        .build());
+            }
+        }));
+    }
+
+    private void showPeriod(ColdTracker plugin, LocaleManager localeManager, CommandSender sender, int period) {
+        plugin.getDatabaseManager().getPeriodTotalsAsync(period).thenAccept(totals -> Bukkit.getScheduler().runTask(plugin, () -> {
+            if (totals == null) {
+                localeManager.sendMessage(sender, "command-periods-not-found", StringPlaceholders.of("period", period));
+                return;
+            }
+
+            List<Map.Entry<UUID, StaffTotals>> ranked = new ArrayList<>(totals.entrySet());
+            ranked.sort((a, b) -> Long.compare(b.getValue().totalTime(), a.getValue().totalTime()));
+
+            localeManager.sendMessage(sender, "command-periods-totals-title", StringPlaceholders.builder("period", period)
+                    .add("staff", ranked.size())
+                    .build());
+            for (Map.Entry<UUID, StaffTotals> entry : ranked.subList(0, Math.min(TOP_STAFF, ranked.size()))) {
+                OfflinePlayer player = Bukkit.getOfflinePlayer(entry.getKey());
+                localeManager.sendSimpleMessage(sender, "command-periods-totals-entry", StringPlaceholders.builder("player",
+                                player.getName() != null ? player.getName() : entry.getKey().toString())
+                        .add("time", formatTime(entry.getValue().totalTime()))
+                        .add("votes", entry.getValue().totalVotes())
+                        .build());
+            }
+        }));
+    }
+
+    private static String formatTime(long timeMillis) {
+        long totalSeconds = timeMillis / 1000;
+        long days = totalSeconds / 86400;
+        long remaining = totalSeconds % 86400;
+        long hours = remaining / 3600;
+        remaining %= 3600;
+        long minutes = remaining / 60;
+        long seconds = remaining % 60;
+
+        StringBuilder sb = new StringBuilder();
+        if (days > 0) {
+            sb.append(days).append("d ");
+        }
+        if (hours > 0) {
+            sb.append(hours).append("h ");
+        }
+        if (minutes > 0) {
+            sb.append(minutes).append("m ");
+        }
+        if (seconds > 0 || (days == 0 && hours == 0 && minutes == 0)) {
+            sb.append(seconds).append("s");
+        }
+
+        return sb.toString().trim();
+    }
+
+    @Override
+    public List<String> tabComplete(@NotNull ColdTracker plugin, @NotNull CommandSender sender, @NotNull String[] args) {
+        return Collections.emptyList();
+    }
+
+}
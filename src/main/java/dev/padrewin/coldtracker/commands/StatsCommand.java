@@ -1,6 +1,7 @@
 package dev.padrewin.coldtracker.commands;
 
 import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.database.StaffSession;
 import dev.padrewin.coldtracker.listeners.PlayerTrackingListener;
 import dev.padrewin.coldtracker.manager.CommandManager;
 import dev.padrewin.coldtracker.manager.LocaleManager;
@@ -16,6 +17,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class StatsCommand extends BaseCommand {
 
@@ -94,29 +96,7 @@ public class StatsCommand extends BaseCommand {
     private void displayStats(ColdTracker plugin, LocaleManager localeManager, CommandSender sender, UUID playerUUID, String playerName, long totalTime, boolean isSelf) {
         String prefix = localeManager.getLocaleMessage("prefix");
 
-        long totalSeconds = totalTime / 1000;
-        long days = totalSeconds / 86400;
-        long remaining = totalSeconds % 86400;
-        long hours = remaining / 3600;
-        remaining %= 3600;
-        long minutes = remaining / 60;
-        long seconds = remaining % 60;
-
-        StringBuilder sb = new StringBuilder();
-        if (days > 0) {
-            sb.append(days).append("d ");
-        }
-        if (hours > 0) {
-            sb.append(hours).append("h ");
-        }
-        if (minutes > 0) {
-            sb.append(minutes).append("m ");
-        }
-        if (seconds > 0 || (days == 0 && hours == 0 && minutes == 0)) {
-            sb.append(seconds).append("s");
-        }
-
-        String timeFormatted = sb.toString().trim();
+        String timeFormatted = formatTime(totalTime);
 
         StringBuilder statsMessage = new StringBuilder();
         statsMessage.append(" \n");
@@ -135,6 +115,39 @@ public class StatsCommand extends BaseCommand {
 
         List<CompletableFuture<String>> extraBlocks = new ArrayList<>();
 
+        if (SettingKey.AFK_ENABLED.get()) {
+            extraBlocks.add(plugin.getDatabaseManager().getIdleTimeAsync(playerUUID).thenApply(idleTime ->
+                    prefix + localeManager.getLocaleMessage("command-stats-idle-prefix")
+                            .replace("{time}", formatTime(idleTime)) + "\n"
+            ));
+        }
+
+        int recentDays = SettingKey.STATS_RECENT_DAYS.get();
+        if (recentDays > 0) {
+            long now = System.currentTimeMillis();
+            extraBlocks.add(plugin.getDatabaseManager().getActivityAsync(playerUUID, now - TimeUnit.DAYS.toMillis(recentDays), now).thenApply(activity ->
+                    prefix + localeManager.getLocaleMessage("command-stats-recent-playtime-prefix")
+                            .replace("{days}", String.valueOf(recentDays))
+                            .replace("{time}", formatTime(activity.playtime())) + "\n"
+            ));
+            extraBlocks.add(plugin.getDatabaseManager().getSessionLogAsync(playerUUID, now - TimeUnit.DAYS.toMillis(recentDays), now).thenApply(sessions -> {
+                if (sessions.isEmpty()) {
+                    return "";
+                }
+
+                long totalDuration = 0L;
+                long longest = 0L;
+                for (StaffSession session : sessions) {
+                    totalDuration += session.duration();
+                    longest = Math.max(longest, session.duration());
+                }
+                return prefix + localeManager.getLocaleMessage("command-stats-recent-sessions-prefix")
+                        .replace("{sessions}", String.valueOf(sessions.size()))
+                        .replace("{average}", formatTime(totalDuration / sessions.size()))
+                        .replace("{longest}", formatTime(longest)) + "\n";
+            }));
+        }
+
         if (plugin.getConfig().getBoolean(SettingKey.TRACK_VOTES.getKey(), false)) {
             extraBlocks.add(plugin.getDatabaseManager().getTotalVotesAsync(playerUUID).thenApply(totalVotes ->
                     prefix + localeManager.getLocaleMessage("command-stats-votes-prefix")
@@ -166,6 +179,32 @@ public class StatsCommand extends BaseCommand {
         });
     }
 
+    private static String formatTime(long timeMillis) {
+        long totalSeconds = timeMillis / 1000;
+        long days = totalSeconds / 86400;
+        long remaining = totalSeconds % 86400;
+        long hours = remaining / 3600;
+        remaining %= 3600;
+        long minutes = remaining / 60;
+        long seconds = remaining % 60;
+
+        StringBuilder sb = new StringBuilder();
+        if (days > 0) {
+            sb.append(days).append("d ");
+        }
+        if (hours > 0) {
+            sb.append(hours).append("h ");
+        }
+        if (minutes > 0) {
+            sb.append(minutes).append("m ");
+        }
+        if (seconds > 0 || (days == 0 && hours == 0 && minutes == 0)) {
+            sb.append(seconds).append("s");
+        }
+
+        return sb.toString().trim();
+    }
+
     @Override
     public List<String> tabComplete(@NotNull ColdTracker plugin, @NotNull CommandSender sender, @NotNull String[] args) {
         if (args.length == 1 && sender.hasPermission("coldtracker.stats.others")) {
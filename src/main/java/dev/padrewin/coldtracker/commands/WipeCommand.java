@@ -2,9 +2,11 @@ package dev.padrewin.coldtracker.commands;
 
 import java.util.Collections;
 import java.util.List;
+import dev.padrewin.colddev.utils.StringPlaceholders;
 import dev.padrewin.coldtracker.ColdTracker;
 import dev.padrewin.coldtracker.manager.CommandManager;
 import dev.padrewin.coldtracker.manager.LocaleManager;
+import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.jetbrains.annotations.NotNull;
 
@@ -33,8 +35,18 @@ public class WipeCommand extends BaseCommand {
             return;
         }
 
-        plugin.getDatabaseManager().wipeDatabaseTables();
-        localeManager.sendMessage(sender, "command-wipe-success");
+        // Completes on the DB thread; answer the sender from the main thread
+        plugin.getDatabaseManager().rolloverPeriodAsync().whenComplete((period, throwable) -> Bukkit.getScheduler().runTask(plugin, () -> {
+            if (throwable != null) {
+                localeManager.sendMessage(sender, "command-wipe-fail");
+                return;
+            }
+
+            if (plugin.getPlayerTrackingListener() != null) {
+                plugin.getPlayerTrackingListener().clearCacheAfterWipe();
+            }
+            localeManager.sendMessage(sender, "command-wipe-success", StringPlaceholders.of("period", period));
+        }));
     }
 
     @Override
@@ -1,132 +1,344 @@
 package dev.padrewin.coldtracker.database;
 
 import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.database.WriteShard.SqlWork;
+import dev.padrewin.coldtracker.database.migration.SchemaMigrator;
+import dev.padrewin.coldtracker.setting.SettingKey;
+import dev.padrewin.coldtracker.util.TrackerClock;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import java.io.File;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static dev.padrewin.colddev.manager.AbstractDataManager.*;
 
 public class DatabaseManager {
-    private static final long SESSION_UPDATE_INTERVAL_TICKS = 20L * 60L;
+    static final String INSERT_VOTE_QUERY = "INSERT INTO staff_votes (player_uuid, player_name, service_id, vote_time) " +
+            "SELECT ?, ?, id, ? FROM vote_services WHERE name = ?";
+    private static final String DELETE_SESSION_QUERY = "DELETE FROM staff_sessions WHERE player_uuid = ?";
+    private static final long ACTIVITY_BUCKET_MILLIS = TimeUnit.HOURS.toMillis(1);
+    /**
+     * Rows per multi-row insert into staff_session_log. 4 parameters each keeps a full statement
+     * well under SQLite's oldest bound-parameter limit of 999.
+     */
+    private static final int SESSION_LOG_ROWS_PER_INSERT = 64;
+    /**
+     * UUIDs per filtered totals lookup. Each is bound twice, so a chunk stays at 512 parameters.
+     */
+    private static final int TOTALS_CHUNK_SIZE = 256;
+    /**
+     * How long the retention job steps aside while writes are waiting.
+     */
+    private static final long RETENTION_BACKOFF_MILLIS = 1000L;
+    private static final String SESSION_LOG_QUERY = "INSERT INTO staff_session_log (player_uuid, session_start, session_end, duration) VALUES (?, ?, ?, ?)";
+    private static final String SESSION_LOG_MULTI_ROW_QUERY = SESSION_LOG_QUERY + ", (?, ?, ?, ?)".repeat(SESSION_LOG_ROWS_PER_INSERT - 1);
 
     private final ColdTracker plugin;
-    private Connection connection;
-    private final ExecutorService dbExecutor;
+    private final StorageBackend backend;
+    private final SqlDialect dialect;
+    private final String creditPlaytimeQuery;
+    private final String upsertSessionQuery;
+    private final String incrementVoteCountQuery;
+    private final String recordActivityQuery;
+    private final String registerServiceQuery;
+    private final WriteShards writes;
+    private final WriteShard[] shards;
+    private final WriteShard primary;
+    private final CompletableFuture<Void> ready;
+    // Set when the database could not be connected or migrated; every query is refused after that.
+    private volatile boolean unavailable;
+    private final TotalsCache totalsCache;
+    private final TrackerClock clock;
+    private volatile ReaderPool readerPool;
+    private final LaneExecutor.OverflowPolicy overflowPolicy;
+    private final int queueCapacity;
+
     private final ConcurrentLinkedQueue<CompletableFuture<Void>> pendingVoteWrites = new ConcurrentLinkedQueue<>();
 
     public DatabaseManager(ColdTracker plugin, String s) {
         this.plugin = plugin;
-        this.dbExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
-            private final AtomicInteger counter = new AtomicInteger(1);
+        this.clock = plugin.getClock();
+        this.backend = StorageBackend.create(plugin);
+        this.dialect = backend.getDialect();
+        this.creditPlaytimeQuery = creditPlaytimeQuery(dialect);
+        this.upsertSessionQuery = upsertSessionQuery(dialect);
+        this.incrementVoteCountQuery = incrementVoteCountQuery(dialect);
+        this.recordActivityQuery = recordActivityQuery(dialect);
+        this.registerServiceQuery = registerServiceQuery(dialect);
+        this.queueCapacity = Math.max(1, SettingKey.DATABASE_QUEUE_CAPACITY.get());
+        this.overflowPolicy = LaneExecutor.OverflowPolicy.parse(SettingKey.DATABASE_QUEUE_OVERFLOW_POLICY.get(), plugin.getLogger());
+        this.totalsCache = new TotalsCache(Math.max(0, SettingKey.DATABASE_TOTALS_CACHE_SIZE.get()));
 
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread thread = new Thread(r, "ColdTracker-DB-" + counter.getAndIncrement());
-                thread.setDaemon(true);
-                return thread;
-            }
-        });
+        int shardCount = Math.max(1, SettingKey.DATABASE_WRITE_SHARDS.get());
+        if (shardCount > 1 && !backend.supportsParallelWrites()) {
+            plugin.getLogger().warning(backend.getName() + " only accepts one writer at a time, ignoring database.write-shards.");
+            shardCount = 1;
+        }
+        this.writes = new WriteShards(shardCount, queueCapacity, overflowPolicy,
+                Math.max(0, SettingKey.GROUP_COMMIT_WINDOW_MS.get()), Math.max(1, SettingKey.GROUP_COMMIT_MAX_OPERATIONS.get()),
+                plugin.getLogger(), new WriteShards.Host() {
+                    @Override
+                    public boolean isUnavailable() {
+                        return unavailable;
+                    }
+
+                    @Override
+                    public void ensureConnection(WriteShard shard) {
+                        ensureWriterConnection(shard);
+                    }
+
+                    @Override
+                    public void afterDrain(WriteShard shard) {
+                        if (shard.pendingSessionLog.size() >= SESSION_LOG_ROWS_PER_INSERT) {
+                            flushSessionLog(shard);
+                        }
+                    }
+                });
+        this.shards = writes.shards();
+        this.primary = shards[0];
 
-        connect();
-        createTables();
+        // Connecting and migrating both happen on the DB thread, so enabling never waits on disk.
+        CompletableFuture<Void> migrated = initialize();
+        // The other shards hold everything back until the schema exists, just like the primary.
+        for (int i = 1; i < shards.length; i++) {
+            shards[i].executor.execute(LaneExecutor.Lane.INTERACTIVE, () -> migrated.exceptionally(ex -> null).join());
+        }
+        // Readers are only opened once the schema exists; until then reads wait for it.
+        this.ready = migrated.thenRun(this::openReaderPool);
         startBatchUpdater();
     }
 
-    private <T> CompletableFuture<T> supplyDbAsync(Supplier<T> task) {
-        CompletableFuture<T> future = new CompletableFuture<>();
-        dbExecutor.execute(() -> {
-            try {
-                future.complete(task.get());
-            } catch (Throwable t) {
-                future.completeExceptionally(t);
-            }
-        });
-        return future;
+    // Upserts differ per dialect, so they are built once per manager.
+    static String creditPlaytimeQuery(SqlDialect dialect) {
+        return "INSERT INTO staff_time (player_uuid, player_name, total_time, idle_time) VALUES (?, ?, ?, ?) " +
+                dialect.onConflictUpdate("player_uuid") + "total_time = total_time + " + dialect.excluded("total_time") +
+                ", idle_time = idle_time + " + dialect.excluded("idle_time");
     }
 
-    private CompletableFuture<Void> runDbAsync(Runnable task) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
-        dbExecutor.execute(() -> {
-            try {
-                task.run();
-                future.complete(null);
-            } catch (Throwable t) {
-                future.completeExceptionally(t);
-            }
+    static String upsertSessionQuery(SqlDialect dialect) {
+        return "INSERT INTO staff_sessions (player_uuid, player_name, join_time, session_start, last_seen, idle_time) VALUES (?, ?, ?, ?, ?, 0) " +
+                dialect.onConflictUpdate("player_uuid") + "player_name = " + dialect.excluded("player_name") +
+                ", join_time = " + dialect.excluded("join_time") + ", last_seen = " + dialect.excluded("last_seen") + ", idle_time = 0";
+    }
+
+    static String incrementVoteCountQuery(SqlDialect dialect) {
+        return "INSERT INTO staff_vote_counts (player_uuid, vote_count) VALUES (?, 1) " +
+                dialect.onConflictUpdate("player_uuid") + "vote_count = vote_count + 1";
+    }
+
+    static String recordActivityQuery(SqlDialect dialect) {
+        return "INSERT INTO staff_activity (player_uuid, bucket_start, playtime, votes, sessions) VALUES (?, ?, ?, ?, ?) " +
+                dialect.onConflictUpdate("player_uuid, bucket_start") + "playtime = playtime + " + dialect.excluded("playtime") +
+                ", votes = votes + " + dialect.excluded("votes") + ", sessions = sessions + " + dialect.excluded("sessions");
+    }
+
+    static String registerServiceQuery(SqlDialect dialect) {
+        return dialect.insertIgnore() + " vote_services (name) VALUES (?)";
+    }
+
+    /**
+     * Completes once the database is connected, migrated and serving reads. Anything submitted
+     * earlier is queued rather than refused, so callers only need this to act on startup. Fails
+     * if the database could not be connected or migrated, in which case every query fails too.
+     */
+    public CompletableFuture<Void> whenReady() {
+        return ready;
+    }
+
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    /**
+     * @return true if the database could not be connected or migrated
+     */
+    public boolean hasFailed() {
+        return ready.isCompletedExceptionally();
+    }
+
+    private WriteShard shardFor(UUID playerUUID) {
+        return writes.shardFor(playerUUID);
+    }
+
+    private <T> CompletableFuture<T> supplyDbAsync(LaneExecutor.Lane lane, Supplier<T> task) {
+        return writes.supplyAsync(primary, lane, task);
+    }
+
+    /**
+     * Runs a read on the reader pool when the backend has one, otherwise on the DB executor
+     * like every other query. Interactive reads are served before queued bulk reads either way.
+     */
+    private <T> CompletableFuture<T> supplyReadAsync(LaneExecutor.Lane lane, Function<StatementCache, T> task) {
+        if (!ready.isDone()) {
+            return ready.exceptionally(ex -> null).thenCompose(unused -> supplyReadAsync(lane, task));
+        }
+        if (readerPool != null) {
+            return readerPool.supplyAsync(lane, task);
+        }
+        return supplyDbAsync(lane, () -> task.apply(primary.statements));
+    }
+
+    private CompletableFuture<Void> runDbAsync(LaneExecutor.Lane lane, Runnable task) {
+        return supplyDbAsync(lane, () -> {
+            task.run();
+            return null;
         });
-        return future;
+    }
+
+    private CompletableFuture<Void> runOnEveryShard(LaneExecutor.Lane lane, Consumer<WriteShard> task) {
+        return writes.runOnEveryShard(lane, task);
+    }
+
+    /**
+     * Queues a mutation for the shard's next group commit, see {@link WriteShards#submit}.
+     */
+    private CompletableFuture<Void> submitWrite(WriteShard shard, SqlWork work) {
+        return writes.submit(shard, work, null);
+    }
+
+    private CompletableFuture<Void> submitWrite(WriteShard shard, SqlWork work, Runnable rollback) {
+        return writes.submit(shard, work, rollback);
+    }
+
+    static IllegalStateException unavailableException() {
+        return new IllegalStateException("The database could not be connected or migrated, refusing to run queries.");
     }
 
     private void connect() {
         try {
-            File dataFolder = plugin.getDataFolder();
-            if (!dataFolder.exists()) {
-                dataFolder.mkdirs();
+            for (WriteShard shard : shards) {
+                shard.connection = backend.openConnection();
+                shard.statements = new StatementCache(shard.connection);
             }
-
-            String dbPath = dataFolder.getAbsolutePath() + File.separator + "coldtracker.db";
-            connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
-            plugin.getLogger().info(ANSI_LIGHT_BLUE + "Database connected using SQLite. " + ANSI_BOLD + ANSI_GREEN + "✔" + ANSI_RESET);
+            plugin.getLogger().info(ANSI_LIGHT_BLUE + "Database connected using " + backend.getName()
+                    + (shards.length > 1 ? " with " + shards.length + " write shards" : "") + ". " + ANSI_BOLD + ANSI_GREEN + "✔" + ANSI_RESET);
         } catch (SQLException e) {
             plugin.getLogger().warning(ANSI_RED + "Database failed to connect. " + ANSI_BOLD + ANSI_RED + "✘" + ANSI_RESET);
             e.printStackTrace();
         }
     }
 
-    private void createTables() {
-        String createPlaytimeTable = "CREATE TABLE IF NOT EXISTS staff_time (" +
-                "player_uuid TEXT PRIMARY KEY," +
-                "player_name TEXT NOT NULL," +
-                "total_time INTEGER NOT NULL DEFAULT 0" +
-                ");";
-
-        String createSessionsTable = "CREATE TABLE IF NOT EXISTS staff_sessions (" +
-                "player_uuid TEXT PRIMARY KEY," +
-                "player_name TEXT NOT NULL," +
-                "join_time INTEGER NOT NULL" +
-                ");";
-
-        String createVotesTable = "CREATE TABLE IF NOT EXISTS staff_votes (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                "player_uuid TEXT NOT NULL," +
-                "player_name TEXT NOT NULL," +
-                "service_name TEXT NOT NULL," +
-                "vote_time TEXT NOT NULL" +
-                ");";
-
-        String createSanctionsPeriodTable = "CREATE TABLE IF NOT EXISTS sanctions_period (" +
-                "id INTEGER PRIMARY KEY CHECK (id = 1)," +
-                "last_reset INTEGER NOT NULL DEFAULT 0" +
-                ");";
-
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createPlaytimeTable);
-            stmt.execute(createSessionsTable);
-            stmt.execute(createVotesTable);
-            stmt.execute(createSanctionsPeriodTable);
+    /**
+     * Reopens the writer if it was idle long enough for the server to have dropped it (MySQL's
+     * wait_timeout, a proxy restart). Recently used connections are trusted without a round trip.
+     * Must run on the shard's thread.
+     */
+    private void ensureWriterConnection(WriteShard shard) {
+        if (shard.connection == null || shard.statements.getIdleMillis() < ReaderPool.VALIDATE_AFTER_IDLE_MILLIS) {
+            return;
+        }
+
+        try {
+            if (shard.connection.isValid(ReaderPool.VALIDATION_TIMEOUT_SECONDS)) {
+                shard.statements.markUsed();
+                return;
+            }
+        } catch (SQLException ignored) {
+        }
+
+        plugin.getLogger().warning("The database connection was lost, reconnecting.");
+        shard.statements.close();
+        try {
+            shard.connection.close();
+        } catch (SQLException ignored) {
+        }
+
+        try {
+            shard.connection = backend.openConnection();
+            shard.statements = new StatementCache(shard.connection);
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to create database tables!");
+            plugin.getLogger().severe("Failed to reconnect to the database!");
             e.printStackTrace();
         }
+    }
 
-        // On first-ever startup with this feature, start the sanctions clock at "now" instead of
-        // the epoch, so upgrading an existing install doesn't surface a server's entire punishment
-        // history. Existing playtime/vote data in the other tables is untouched either way.
-        try (PreparedStatement stmt = connection.prepareStatement(
-                "INSERT OR IGNORE INTO sanctions_period (id, last_reset) VALUES (1, ?)")) {
-            stmt.setLong(1, System.currentTimeMillis());
-            stmt.executeUpdate();
+    /**
+     * Writes a consistent copy of the database to target while tracking carries on. Queued
+     * writes are committed first (and an in-memory database snapshotted) on the DB executor;
+     * the copy itself runs on the given executor through the backend's own connection.
+     */
+    public CompletableFuture<Void> backupAsync(File target, Executor executor) {
+        return runDbAsync(LaneExecutor.Lane.BULK, this::snapshotDatabase).thenRunAsync(() -> {
+            try {
+                backend.backup(target);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private void openReaderPool() {
+        int readers = backend.getReaderConnections();
+        if (primary.connection == null || readers <= 0) {
+            return;
+        }
+
+        try {
+            readerPool = new ReaderPool(plugin, backend, readers, queueCapacity, overflowPolicy);
+            plugin.debugLog("Opened " + readers + " read-only database connections.");
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Failed to open database reader connections, reads will share the writer: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Connects and brings the schema up to date on the DB executor. Everything submitted
+     * afterwards runs after it, so no query ever sees a half-migrated schema: if connecting or
+     * migrating fails, the returned future fails and every later query is refused.
+     */
+    private CompletableFuture<Void> initialize() {
+        // Submitted before anything else on the highest lane, so it always runs first.
+        return runDbAsync(LaneExecutor.Lane.INTERACTIVE, () -> {
+            connect();
+            if (primary.connection == null) {
+                unavailable = true;
+                throw new IllegalStateException("Failed to connect to the database.");
+            }
+
+            try {
+                int version = new SchemaMigrator(primary.connection, dialect, plugin.getLogger()).migrate();
+                plugin.debugLog("Database schema is at version " + version + ".");
+            } catch (SQLException e) {
+                unavailable = true;
+                plugin.getLogger().severe("Failed to migrate the database schema!");
+                e.printStackTrace();
+                throw new CompletionException(e);
+            }
+
+            try {
+                new PeriodRollover(primary.connection, dialect, plugin.getLogger()).recover();
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to settle an interrupted period rollover, the next rollover will retry!");
+                e.printStackTrace();
+            }
+
+            if (SettingKey.RETENTION_INTERVAL_HOURS.get() > 0) {
+                enableIncrementalVacuum();
+            }
+        });
+    }
+
+    /**
+     * Lets history compaction give freed space back to the file system. On a SQLite file created
+     * without it this rewrites the whole database once, which is done here, before anything is
+     * tracked, rather than by the recurring compaction where it would hold up every write.
+     */
+    private void enableIncrementalVacuum() {
+        long start = System.currentTimeMillis();
+        try {
+            if (dialect.enableIncrementalVacuum(primary.connection)) {
+                plugin.getLogger().info("Rewrote the database once to allow reclaiming space freed by history compaction in "
+                        + (System.currentTimeMillis() - start) + "ms.");
+            }
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to initialize sanctions period!");
+            plugin.getLogger().severe("Failed to enable incremental vacuum, compacted history will not shrink the database file!");
             e.printStackTrace();
         }
     }
@@ -137,13 +349,17 @@ public class DatabaseManager {
      * we only remember when the last reset happened and count sanctions issued after that point.
      */
     public CompletableFuture<Long> getSanctionsPeriodStartAsync() {
-        return supplyDbAsync(() -> {
-            String query = "SELECT last_reset FROM sanctions_period WHERE id = 1";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    return rs.getLong("last_reset");
-                }
+        Long cached = totalsCache.getSanctionsPeriodStart();
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        long generation = totalsCache.generation();
+        return supplyReadAsync(LaneExecutor.Lane.INTERACTIVE, statements -> {
+            try {
+                long periodStart = querySanctionsPeriodStart(statements);
+                totalsCache.putSanctionsPeriodStart(periodStart, generation);
+                return periodStart;
             } catch (SQLException e) {
                 plugin.getLogger().severe("Failed to get sanctions period start!");
                 e.printStackTrace();
@@ -152,29 +368,68 @@ public class DatabaseManager {
         });
     }
 
-    private void resetSanctionsPeriod() {
-        String query = "UPDATE sanctions_period SET last_reset = ? WHERE id = 1";
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setLong(1, System.currentTimeMillis());
-            stmt.executeUpdate();
+    private long querySanctionsPeriodStart(StatementCache statements) throws SQLException {
+        try (ResultSet rs = statements.prepare("SELECT last_reset FROM sanctions_period WHERE id = 1").executeQuery()) {
+            return rs.next() ? rs.getLong("last_reset") : 0L;
+        }
+    }
 
-            if (plugin.getConfig().getBoolean("debug", false)) {
-                plugin.getLogger().info("[DEBUG] Sanctions tracking period has been reset.");
+    /**
+     * Everything a report needs, read in one transaction so it reflects a single instant: a
+     * session closing or a period rolling over mid-report is either fully in it or not at all.
+     * Runs on a reader connection when there is one, so tracking keeps writing meanwhile;
+     * otherwise it is one short task on the DB thread. Unlike the other reads, a failure fails
+     * the future instead of returning partial data.
+     */
+    public CompletableFuture<StaffSnapshot> readSnapshotAsync() {
+        return supplyReadAsync(LaneExecutor.Lane.BULK, statements -> {
+            long start = System.currentTimeMillis();
+            Connection connection = statements.getConnection();
+            try {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    long takenAt = System.currentTimeMillis();
+                    long sanctionsPeriodStart = querySanctionsPeriodStart(statements);
+                    Map<UUID, StaffTotals> totals = queryStaffTotals(statements);
+                    connection.commit();
+
+                    plugin.debugLog("Read a snapshot of " + totals.size() + " staff members in " + (System.currentTimeMillis() - start) + "ms.");
+                    return new StaffSnapshot(takenAt, sanctionsPeriodStart, totals);
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to read a database snapshot!");
+                e.printStackTrace();
+                throw new CompletionException(e);
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to reset sanctions period!");
-            e.printStackTrace();
-        }
+        });
     }
 
+    /**
+     * Committed playtime of a staff member, served from the totals cache when possible. Time
+     * accrued since the last checkpoint is not included.
+     */
     public CompletableFuture<Long> getTotalTimeAsync(UUID playerUUID) {
-        return supplyDbAsync(() -> {
+        Long cached = totalsCache.getTime(playerUUID);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        long generation = totalsCache.generation();
+        return supplyReadAsync(LaneExecutor.Lane.INTERACTIVE, statements -> {
             String query = "SELECT total_time FROM staff_time WHERE player_uuid = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
-                stmt.setString(1, playerUUID.toString());
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    return rs.getLong("total_time");
+            try {
+                PreparedStatement stmt = statements.prepare(query);
+                stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    long totalTime = rs.next() ? rs.getLong("total_time") : 0L;
+                    totalsCache.putTime(playerUUID, totalTime, generation);
+                    return totalTime;
                 }
             } catch (SQLException e) {
                 plugin.getLogger().severe("Failed to get total time for player " + playerUUID + "!");
@@ -184,296 +439,1177 @@ public class DatabaseManager {
         });
     }
 
-    public CompletableFuture<Integer> getTotalVotesAsync(UUID playerUUID) {
-        return supplyDbAsync(() -> {
-            String query = "SELECT COUNT(*) AS vote_count FROM staff_votes WHERE player_uuid = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
-                stmt.setString(1, playerUUID.toString());
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    return rs.getInt("vote_count");
+    /**
+     * Time the player spent connected but idle, which is kept out of their total time. Time
+     * accrued since the last checkpoint is not included.
+     */
+    public CompletableFuture<Long> getIdleTimeAsync(UUID playerUUID) {
+        return supplyReadAsync(LaneExecutor.Lane.INTERACTIVE, statements -> {
+            String query = "SELECT idle_time FROM staff_time WHERE player_uuid = ?";
+            try {
+                PreparedStatement stmt = statements.prepare(query);
+                stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getLong("idle_time") : 0L;
                 }
             } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to get total votes for player " + playerUUID + "!");
+                plugin.getLogger().severe("Failed to get idle time for player " + playerUUID + "!");
                 e.printStackTrace();
             }
-            return 0;
+            return 0L;
         });
     }
 
-    public void logJoinTime(UUID playerUUID, String playerName, long joinTime) {
-        runDbAsync(() -> updateJoinTime(playerUUID, playerName, joinTime))
-                .exceptionally(ex -> {
-                    plugin.getLogger().severe("Failed to schedule join time update for " + playerName + ": " + ex.getMessage());
-                    return null;
-                });
-    }
-
-    private void updateJoinTime(UUID playerUUID, String playerName, long joinTime) {
-        String query = "INSERT INTO staff_sessions (player_uuid, player_name, join_time) VALUES (?, ?, ?) " +
-                "ON CONFLICT(player_uuid) DO UPDATE SET join_time = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setString(1, playerUUID.toString());
-            stmt.setString(2, playerName);
-            stmt.setLong(3, joinTime);
-            stmt.setLong(4, joinTime);
-            stmt.executeUpdate();
-
-            if (plugin.getConfig().getBoolean("debug", false)) {
-                plugin.getLogger().info("[DEBUG] Logged join time for " + playerName + " at " + joinTime);
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to log join time for " + playerName + "!");
-            e.printStackTrace();
+    public CompletableFuture<Integer> getTotalVotesAsync(UUID playerUUID) {
+        Integer cached = totalsCache.getVotes(playerUUID);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
         }
-    }
 
-    public CompletableFuture<Void> removeJoinTimeAsync(UUID playerUUID) {
-        return runDbAsync(() -> {
-            String query = "SELECT join_time FROM staff_sessions WHERE player_uuid = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
-                stmt.setString(1, playerUUID.toString());
-                ResultSet rs = stmt.executeQuery();
-                if (rs.next()) {
-                    long joinTime = rs.getLong("join_time");
-                    long sessionTime = System.currentTimeMillis() - joinTime;
-                    if (sessionTime > 0) {
-                        addPlaySession(playerUUID, sessionTime);
-                    }
+        long generation = totalsCache.generation();
+        return supplyReadAsync(LaneExecutor.Lane.INTERACTIVE, statements -> {
+            String query = "SELECT vote_count FROM staff_vote_counts WHERE player_uuid = ?";
+            try {
+                PreparedStatement stmt = statements.prepare(query);
+                stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    int totalVotes = rs.next() ? rs.getInt("vote_count") : 0;
+                    totalsCache.putVotes(playerUUID, totalVotes, generation);
+                    return totalVotes;
                 }
             } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to remove join time for " + playerUUID + "!");
+                plugin.getLogger().severe("Failed to get total votes for player " + playerUUID + "!");
                 e.printStackTrace();
             }
+            return 0;
+        });
+    }
 
-            String deleteQuery = "DELETE FROM staff_sessions WHERE player_uuid = ?";
-            try (PreparedStatement stmt = connection.prepareStatement(deleteQuery)) {
-                stmt.setString(1, playerUUID.toString());
-                stmt.executeUpdate();
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to delete join time entry for " + playerUUID + "!");
-                e.printStackTrace();
+    /**
+     * Time and vote totals for the given UUIDs, read in one grouped query instead of two lookups
+     * per staff member. UUIDs without any tracked data map to {@link StaffTotals#EMPTY}.
+     */
+    public CompletableFuture<Map<UUID, StaffTotals>> getStaffTotalsAsync(Collection<UUID> playerUUIDs) {
+        Set<UUID> wanted = new HashSet<>(playerUUIDs);
+        return supplyReadAsync(LaneExecutor.Lane.BULK, statements -> {
+            Map<UUID, StaffTotals> totals = readStaffTotals(statements, wanted);
+            for (UUID playerUUID : wanted) {
+                totals.putIfAbsent(playerUUID, StaffTotals.EMPTY);
             }
+            return totals;
         });
     }
 
-    private String getPlayerNameFromSessions(UUID playerUUID) {
-        String query = "SELECT player_name FROM staff_sessions WHERE player_uuid = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            stmt.setString(1, playerUUID.toString());
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getString("player_name");
-            }
+    private Map<UUID, StaffTotals> readStaffTotals(StatementCache statements, Collection<UUID> playerUUIDs) {
+        try {
+            return queryStaffTotals(statements, playerUUIDs);
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to fetch player name for UUID: " + playerUUID);
+            plugin.getLogger().severe("Failed to read staff totals!");
             e.printStackTrace();
         }
-        return null;
+        return new HashMap<>();
     }
 
-    public void addPlaySession(UUID playerUUID, long sessionTime) {
-        String query = "INSERT INTO staff_time (player_uuid, player_name, total_time) VALUES (?, ?, ?) " +
-                "ON CONFLICT(player_uuid) DO UPDATE SET total_time = total_time + ?";
+    /**
+     * Totals of every tracked player. Only exports and snapshots want the whole table; anything
+     * asking about specific staff members goes through the filtered overload.
+     */
+    static Map<UUID, StaffTotals> queryStaffTotals(StatementCache statements) throws SQLException {
+        String query = "SELECT player_uuid, SUM(total_time) AS total_time, SUM(vote_count) AS vote_count FROM (" +
+                "SELECT player_uuid, total_time, 0 AS vote_count FROM staff_time " +
+                "UNION ALL " +
+                "SELECT player_uuid, 0 AS total_time, vote_count FROM staff_vote_counts" +
+                ") AS totals GROUP BY player_uuid";
 
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            String playerName = Bukkit.getOfflinePlayer(playerUUID).getName();
+        Map<UUID, StaffTotals> totals = new HashMap<>();
+        try (ResultSet rs = statements.prepare(query).executeQuery()) {
+            readTotalsRows(rs, totals);
+        }
+        return totals;
+    }
 
-            if (playerName == null) {
-                playerName = getPlayerNameFromSessions(playerUUID);
-            }
+    /**
+     * Totals of the given players, looked up by primary key in chunks of at most
+     * {@link #TOTALS_CHUNK_SIZE} UUIDs. Chunks are padded to a power of two by repeating their
+     * last UUID, so only a handful of statement shapes get cached.
+     */
+    static Map<UUID, StaffTotals> queryStaffTotals(StatementCache statements, Collection<UUID> playerUUIDs) throws SQLException {
+        List<UUID> remaining = new ArrayList<>(playerUUIDs);
+        Map<UUID, StaffTotals> totals = new HashMap<>();
+        for (int from = 0; from < remaining.size(); from += TOTALS_CHUNK_SIZE) {
+            List<UUID> chunk = remaining.subList(from, Math.min(remaining.size(), from + TOTALS_CHUNK_SIZE));
+            int size = Math.min(TOTALS_CHUNK_SIZE, Integer.highestOneBit(chunk.size() * 2 - 1));
+            String placeholders = String.join(", ", Collections.nCopies(size, "?"));
+            String query = "SELECT player_uuid, SUM(total_time) AS total_time, SUM(vote_count) AS vote_count FROM (" +
+                    "SELECT player_uuid, total_time, 0 AS vote_count FROM staff_time WHERE player_uuid IN (" + placeholders + ") " +
+                    "UNION ALL " +
+                    "SELECT player_uuid, 0 AS total_time, vote_count FROM staff_vote_counts WHERE player_uuid IN (" + placeholders + ")" +
+                    ") AS totals GROUP BY player_uuid";
 
-            if (playerName == null) {
-                if (plugin.getConfig().getBoolean("debug", false)) {
-                    plugin.getLogger().warning("[DEBUG] Skipping playtime update for " + playerUUID + " because player_name is missing.");
-                }
-                return;
+            PreparedStatement stmt = statements.prepare(query);
+            for (int i = 0; i < size; i++) {
+                byte[] uuid = UuidBytes.toBytes(chunk.get(Math.min(i, chunk.size() - 1)));
+                stmt.setBytes(i + 1, uuid);
+                stmt.setBytes(size + i + 1, uuid);
             }
+            try (ResultSet rs = stmt.executeQuery()) {
+                readTotalsRows(rs, totals);
+            }
+        }
+        return totals;
+    }
 
-            stmt.setString(1, playerUUID.toString());
-            stmt.setString(2, playerName);
-            stmt.setLong(3, sessionTime);
-            stmt.setLong(4, sessionTime);
-            stmt.executeUpdate();
-
-            if (plugin.getConfig().getBoolean("debug", false)) {
-                plugin.getLogger().info("[DEBUG] Updated playtime for " + playerName + " (" + playerUUID + ") with " + sessionTime + "ms.");
+    private static void readTotalsRows(ResultSet rs, Map<UUID, StaffTotals> totals) throws SQLException {
+        while (rs.next()) {
+            UUID playerUUID;
+            try {
+                playerUUID = UuidBytes.fromBytes(rs.getBytes("player_uuid"));
+            } catch (IllegalArgumentException e) {
+                continue;
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to update playtime for " + playerUUID + "!");
-            e.printStackTrace();
+            totals.put(playerUUID, new StaffTotals(rs.getLong("total_time"), rs.getInt("vote_count")));
         }
     }
 
-    public void addVote(UUID playerUUID, String playerName, String serviceName, String timestamp) {
-        CompletableFuture<Void> voteWrite = runDbAsync(() -> {
-            String query = "INSERT INTO staff_votes (player_uuid, player_name, service_name, vote_time) VALUES (?, ?, ?, ?)";
-            try (PreparedStatement stmt = connection.prepareStatement(query)) {
-                stmt.setString(1, playerUUID.toString());
-                stmt.setString(2, playerName);
-                stmt.setString(3, serviceName);
-                stmt.setString(4, timestamp);
-                stmt.executeUpdate();
+    /**
+     * Activity of one staff member between two instants, summed from hourly buckets. The range
+     * is widened to whole hours: every bucket starting in [from rounded down to the hour, to) counts.
+     * Time accrued since the last checkpoint is not included yet.
+     */
+    public CompletableFuture<StaffActivity> getActivityAsync(UUID playerUUID, long from, long to) {
+        return supplyReadAsync(LaneExecutor.Lane.INTERACTIVE, statements -> {
+            String query = "SELECT SUM(playtime) AS playtime, SUM(votes) AS votes, SUM(sessions) AS sessions FROM staff_activity " +
+                    "WHERE player_uuid = ? AND bucket_start >= ? AND bucket_start < ?";
+            try {
+                PreparedStatement stmt = statements.prepare(query);
+                stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+                stmt.setLong(2, toBucket(from));
+                stmt.setLong(3, to);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new StaffActivity(rs.getLong("playtime"), rs.getInt("votes"), rs.getInt("sessions"));
+                    }
+                }
             } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to log vote for player " + playerName + "!");
+                plugin.getLogger().severe("Failed to get activity for player " + playerUUID + "!");
                 e.printStackTrace();
             }
+            return StaffActivity.EMPTY;
         });
-        pendingVoteWrites.add(voteWrite);
-        voteWrite.whenComplete((unused, throwable) -> pendingVoteWrites.remove(voteWrite));
     }
 
-    public CompletableFuture<Void> waitForPendingVoteWritesAsync() {
-        return CompletableFuture.runAsync(() -> {
-            List<CompletableFuture<Void>> snapshot = new ArrayList<>(pendingVoteWrites);
-            if (!snapshot.isEmpty()) {
-                CompletableFuture.allOf(snapshot.toArray(new CompletableFuture[0])).join();
-            }
-        });
+    private static long toBucket(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, ACTIVITY_BUCKET_MILLIS);
     }
 
-    public CompletableFuture<Void> flushActiveSessionsAsync() {
-        return runDbAsync(() -> {
-            long now = System.currentTimeMillis();
+    /**
+     * Adds a session's playtime between two instants to the activity batch, split at hour
+     * boundaries so every bucket only holds time spent inside it.
+     */
+    private void batchPlaytimeActivity(PreparedStatement stmt, UUID playerUUID, long from, long to) throws SQLException {
+        batchPlaytimeActivity(stmt, playerUUID, from, to, to - from);
+    }
 
-            for (Player player : Bukkit.getOnlinePlayers()) {
-                if (!player.hasPermission("coldtracker.tracktime")) {
-                    continue;
-                }
+    /**
+     * Same as above for a stretch that was only partly active. The active playtime is spread
+     * over the buckets in proportion to their share of the stretch; the last one takes the
+     * rounding remainder, so the buckets always add up to the playtime credited.
+     */
+    private void batchPlaytimeActivity(PreparedStatement stmt, UUID playerUUID, long from, long to, long playtime) throws SQLException {
+        long sliceStart = from;
+        long remaining = playtime;
+        while (sliceStart < to) {
+            long bucket = toBucket(sliceStart);
+            long sliceEnd = Math.min(to, bucket + ACTIVITY_BUCKET_MILLIS);
+            long slicePlaytime = sliceEnd == to ? remaining : playtime * (sliceEnd - sliceStart) / (to - from);
+            batchActivity(stmt, playerUUID, bucket, slicePlaytime, 0, 0);
+            remaining -= slicePlaytime;
+            sliceStart = sliceEnd;
+        }
+    }
 
-                UUID playerUUID = player.getUniqueId();
-                String query = "SELECT join_time FROM staff_sessions WHERE player_uuid = ?";
-                try (PreparedStatement stmt = connection.prepareStatement(query)) {
-                    stmt.setString(1, playerUUID.toString());
-                    ResultSet rs = stmt.executeQuery();
-                    if (rs.next()) {
-                        long joinTime = rs.getLong("join_time");
-                        long sessionTime = now - joinTime;
-                        if (sessionTime > 0) {
-                            addPlaySession(playerUUID, sessionTime);
-                            updateJoinTime(playerUUID, player.getName(), now);
-                        }
-                    } else {
-                        updateJoinTime(playerUUID, player.getName(), now);
-                    }
-                } catch (SQLException e) {
-                    plugin.getLogger().severe("Failed to flush active session for " + player.getName() + "!");
-                    e.printStackTrace();
-                }
-            }
-        });
+    private void batchActivity(PreparedStatement stmt, UUID playerUUID, long bucket, long playtime, int votes, int sessions) throws SQLException {
+        stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+        stmt.setLong(2, bucket);
+        stmt.setLong(3, playtime);
+        stmt.setInt(4, votes);
+        stmt.setInt(5, sessions);
+        stmt.addBatch();
     }
 
-    public void wipeDatabaseTables() {
-        runDbAsync(() -> {
-            String wipeTimeQuery = "DELETE FROM staff_time";
-            String wipeVotesQuery = "DELETE FROM staff_votes";
+    /**
+     * Queues the activity of a ledger entry since its last checkpoint: its playtime and, the
+     * first time it is written, the session itself.
+     */
+    private void batchSessionActivity(PreparedStatement stmt, SessionLedger.Entry entry, long now) throws SQLException {
+        if (entry.pendingActiveTime(now) > 0) {
+            batchPlaytimeActivity(stmt, entry.getPlayerUUID(), entry.wallTime(entry.getCheckpointedAt()), entry.wallTime(entry.accruedUntil(now)),
+                    entry.pendingActiveTime(now));
+        }
+        if (!entry.isPersisted()) {
+            batchActivity(stmt, entry.getPlayerUUID(), toBucket(entry.getSessionStart()), 0L, 0, 1);
+        }
+    }
 
-            try (Statement stmt = connection.createStatement()) {
-                stmt.executeUpdate(wipeTimeQuery);
-                stmt.executeUpdate(wipeVotesQuery);
-                resetSanctionsPeriod();
+    /**
+     * Opens a ledger session for a staff member, starting now. Nothing is written to disk here;
+     * the session row and its playtime are persisted by the next checkpoint, or when the session
+     * closes.
+     */
+    public void openSession(UUID playerUUID, String playerName) {
+        // Read here rather than on the shard's thread, so time spent queued is still counted.
+        long joinTime = clock.wallMillis();
+        long joinedAt = clock.monotonicMillis();
 
-                if (plugin.getConfig().getBoolean("debug", false)) {
-                    plugin.getLogger().info("[DEBUG] Wiped data from 'staff_time' and 'staff_votes' tables, and reset the sanctions tracking period.");
-                }
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Failed to wipe data from database tables!");
-                e.printStackTrace();
-            }
-        }).join();
+        // Queued with the writes rather than run directly, so it can never overtake a pending close.
+        WriteShard shard = shardFor(playerUUID);
+        submitWrite(shard, () -> {
+            shard.sessionLedger.open(playerUUID, playerName, joinTime, joinedAt);
+            plugin.debugLog("Opened session for " + playerName + " at " + joinTime);
+        }).exceptionally(ex -> {
+            plugin.getLogger().severe("Failed to schedule session open for " + playerName + ": " + ex.getMessage());
+            return null;
+        });
     }
 
-    private void startBatchUpdater() {
-        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
-            runDbAsync(() -> {
-                String query = "SELECT player_uuid, join_time FROM staff_sessions";
+    /**
+     * Opens ledger sessions for several staff members at once, e.g. those already online when the
+     * plugin enables. They all start now, and each shard opens its share in one queued write.
+     */
+    public CompletableFuture<Void> openSessionsAsync(Map<UUID, String> players) {
+        long joinTime = clock.wallMillis();
+        long joinedAt = clock.monotonicMillis();
 
-                try (PreparedStatement stmt = connection.prepareStatement(query);
-                     ResultSet rs = stmt.executeQuery()) {
+        Map<WriteShard, Map<UUID, String>> byShard = new HashMap<>();
+        players.forEach((playerUUID, playerName) ->
+                byShard.computeIfAbsent(shardFor(playerUUID), shard -> new HashMap<>()).put(playerUUID, playerName));
 
-                    while (rs.next()) {
-                        UUID playerUUID = UUID.fromString(rs.getString("player_uuid"));
-                        long joinTime = rs.getLong("join_time");
-                        long sessionTime = System.currentTimeMillis() - joinTime;
+        List<CompletableFuture<Void>> shardWrites = new ArrayList<>();
+        byShard.forEach((shard, shardPlayers) -> shardWrites.add(submitWrite(shard, () -> {
+            shardPlayers.forEach((playerUUID, playerName) -> shard.sessionLedger.open(playerUUID, playerName, joinTime, joinedAt));
+            plugin.debugLog("Opened " + shardPlayers.size() + " sessions at " + joinTime);
+        })));
+        return CompletableFuture.allOf(shardWrites.toArray(new CompletableFuture[0]));
+    }
 
-                        if (sessionTime > 0) {
-                            addPlaySession(playerUUID, sessionTime);
-                        }
-                        updateJoinTime(playerUUID, Bukkit.getOfflinePlayer(playerUUID).getName(), System.currentTimeMillis());
-                    }
+    /**
+     * Closes a ledger session, crediting its uncheckpointed time and removing the session row
+     * atomically, as part of the next group commit. If that commit fails, the ended session is
+     * kept and finished by the next checkpoint.
+     */
+    public CompletableFuture<Void> closeSessionAsync(UUID playerUUID) {
+        // Read here rather than on the shard's thread, so time spent queued is not credited.
+        long now = clock.monotonicMillis();
+        WriteShard shard = shardFor(playerUUID);
+        SessionLedger.Entry[] closed = new SessionLedger.Entry[1];
+        StaffSession[] logged = new StaffSession[1];
+        CompletableFuture<Void> close = submitWrite(shard, () -> {
+            SessionLedger.Entry entry = shard.sessionLedger.close(playerUUID);
+            closed[0] = entry;
 
-                    if (plugin.getConfig().getBoolean("debug", false)) {
-                        plugin.getLogger().info("[DEBUG] Batch playtime update completed.");
-                    }
-                } catch (SQLException e) {
-                    plugin.getLogger().severe("Failed to execute batch playtime update!");
-                    e.printStackTrace();
+            if (entry != null) {
+                entry.end(now);
+                if (entry.pendingTime(now) > 0) {
+                    PreparedStatement creditStmt = shard.statements.prepare(creditPlaytimeQuery);
+                    bindPlaytimeCredit(creditStmt, entry, now);
+                    creditStmt.executeUpdate();
                 }
-            }).exceptionally(ex -> {
-                plugin.getLogger().severe("Batch DB task failed: " + ex.getMessage());
-                return null;
-            });
-        }, SESSION_UPDATE_INTERVAL_TICKS, SESSION_UPDATE_INTERVAL_TICKS);
-    }
 
-    public void cleanupStaleSessions() {
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            runDbAsync(() -> {
-                String query = "SELECT player_uuid FROM staff_sessions";
-                try (PreparedStatement stmt = connection.prepareStatement(query);
-                     ResultSet rs = stmt.executeQuery()) {
+                PreparedStatement activityStmt = shard.statements.prepare(recordActivityQuery);
+                batchSessionActivity(activityStmt, entry, now);
+                activityStmt.executeBatch();
+            }
 
-                    while (rs.next()) {
-                        UUID playerUUID = UUID.fromString(rs.getString("player_uuid"));
-                        if (Bukkit.getPlayer(playerUUID) == null) {
-                            String deleteQuery = "DELETE FROM staff_sessions WHERE player_uuid = ?";
-                            try (PreparedStatement deleteStmt = connection.prepareStatement(deleteQuery)) {
-                                deleteStmt.setString(1, playerUUID.toString());
-                                deleteStmt.executeUpdate();
-                            }
+            PreparedStatement deleteStmt = shard.statements.prepare(DELETE_SESSION_QUERY);
+            deleteStmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+            deleteStmt.executeUpdate();
 
-                            if (plugin.getConfig().getBoolean("debug", false)) {
-                                plugin.getLogger().warning("[DEBUG] Removed stale session for " + playerUUID +
-                                        " without adding offline time after restart.");
-                            }
-                        }
-                    }
-                } catch (SQLException e) {
-                    plugin.getLogger().severe("Failed to clean up stale sessions!");
-                    e.printStackTrace();
-                }
-            }).exceptionally(ex -> {
-                plugin.getLogger().severe("Stale-session cleanup DB task failed: " + ex.getMessage());
-                return null;
-            });
-        });
+            if (entry != null) {
+                logged[0] = new StaffSession(playerUUID, entry.getSessionStart(), entry.wallTime(entry.accruedUntil(now)));
+                shard.pendingSessionLog.add(logged[0]);
+                plugin.debugLog("Closed session for " + entry.getPlayerName() + " (" + playerUUID + ") with "
+                        + entry.pendingTime(now) + "ms pending.");
+            }
+        }, () -> {
+            if (logged[0] != null) {
+                shard.pendingSessionLog.remove(logged[0]);
+            }
+            if (closed[0] != null) {
+                shard.sessionLedger.retryClose(closed[0]);
+            }
+        });
+
+        close.whenComplete((unused, throwable) -> totalsCache.invalidate(playerUUID));
+        close.exceptionally(ex -> {
+            plugin.getLogger().severe("Failed to close session for " + playerUUID + "!");
+            ex.printStackTrace();
+            return null;
+        });
+        return close;
     }
 
-    public void closeConnection() {
+    private void bindPlaytimeCredit(PreparedStatement stmt, SessionLedger.Entry entry, long now) throws SQLException {
+        stmt.setBytes(1, UuidBytes.toBytes(entry.getPlayerUUID()));
+        stmt.setString(2, entry.getPlayerName());
+        stmt.setLong(3, entry.pendingActiveTime(now));
+        stmt.setLong(4, entry.pendingIdleTime(now));
+    }
+
+    /**
+     * Marks a staff member's open session as idle or active from now on. Idle time is credited
+     * to idle_time instead of total_time by the following checkpoints.
+     */
+    public void setSessionIdle(UUID playerUUID, boolean idle) {
+        // Read here rather than on the shard's thread, so time spent queued is still counted.
+        long now = clock.monotonicMillis();
+        WriteShard shard = shardFor(playerUUID);
+        submitWrite(shard, () -> {
+            SessionLedger.Entry entry = shard.sessionLedger.get(playerUUID);
+            if (entry != null) {
+                entry.setIdle(idle, now);
+            }
+        }).exceptionally(ex -> {
+            plugin.getLogger().severe("Failed to schedule the idle state change for " + playerUUID + ": " + ex.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Closes every open session at the same instant, for shutdown. Queued writes are committed
+     * first; then each shard credits all its sessions, removes their staff_sessions rows and logs
+     * them in a single transaction.
+     *
+     * @return how many sessions were closed
+     */
+    public CompletableFuture<Integer> closeAllSessionsAsync() {
+        long now = clock.monotonicMillis();
+        AtomicInteger closed = new AtomicInteger();
+        return runOnEveryShard(LaneExecutor.Lane.WRITE, shard -> {
+            writes.drain(shard);
+            closed.addAndGet(closeAllSessions(shard, now));
+        }).thenApply(unused -> closed.get());
+    }
+
+    private int closeAllSessions(WriteShard shard, long now) {
+        List<SessionLedger.Entry> open = new ArrayList<>(shard.sessionLedger.openEntries());
+        open.addAll(shard.sessionLedger.failedCloses());
+        if (open.isEmpty()) {
+            return 0;
+        }
+
+        List<StaffSession> finished = new ArrayList<>(shard.pendingSessionLog);
+        for (SessionLedger.Entry entry : open) {
+            entry.end(now);
+            finished.add(new StaffSession(entry.getPlayerUUID(), entry.getSessionStart(), entry.wallTime(entry.accruedUntil(now))));
+        }
+
         try {
-            waitForPendingVoteWritesAsync().join();
-        } catch (Exception ignored) {
+            shard.inTransaction(() -> {
+                batchEndedSessions(shard, open, now, false);
+                writeSessionLog(shard.statements, finished);
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to close " + open.size() + " open sessions!");
+            e.printStackTrace();
+            return 0;
+        }
+
+        for (SessionLedger.Entry entry : open) {
+            totalsCache.invalidate(entry.getPlayerUUID());
+        }
+        shard.sessionLedger.clear();
+        shard.pendingSessionLog.clear();
+        return open.size();
+    }
+
+    /**
+     * Credits the remaining time of ended sessions and removes their session rows. Must run
+     * inside a transaction on the shard's thread.
+     *
+     * @param keepReopened leave the row alone when the player already has a new session open,
+     *                     since the row now belongs to that one
+     */
+    private void batchEndedSessions(WriteShard shard, List<SessionLedger.Entry> ended, long now, boolean keepReopened) throws SQLException {
+        PreparedStatement creditStmt = shard.statements.prepare(creditPlaytimeQuery);
+        PreparedStatement activityStmt = shard.statements.prepare(recordActivityQuery);
+        PreparedStatement deleteStmt = shard.statements.prepare(DELETE_SESSION_QUERY);
+        for (SessionLedger.Entry entry : ended) {
+            if (entry.pendingTime(now) > 0) {
+                bindPlaytimeCredit(creditStmt, entry, now);
+                creditStmt.addBatch();
+            }
+            batchSessionActivity(activityStmt, entry, now);
+
+            if (!keepReopened || !shard.sessionLedger.isOpen(entry.getPlayerUUID())) {
+                deleteStmt.setBytes(1, UuidBytes.toBytes(entry.getPlayerUUID()));
+                deleteStmt.addBatch();
+            }
+        }
+
+        creditStmt.executeBatch();
+        activityStmt.executeBatch();
+        deleteStmt.executeBatch();
+    }
+
+    /**
+     * Finishes the sessions whose close was rolled back: their remaining time is credited, their
+     * rows removed and their log rows written, in one transaction. Must run on the shard's thread.
+     */
+    private void retryFailedCloses(WriteShard shard) {
+        List<SessionLedger.Entry> failed = shard.sessionLedger.failedCloses();
+        if (failed.isEmpty()) {
+            return;
+        }
+
+        long now = clock.monotonicMillis();
+        List<StaffSession> finished = new ArrayList<>();
+        for (SessionLedger.Entry entry : failed) {
+            finished.add(new StaffSession(entry.getPlayerUUID(), entry.getSessionStart(), entry.wallTime(entry.accruedUntil(now))));
         }
 
-        dbExecutor.shutdown();
         try {
-            if (!dbExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
-                dbExecutor.shutdownNow();
+            shard.inTransaction(() -> {
+                batchEndedSessions(shard, failed, now, true);
+                writeSessionLog(shard.statements, finished);
+            });
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to finish " + failed.size() + " closed sessions!");
+            e.printStackTrace();
+            return;
+        }
+
+        for (SessionLedger.Entry entry : failed) {
+            totalsCache.invalidate(entry.getPlayerUUID());
+        }
+        plugin.debugLog("Finished " + failed.size() + " sessions whose close had failed.");
+        failed.clear();
+    }
+
+    /**
+     * Writes every dirty ledger entry in one transaction: the accrued playtime goes into
+     * staff_time and the session row is moved forward to the checkpoint instant. Entries are
+     * only marked clean once the transaction commits, so a failed checkpoint is retried whole.
+     * Must run on the shard's thread.
+     */
+    private void checkpointSessions(WriteShard shard) {
+        flushSessionLog(shard);
+        retryFailedCloses(shard);
+
+        long now = clock.monotonicMillis();
+        List<SessionLedger.Entry> dirty = shard.sessionLedger.dirtyEntries(now);
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        totalsCache.beginWrite();
+        try {
+            shard.inTransaction(() -> {
+                PreparedStatement creditStmt = shard.statements.prepare(creditPlaytimeQuery);
+                PreparedStatement sessionStmt = shard.statements.prepare(upsertSessionQuery);
+                PreparedStatement activityStmt = shard.statements.prepare(recordActivityQuery);
+                for (SessionLedger.Entry entry : dirty) {
+                    if (entry.pendingTime(now) > 0) {
+                        bindPlaytimeCredit(creditStmt, entry, now);
+                        creditStmt.addBatch();
+                    }
+                    batchSessionActivity(activityStmt, entry, now);
+
+                    sessionStmt.setBytes(1, UuidBytes.toBytes(entry.getPlayerUUID()));
+                    sessionStmt.setString(2, entry.getPlayerName());
+                    sessionStmt.setLong(3, entry.wallTime(now));
+                    sessionStmt.setLong(4, entry.getSessionStart());
+                    sessionStmt.setLong(5, entry.wallTime(now));
+                    sessionStmt.addBatch();
+                }
+
+                creditStmt.executeBatch();
+                sessionStmt.executeBatch();
+                activityStmt.executeBatch();
+            });
+
+            for (SessionLedger.Entry entry : dirty) {
+                totalsCache.addTime(entry.getPlayerUUID(), entry.pendingActiveTime(now));
+                entry.markCheckpointed(now);
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            dbExecutor.shutdownNow();
+
+            plugin.debugLog("Checkpointed " + dirty.size() + " of " + shard.sessionLedger.size() + " open sessions"
+                    + (shards.length > 1 ? " on shard " + shard.index + "." : "."));
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to checkpoint " + dirty.size() + " open sessions!");
+            e.printStackTrace();
+        } finally {
+            totalsCache.endWrite();
         }
+    }
 
+    /**
+     * Appends the finished sessions queued since the last flush to staff_session_log using
+     * multi-row inserts, all in one transaction. Rows stay queued if the write fails. Called
+     * with every checkpoint, so a crash loses at most one checkpoint interval of log rows; the
+     * playtime itself is already credited by then. Must run on the shard's thread.
+     */
+    private void flushSessionLog(WriteShard shard) {
+        List<StaffSession> pendingSessionLog = shard.pendingSessionLog;
+        if (pendingSessionLog.isEmpty()) {
+            return;
+        }
+
+        int rows = pendingSessionLog.size();
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                plugin.getLogger().info("Database connection closed.");
+            shard.inTransaction(() -> writeSessionLog(shard.statements, pendingSessionLog));
+
+            pendingSessionLog.clear();
+            plugin.debugLog("Logged " + rows + " finished sessions.");
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to write " + rows + " sessions to the session log!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Inserts the sessions into staff_session_log. Must run inside a transaction.
+     */
+    private void writeSessionLog(StatementCache statements, List<StaffSession> sessions) throws SQLException {
+        int rows = sessions.size();
+        int fullChunks = rows / SESSION_LOG_ROWS_PER_INSERT;
+        if (fullChunks > 0) {
+            PreparedStatement multiRowStmt = statements.prepare(SESSION_LOG_MULTI_ROW_QUERY);
+            for (int chunk = 0; chunk < fullChunks; chunk++) {
+                int parameter = 1;
+                for (StaffSession session : sessions.subList(chunk * SESSION_LOG_ROWS_PER_INSERT, (chunk + 1) * SESSION_LOG_ROWS_PER_INSERT)) {
+                    parameter = bindSessionLogRow(multiRowStmt, parameter, session);
+                }
+                multiRowStmt.addBatch();
+            }
+            multiRowStmt.executeBatch();
+        }
+
+        // The remainder goes through a single-row statement so only two shapes are ever cached.
+        List<StaffSession> remainder = sessions.subList(fullChunks * SESSION_LOG_ROWS_PER_INSERT, rows);
+        if (!remainder.isEmpty()) {
+            PreparedStatement singleRowStmt = statements.prepare(SESSION_LOG_QUERY);
+            for (StaffSession session : remainder) {
+                bindSessionLogRow(singleRowStmt, 1, session);
+                singleRowStmt.addBatch();
+            }
+            singleRowStmt.executeBatch();
+        }
+    }
+
+    private int bindSessionLogRow(PreparedStatement stmt, int parameter, StaffSession session) throws SQLException {
+        stmt.setBytes(parameter++, UuidBytes.toBytes(session.playerUUID()));
+        stmt.setLong(parameter++, session.start());
+        stmt.setLong(parameter++, session.end());
+        stmt.setLong(parameter++, session.duration());
+        return parameter;
+    }
+
+    /**
+     * Finished sessions of one staff member that started in [from, to), oldest first. Sessions
+     * closed since the last checkpoint are not logged yet, and sessions older than the session
+     * log retention only remain as daily totals in staff_session_daily.
+     */
+    public CompletableFuture<List<StaffSession>> getSessionLogAsync(UUID playerUUID, long from, long to) {
+        return supplyReadAsync(LaneExecutor.Lane.INTERACTIVE, statements -> {
+            String query = "SELECT session_start, session_end FROM staff_session_log " +
+                    "WHERE player_uuid = ? AND session_start >= ? AND session_start < ? ORDER BY session_start";
+
+            List<StaffSession> sessions = new ArrayList<>();
+            try {
+                PreparedStatement stmt = statements.prepare(query);
+                stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+                stmt.setLong(2, from);
+                stmt.setLong(3, to);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        sessions.add(new StaffSession(playerUUID, rs.getLong("session_start"), rs.getLong("session_end")));
+                    }
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to read the session log for player " + playerUUID + "!");
+                e.printStackTrace();
             }
+            return sessions;
+        });
+    }
+
+    /**
+     * Moves last_seen forward on every open session row, along with how much of the time since the
+     * last checkpoint was idle, so a crash only loses the time since the last heartbeat instead of
+     * since the last checkpoint. Sessions without a row yet are written
+     * by a full checkpoint instead. Must run on the shard's thread.
+     */
+    private void heartbeatSessions(WriteShard shard) {
+        if (shard.sessionLedger.size() == 0) {
+            return;
+        }
+
+        for (SessionLedger.Entry entry : shard.sessionLedger.openEntries()) {
+            if (!entry.isPersisted()) {
+                checkpointSessions(shard);
+                return;
+            }
+        }
+
+        long now = clock.monotonicMillis();
+        try {
+            shard.inTransaction(() -> {
+                PreparedStatement stmt = shard.statements.prepare("UPDATE staff_sessions SET last_seen = ?, idle_time = ? WHERE player_uuid = ?");
+                for (SessionLedger.Entry entry : shard.sessionLedger.openEntries()) {
+                    stmt.setLong(1, entry.wallTime(now));
+                    stmt.setLong(2, entry.pendingIdleTime(now));
+                    stmt.setBytes(3, UuidBytes.toBytes(entry.getPlayerUUID()));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            });
         } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to close the database connection!");
+            plugin.getLogger().severe("Failed to record the session heartbeat!");
             e.printStackTrace();
         }
     }
+
+    /**
+     * Logs a vote. The Votifier timestamp is stored as epoch millis when it is a number, otherwise
+     * the time the vote arrived is used; the service name is stored once in vote_services. The vote
+     * counts towards the activity bucket of its own timestamp, so a delayed Votifier delivery lands
+     * on the day the vote was cast.
+     */
+    public void addVote(UUID playerUUID, String playerName, String serviceName, String timestamp) {
+        long voteTime = VoteTimestamps.parse(timestamp, System.currentTimeMillis());
+        WriteShard shard = shardFor(playerUUID);
+        totalsCache.beginWrite();
+        CompletableFuture<Void> voteWrite = submitWrite(shard, () -> {
+            PreparedStatement serviceStmt = shard.statements.prepare(registerServiceQuery);
+            serviceStmt.setString(1, serviceName);
+            serviceStmt.executeUpdate();
+
+            PreparedStatement stmt = shard.statements.prepare(INSERT_VOTE_QUERY);
+            stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+            stmt.setString(2, playerName);
+            stmt.setLong(3, voteTime);
+            stmt.setString(4, serviceName);
+            stmt.executeUpdate();
+
+            PreparedStatement countStmt = shard.statements.prepare(incrementVoteCountQuery);
+            countStmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+            countStmt.executeUpdate();
+
+            PreparedStatement activityStmt = shard.statements.prepare(recordActivityQuery);
+            batchActivity(activityStmt, playerUUID, toBucket(voteTime), 0L, 1, 0);
+            activityStmt.executeBatch();
+        });
+        pendingVoteWrites.add(voteWrite);
+        voteWrite.whenComplete((unused, throwable) -> {
+            pendingVoteWrites.remove(voteWrite);
+            if (throwable != null) {
+                totalsCache.endWrite();
+                plugin.getLogger().severe("Failed to log vote for player " + playerName + "!");
+                throwable.printStackTrace();
+                return;
+            }
+            totalsCache.addVote(playerUUID);
+            totalsCache.endWrite();
+        });
+    }
+
+    public CompletableFuture<Void> waitForPendingVoteWritesAsync() {
+        return CompletableFuture.runAsync(() -> {
+            List<CompletableFuture<Void>> snapshot = new ArrayList<>(pendingVoteWrites);
+            if (!snapshot.isEmpty()) {
+                CompletableFuture.allOf(snapshot.toArray(new CompletableFuture[0])).join();
+            }
+        });
+    }
+
+    /**
+     * Checkpoints every open session so the database reflects playtime up to now. Online staff
+     * missing from the ledger start being tracked from this instant.
+     */
+    public CompletableFuture<Void> flushActiveSessionsAsync() {
+        return runOnEveryShard(LaneExecutor.Lane.WRITE, shard -> {
+            long joinTime = clock.wallMillis();
+            long joinedAt = clock.monotonicMillis();
+
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                UUID playerUUID = player.getUniqueId();
+                if (player.hasPermission("coldtracker.tracktime") && shardFor(playerUUID) == shard && !shard.sessionLedger.isOpen(playerUUID)) {
+                    shard.sessionLedger.open(playerUUID, player.getName(), joinTime, joinedAt);
+                }
+            }
+
+            checkpointSessions(shard);
+        });
+    }
+
+    /**
+     * Ends the current tracking period. Open sessions are checkpointed first so the period gets
+     * every millisecond up to now, then the running totals are swapped into archive tables for
+     * the period and replaced with empty ones, see {@link PeriodRollover}. staff_activity and the
+     * session log are history keyed by time and stay where they are.
+     *
+     * @return the id of the archived period
+     */
+    public CompletableFuture<Integer> rolloverPeriodAsync() {
+        CompletableFuture<Void> checkpointed = runOnEveryShard(LaneExecutor.Lane.BULK, shard -> {
+            writes.drain(shard);
+            checkpointSessions(shard);
+        });
+        return checkpointed.thenCompose(unused -> supplyDbAsync(LaneExecutor.Lane.BULK, () -> {
+            long now = System.currentTimeMillis();
+            int period;
+            try {
+                period = new PeriodRollover(primary.connection, dialect, plugin.getLogger()).run(now);
+            } catch (SQLException e) {
+                // The rename may have gone through on MySQL; the next rollover or restart settles it.
+                totalsCache.clear();
+                plugin.getLogger().severe("Failed to archive the current tracking period!");
+                e.printStackTrace();
+                throw new CompletionException(e);
+            }
+
+            totalsCache.resetPeriod(now);
+            plugin.debugLog("Archived tracking period " + period + " in " + (System.currentTimeMillis() - now) + "ms and started a new one.");
+            return period;
+        }));
+    }
+
+    /**
+     * Every archived period, newest first.
+     */
+    public CompletableFuture<List<StaffPeriod>> getPeriodsAsync() {
+        return supplyReadAsync(LaneExecutor.Lane.INTERACTIVE, statements -> {
+            try {
+                return queryPeriods(statements);
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to read archived periods!");
+                e.printStackTrace();
+            }
+            return new ArrayList<>();
+        });
+    }
+
+    static List<StaffPeriod> queryPeriods(StatementCache statements) throws SQLException {
+        List<StaffPeriod> periods = new ArrayList<>();
+        try (ResultSet rs = statements.prepare("SELECT id, started_at, ended_at FROM staff_periods WHERE archived = 1 ORDER BY id DESC").executeQuery()) {
+            while (rs.next()) {
+                periods.add(new StaffPeriod(rs.getInt("id"), rs.getLong("started_at"), rs.getLong("ended_at")));
+            }
+        }
+        return periods;
+    }
+
+    /**
+     * Time and vote totals of every staff member in an archived period, see
+     * {@link #getPeriodsAsync()}. Completes with null if there is no such period.
+     */
+    public CompletableFuture<Map<UUID, StaffTotals>> getPeriodTotalsAsync(int period) {
+        return supplyReadAsync(LaneExecutor.Lane.BULK, statements -> {
+            try {
+                return queryPeriodTotals(statements, period);
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to read the totals of archived period " + period + "!");
+                e.printStackTrace();
+            }
+            return new HashMap<>();
+        });
+    }
+
+    /**
+     * Only periods flagged archived are read, so a rollover still in progress is never half seen.
+     */
+    static Map<UUID, StaffTotals> queryPeriodTotals(StatementCache statements, int period) throws SQLException {
+        PreparedStatement periodStmt = statements.prepare("SELECT 1 FROM staff_periods WHERE id = ? AND archived = 1");
+        periodStmt.setInt(1, period);
+        try (ResultSet rs = periodStmt.executeQuery()) {
+            if (!rs.next()) {
+                return null;
+            }
+        }
+
+        String suffix = PeriodRollover.suffix(period);
+        String query = "SELECT player_uuid, SUM(total_time) AS total_time, SUM(vote_count) AS vote_count FROM (" +
+                "SELECT player_uuid, total_time, 0 AS vote_count FROM staff_time" + suffix + " " +
+                "UNION ALL " +
+                "SELECT player_uuid, 0 AS total_time, vote_count FROM staff_vote_counts" + suffix +
+                ") AS totals GROUP BY player_uuid";
+
+        Map<UUID, StaffTotals> totals = new HashMap<>();
+        try (ResultSet rs = statements.prepare(query).executeQuery()) {
+            readTotalsRows(rs, totals);
+        }
+        return totals;
+    }
+
+    /**
+     * Compacts vote and session history older than the configured retention into daily rollups
+     * and reclaims the space. Runs as a series of small transactions on the lowest lane, and steps
+     * aside whenever writes are waiting, so tracking is never held up by it.
+     */
+    public CompletableFuture<RetentionRun> runRetentionAsync() {
+        long now = System.currentTimeMillis();
+        int voteDays = SettingKey.RETENTION_VOTE_DAYS.get();
+        int sessionDays = SettingKey.RETENTION_SESSION_LOG_DAYS.get();
+        long voteCutoff = voteDays > 0 ? now - TimeUnit.DAYS.toMillis(voteDays) : 0L;
+        long sessionCutoff = sessionDays > 0 ? now - TimeUnit.DAYS.toMillis(sessionDays) : 0L;
+        int batchSize = Math.max(1, SettingKey.RETENTION_BATCH_SIZE.get());
+
+        return supplyDbAsync(LaneExecutor.Lane.BULK, () -> {
+            List<String> voteTables = new ArrayList<>();
+            voteTables.add("staff_votes");
+            try (ResultSet rs = primary.statements.prepare("SELECT id FROM staff_periods WHERE archived = 1 ORDER BY id").executeQuery()) {
+                while (rs.next()) {
+                    voteTables.add("staff_votes" + PeriodRollover.suffix(rs.getInt("id")));
+                }
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+            return new RetentionJob(dialect, voteTables, voteCutoff, sessionCutoff, batchSize);
+        }).thenCompose(job -> {
+            CompletableFuture<RetentionRun> result = new CompletableFuture<>();
+            scheduleRetentionStep(job, result, 0L);
+            return result;
+        });
+    }
+
+    private void scheduleRetentionStep(RetentionJob job, CompletableFuture<RetentionRun> result, long delayMillis) {
+        Runnable step = () -> {
+            try {
+                if (getWriteQueueDepth() > 0) {
+                    scheduleRetentionStep(job, result, RETENTION_BACKOFF_MILLIS);
+                    return;
+                }
+
+                ensureWriterConnection(primary);
+                if (job.step(primary)) {
+                    scheduleRetentionStep(job, result, 0L);
+                } else {
+                    result.complete(job.getResult());
+                }
+            } catch (SQLException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        };
+
+        try {
+            if (delayMillis > 0) {
+                primary.executor.schedule(LaneExecutor.Lane.BULK, step, delayMillis);
+            } else {
+                primary.executor.execute(LaneExecutor.Lane.BULK, step);
+            }
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void startBatchUpdater() {
+        long intervalTicks = Math.max(1, SettingKey.SESSION_CHECKPOINT_INTERVAL.get()) * 20L;
+
+        Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            runOnEveryShard(LaneExecutor.Lane.WRITE, this::checkpointSessions).exceptionally(ex -> {
+                plugin.getLogger().severe("Session checkpoint DB task failed: " + ex.getMessage());
+                return null;
+            });
+        }, intervalTicks, intervalTicks);
+
+        int heartbeatSeconds = SettingKey.SESSION_HEARTBEAT_INTERVAL.get();
+        if (heartbeatSeconds > 0) {
+            long heartbeatTicks = heartbeatSeconds * 20L;
+            Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+                runOnEveryShard(LaneExecutor.Lane.WRITE, this::heartbeatSessions).exceptionally(ex -> {
+                    plugin.getLogger().severe("Session heartbeat DB task failed: " + ex.getMessage());
+                    return null;
+                });
+            }, heartbeatTicks, heartbeatTicks);
+        }
+
+        int snapshotSeconds = backend.getSnapshotIntervalSeconds();
+        if (snapshotSeconds > 0) {
+            long snapshotTicks = snapshotSeconds * 20L;
+            Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+                runDbAsync(LaneExecutor.Lane.BULK, this::snapshotDatabase).exceptionally(ex -> {
+                    plugin.getLogger().severe("Database snapshot DB task failed: " + ex.getMessage());
+                    return null;
+                });
+            }, snapshotTicks, snapshotTicks);
+        }
+    }
+
+    /**
+     * Saves the live database through the backend, after committing queued writes so the
+     * snapshot includes them. A no-op for backends that are durable on their own.
+     */
+    private void snapshotDatabase() {
+        if (primary.connection == null) {
+            return;
+        }
+
+        writes.drain(primary);
+        long start = System.currentTimeMillis();
+        try {
+            if (backend.snapshot(primary.connection)) {
+                plugin.debugLog("Saved a database snapshot in " + (System.currentTimeMillis() - start) + "ms.");
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Failed to save a database snapshot!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Recovers the session rows left behind by a crash or kill. Each one is credited with the time
+     * between its last checkpoint and its last heartbeat, split into playtime and idle time as the
+     * heartbeat recorded it, and the rows are removed, all in one transaction. Time after the last
+     * heartbeat is unknown and stays uncredited. Must run on the main thread, which knows who is
+     * online.
+     */
+    public void cleanupStaleSessions() {
+        Set<UUID> onlinePlayers = new HashSet<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            onlinePlayers.add(player.getUniqueId());
+        }
+
+        runDbAsync(LaneExecutor.Lane.WRITE, () -> {
+            StatementCache statements = primary.statements;
+            String query = "SELECT player_uuid, player_name, join_time, session_start, last_seen, idle_time FROM staff_sessions";
+            List<StaleSession> staleSessions = new ArrayList<>();
+            try (ResultSet rs = statements.prepare(query).executeQuery()) {
+                while (rs.next()) {
+                    UUID playerUUID = UuidBytes.fromBytes(rs.getBytes("player_uuid"));
+                    if (!onlinePlayers.contains(playerUUID)) {
+                        staleSessions.add(new StaleSession(playerUUID, rs.getString("player_name"), rs.getLong("join_time"),
+                                rs.getLong("session_start"), rs.getLong("last_seen"), rs.getLong("idle_time")));
+                    }
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to read stale sessions!");
+                e.printStackTrace();
+                return;
+            }
+
+            if (staleSessions.isEmpty()) {
+                return;
+            }
+
+            totalsCache.beginWrite();
+            try {
+                primary.inTransaction(() -> {
+                    PreparedStatement creditStmt = statements.prepare(creditPlaytimeQuery);
+                    PreparedStatement activityStmt = statements.prepare(recordActivityQuery);
+                    PreparedStatement deleteStmt = statements.prepare(DELETE_SESSION_QUERY);
+                    for (StaleSession session : staleSessions) {
+                        if (session.recoverableTime() > 0) {
+                            creditStmt.setBytes(1, UuidBytes.toBytes(session.playerUUID()));
+                            creditStmt.setString(2, session.playerName());
+                            creditStmt.setLong(3, session.activeTime());
+                            creditStmt.setLong(4, session.idleTime());
+                            creditStmt.addBatch();
+                            if (session.activeTime() > 0) {
+                                batchPlaytimeActivity(activityStmt, session.playerUUID(), session.joinTime(), session.lastSeen(), session.activeTime());
+                            }
+                        }
+
+                        deleteStmt.setBytes(1, UuidBytes.toBytes(session.playerUUID()));
+                        deleteStmt.addBatch();
+                    }
+
+                    creditStmt.executeBatch();
+                    activityStmt.executeBatch();
+                    deleteStmt.executeBatch();
+                });
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to recover " + staleSessions.size() + " stale sessions!");
+                e.printStackTrace();
+                return;
+            } finally {
+                totalsCache.endWrite();
+            }
+
+            long recoveredTime = 0L;
+            for (StaleSession session : staleSessions) {
+                totalsCache.invalidate(session.playerUUID());
+                recoveredTime += session.activeTime();
+                if (session.sessionStart() > 0 && session.lastSeen() > session.sessionStart()) {
+                    primary.pendingSessionLog.add(new StaffSession(session.playerUUID(), session.sessionStart(), session.lastSeen()));
+                }
+            }
+            flushSessionLog(primary);
+
+            plugin.debugLog("Recovered " + staleSessions.size() + " stale sessions, crediting " + recoveredTime + "ms of playtime up to their last heartbeat.");
+        }).exceptionally(ex -> {
+            plugin.getLogger().severe("Stale-session cleanup DB task failed: " + ex.getMessage());
+            return null;
+        });
+    }
+
+    public void closeConnection() {
+        try {
+            // Nothing was ever written to a database that failed to initialize
+            if (!unavailable) {
+                runOnEveryShard(LaneExecutor.Lane.WRITE, shard -> {
+                    writes.drain(shard);
+                    checkpointSessions(shard);
+                }).thenCompose(unused -> runDbAsync(LaneExecutor.Lane.WRITE, this::snapshotDatabase)).join();
+            }
+        } catch (Exception e) {
+            plugin.getLogger().severe("Failed to checkpoint open sessions before shutdown: " + e.getMessage());
+        }
+
+        try {
+            waitForPendingVoteWritesAsync().join();
+        } catch (Exception ignored) {
+        }
+
+        for (WriteShard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (WriteShard shard : shards) {
+            try {
+                if (!shard.executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    shard.executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                shard.executor.shutdownNow();
+            }
+        }
+
+        if (readerPool != null) {
+            readerPool.close();
+        }
+
+        if (primary.statements != null) {
+            plugin.debugLog("Statement cache: " + getStatementCacheHits() + " hits, " + getStatementCacheMisses() + " misses.");
+        }
+
+        boolean closed = false;
+        for (WriteShard shard : shards) {
+            if (shard.statements != null) {
+                shard.statements.close();
+            }
+
+            try {
+                if (shard.connection != null && !shard.connection.isClosed()) {
+                    shard.connection.close();
+                    closed = true;
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to close the database connection!");
+                e.printStackTrace();
+            }
+        }
+        if (closed) {
+            plugin.getLogger().info("Database connection closed.");
+        }
+    }
+
+    public String getBackendName() {
+        return backend.getName();
+    }
+
+    public boolean supportsBackup() {
+        return backend.supportsBackup();
+    }
+
+    /**
+     * @return writes queued for the next group commit
+     */
+    public int getWriteQueueDepth() {
+        return writes.getQueueDepth();
+    }
+
+    /**
+     * @return writes refused because the write queue was full
+     */
+    public long getRejectedWrites() {
+        return writes.getRejectedWrites();
+    }
+
+    /**
+     * Queue depth and wait times of each priority lane on the DB thread, added up across write
+     * shards when there is more than one.
+     */
+    public List<LaneStats> getWriterLaneStats() {
+        if (shards.length == 1) {
+            return primary.executor.getStats();
+        }
+
+        List<LaneStats> merged = new ArrayList<>();
+        for (WriteShard shard : shards) {
+            List<LaneStats> stats = shard.executor.getStats();
+            for (int i = 0; i < stats.size(); i++) {
+                merged.add(i < merged.size() ? merged.remove(i).merge(stats.get(i)) : stats.get(i));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Queue depth and wait times of each priority lane on the reader pool, or an empty list when
+     * reads share the DB thread.
+     */
+    public List<LaneStats> getReaderLaneStats() {
+        ReaderPool pool = readerPool;
+        return pool != null ? pool.getLaneStats() : Collections.emptyList();
+    }
+
+    public long getCommittedWriteBatches() {
+        return writes.getCommittedWriteBatches();
+    }
+
+    public long getCommittedWrites() {
+        return writes.getCommittedWrites();
+    }
+
+    public int getLastWriteBatchSize() {
+        return writes.getLastWriteBatchSize();
+    }
+
+    public int getMaxWriteBatchSize() {
+        return writes.getMaxWriteBatchSize();
+    }
+
+    /**
+     * Statement cache hits across the writer and all reader connections.
+     */
+    public long getStatementCacheHits() {
+        long hits = 0L;
+        for (WriteShard shard : shards) {
+            hits += shard.statements != null ? shard.statements.getHits() : 0L;
+        }
+        return readerPool != null ? hits + readerPool.getStatementCacheHits() : hits;
+    }
+
+    /**
+     * Statement cache misses (i.e. statement compilations) across the writer and all reader connections.
+     */
+    public long getStatementCacheMisses() {
+        long misses = 0L;
+        for (WriteShard shard : shards) {
+            misses += shard.statements != null ? shard.statements.getMisses() : 0L;
+        }
+        return readerPool != null ? misses + readerPool.getStatementCacheMisses() : misses;
+    }
+
+    /**
+     * A staff_sessions row whose player is offline at startup.
+     */
+    private record StaleSession(UUID playerUUID, String playerName, long joinTime, long sessionStart, long lastSeen, long recordedIdleTime) {
+
+        long recoverableTime() {
+            return Math.max(0L, lastSeen - joinTime);
+        }
+
+        /**
+         * Part of the recoverable time the player spent idle, credited to idle_time as a
+         * checkpoint would.
+         */
+        long idleTime() {
+            return Math.min(Math.max(0L, recordedIdleTime), recoverableTime());
+        }
+
+        long activeTime() {
+            return recoverableTime() - idleTime();
+        }
+    }
 }
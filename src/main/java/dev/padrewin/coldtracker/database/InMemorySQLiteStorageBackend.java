@@ -0,0 +1,134 @@
+package dev.padrewin.coldtracker.database;
+
+import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.setting.SettingKey;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Keeps the whole database in memory and only touches coldtracker.db through SQLite's online
+ * backup API: the file is restored once on connect and rewritten on every snapshot. Anything
+ * committed after the last snapshot is lost if the server crashes, so the snapshot interval is
+ * the durability window.
+ */
+public class InMemorySQLiteStorageBackend implements StorageBackend {
+
+    private final ColdTracker plugin;
+
+    public InMemorySQLiteStorageBackend(ColdTracker plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public String getName() {
+        return "SQLite (in-memory)";
+    }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.SQLITE;
+    }
+
+    @Override
+    public Connection openConnection() throws SQLException {
+        File dataFolder = plugin.getDataFolder();
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
+
+        Connection connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        File file = getDatabaseFile();
+        if (file.exists()) {
+            leaveWalMode(file);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.executeUpdate("restore from " + SQLiteStorageBackend.quote(file));
+            }
+            plugin.debugLog("Loaded " + file.getName() + " into memory.");
+        }
+        return connection;
+    }
+
+    /**
+     * A private in-memory database is only visible to the connection that created it, so every
+     * query runs on the writer.
+     */
+    @Override
+    public Connection openReadConnection() throws SQLException {
+        throw new SQLException("The in-memory database has no read-only connections.");
+    }
+
+    @Override
+    public int getReaderConnections() {
+        return 0;
+    }
+
+    /**
+     * Backs the database up to a temporary file and moves it over coldtracker.db, so a crash
+     * halfway through a snapshot leaves the previous one intact.
+     */
+    @Override
+    public boolean snapshot(Connection connection) throws SQLException {
+        File target = getDatabaseFile();
+        File temp = new File(target.getPath() + ".snapshot");
+        if (temp.exists() && !temp.delete()) {
+            throw new SQLException("Could not delete the leftover snapshot " + temp.getName());
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("backup to " + SQLiteStorageBackend.quote(temp));
+        }
+
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new SQLException("Could not replace " + target.getName() + " with the new snapshot", e);
+        }
+        return true;
+    }
+
+    /**
+     * Copies the last snapshot. The database manager takes a fresh one right before, and
+     * snapshots replace the file atomically, so the copy is never torn.
+     */
+    @Override
+    public boolean supportsBackup() {
+        return true;
+    }
+
+    @Override
+    public void backup(File target) throws SQLException {
+        try {
+            Files.copy(getDatabaseFile().toPath(), target.toPath());
+        } catch (IOException e) {
+            throw new SQLException("Could not copy " + getDatabaseFile().getName() + " to " + target.getName(), e);
+        }
+    }
+
+    @Override
+    public int getSnapshotIntervalSeconds() {
+        return Math.max(0, SettingKey.DATABASE_MEMORY_SNAPSHOT_INTERVAL.get());
+    }
+
+    /**
+     * A file last used in WAL mode may still have a -wal file beside it. Checkpointing it into
+     * the main file before the first snapshot keeps a stale log from being replayed over the
+     * snapshot if the server later switches back to the on-disk backend.
+     */
+    private void leaveWalMode(File file) throws SQLException {
+        try (Connection disk = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+             Statement stmt = disk.createStatement()) {
+            stmt.execute("PRAGMA journal_mode=DELETE");
+        }
+    }
+
+    private File getDatabaseFile() {
+        return new File(plugin.getDataFolder(), "coldtracker.db");
+    }
+}
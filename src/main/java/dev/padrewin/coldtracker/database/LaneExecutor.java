@@ -0,0 +1,281 @@
+package dev.padrewin.coldtracker.database;
+
+import org.bukkit.Bukkit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Fixed set of worker threads fed from one bounded queue per {@link Lane}. A worker always takes
+ * the oldest task of the highest-priority non-empty lane, so a moderator's command never waits
+ * behind a queued export, and tracking writes never wait behind a report.
+ *
+ * When a lane is full the {@link OverflowPolicy} decides what happens to new tasks. Workers
+ * submitting to their own executor are never blocked, since that could deadlock.
+ */
+final class LaneExecutor {
+
+    enum Lane {
+        INTERACTIVE,
+        WRITE,
+        BULK
+    }
+
+    enum OverflowPolicy {
+        /**
+         * Refuse the task with a {@link RejectedExecutionException}.
+         */
+        REJECT,
+        /**
+         * Make the submitting thread wait for space, up to {@link #BLOCK_TIMEOUT_MILLIS}, then refuse.
+         * The server thread never waits and is refused right away, as with {@link #REJECT}, so a
+         * stalled database cannot freeze the tick loop.
+         */
+        BLOCK;
+
+        /**
+         * Whether the calling thread may wait for space under this policy.
+         */
+        boolean mayBlockCurrentThread() {
+            return this == BLOCK && !(Bukkit.getServer() != null && Bukkit.isPrimaryThread());
+        }
+
+        static OverflowPolicy parse(String value, Logger logger) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Invalid database queue overflow policy '" + value + "', using REJECT.");
+                return REJECT;
+            }
+        }
+    }
+
+    static final long BLOCK_TIMEOUT_MILLIS = 5000L;
+
+    private static final Lane[] LANES = Lane.values();
+
+    private final String name;
+    private final Logger logger;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final List<ArrayDeque<QueuedTask>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService timer;
+    private boolean shutdown;
+
+    private final LongAdder[] executed = new LongAdder[LANES.length];
+    private final LongAdder[] rejected = new LongAdder[LANES.length];
+    private final LongAdder[] waitNanos = new LongAdder[LANES.length];
+    private final AtomicLong[] maxWaitNanos = new AtomicLong[LANES.length];
+
+    LaneExecutor(String name, int threads, int capacity, OverflowPolicy overflowPolicy, Logger logger) {
+        this.name = name;
+        this.logger = logger;
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+
+        for (int i = 0; i < LANES.length; i++) {
+            queues.add(new ArrayDeque<>());
+            executed[i] = new LongAdder();
+            rejected[i] = new LongAdder();
+            waitNanos[i] = new LongAdder();
+            maxWaitNanos[i] = new AtomicLong();
+        }
+
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name + "-Timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        for (int i = 1; i <= Math.max(1, threads); i++) {
+            Thread worker = new Thread(this::runWorker, threads > 1 ? name + "-" + i : name);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    void execute(Lane lane, Runnable task) {
+        ArrayDeque<QueuedTask> queue = queues.get(lane.ordinal());
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException(name + " has been shut down");
+            }
+
+            if (queue.size() >= capacity) {
+                boolean mayBlock = overflowPolicy.mayBlockCurrentThread() && !workers.contains(Thread.currentThread());
+                if (mayBlock) {
+                    long remaining = TimeUnit.MILLISECONDS.toNanos(BLOCK_TIMEOUT_MILLIS);
+                    while (queue.size() >= capacity && !shutdown && remaining > 0) {
+                        remaining = notFull.awaitNanos(remaining);
+                    }
+                }
+
+                if (shutdown || (queue.size() >= capacity && !workers.contains(Thread.currentThread()))) {
+                    rejected[lane.ordinal()].increment();
+                    throw new RejectedExecutionException(name + " " + lane.name().toLowerCase(Locale.ROOT) + " lane is full ("
+                            + capacity + " queued tasks)");
+                }
+            }
+
+            queue.add(new QueuedTask(task, System.nanoTime()));
+            notEmpty.signal();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected[lane.ordinal()].increment();
+            throw new RejectedExecutionException("Interrupted while waiting for space in " + name, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues the task on the lane once the delay has passed. Tasks still waiting for their delay
+     * when the executor shuts down are dropped.
+     */
+    void schedule(Lane lane, Runnable task, long delayMillis) {
+        timer.schedule(() -> {
+            try {
+                execute(lane, task);
+            } catch (RejectedExecutionException e) {
+                logger.warning("Dropped a delayed database task: " + e.getMessage());
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runWorker() {
+        while (true) {
+            QueuedTask next = null;
+            int laneIndex = -1;
+
+            lock.lock();
+            try {
+                while (true) {
+                    for (int i = 0; i < LANES.length; i++) {
+                        next = queues.get(i).poll();
+                        if (next != null) {
+                            laneIndex = i;
+                            break;
+                        }
+                    }
+
+                    if (next != null || shutdown) {
+                        break;
+                    }
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (next != null) {
+                    notFull.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (next == null) {
+                return;
+            }
+
+            long waited = System.nanoTime() - next.queuedAt();
+            executed[laneIndex].increment();
+            waitNanos[laneIndex].add(waited);
+            maxWaitNanos[laneIndex].accumulateAndGet(waited, Math::max);
+
+            try {
+                next.task().run();
+            } catch (Throwable t) {
+                logger.severe("Unhandled error in " + Thread.currentThread().getName() + "!");
+                t.printStackTrace();
+            }
+        }
+    }
+
+    List<LaneStats> getStats() {
+        List<LaneStats> stats = new ArrayList<>(LANES.length);
+        lock.lock();
+        try {
+            for (Lane lane : LANES) {
+                int i = lane.ordinal();
+                long count = executed[i].sum();
+                stats.add(new LaneStats(
+                        lane.name().toLowerCase(Locale.ROOT),
+                        queues.get(i).size(),
+                        count,
+                        rejected[i].sum(),
+                        count > 0 ? waitNanos[i].sum() / (double) count / 1_000_000.0 : 0.0,
+                        TimeUnit.NANOSECONDS.toMillis(maxWaitNanos[i].get())
+                ));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return stats;
+    }
+
+    /**
+     * Stops accepting tasks. Tasks already queued still run.
+     */
+    void shutdown() {
+        timer.shutdownNow();
+        lock.lock();
+        try {
+            shutdown = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every queued task and interrupts the workers.
+     */
+    void shutdownNow() {
+        shutdown();
+        lock.lock();
+        try {
+            for (ArrayDeque<QueuedTask> queue : queues) {
+                queue.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread worker : workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+            if (worker.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record QueuedTask(Runnable task, long queuedAt) {
+    }
+}
@@ -0,0 +1,26 @@
+package dev.padrewin.coldtracker.database;
+
+/**
+ * Snapshot of one priority lane of a database executor.
+ *
+ * @param lane lane name, in priority order: interactive, write, bulk
+ * @param depth tasks currently queued
+ * @param executed tasks run since startup
+ * @param rejected tasks refused because the lane was full
+ * @param averageWaitMillis average time a task spent queued before running
+ * @param maxWaitMillis longest time a task spent queued before running
+ */
+public record LaneStats(String lane, int depth, long executed, long rejected, double averageWaitMillis, long maxWaitMillis) {
+
+    /**
+     * Combines the same lane of two executors; the average wait is weighted by tasks run.
+     */
+    public LaneStats merge(LaneStats other) {
+        long totalExecuted = executed + other.executed;
+        double averageWait = totalExecuted > 0
+                ? (averageWaitMillis * executed + other.averageWaitMillis * other.executed) / totalExecuted
+                : 0.0;
+        return new LaneStats(lane, depth + other.depth, totalExecuted, rejected + other.rejected,
+                averageWait, Math.max(maxWaitMillis, other.maxWaitMillis));
+    }
+}
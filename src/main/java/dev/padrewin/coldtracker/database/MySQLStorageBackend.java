@@ -0,0 +1,62 @@
+package dev.padrewin.coldtracker.database;
+
+import dev.padrewin.coldtracker.setting.SettingKey;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * A shared MySQL or MariaDB server, so several backend servers can track staff time in one
+ * place. Uses the MySQL Connector/J driver bundled with Spigot and Paper, which also talks to
+ * MariaDB.
+ */
+public class MySQLStorageBackend implements StorageBackend {
+
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+
+    public MySQLStorageBackend() {
+        // rewriteBatchedStatements turns JDBC batches (session checkpoints) into multi-row statements.
+        this.jdbcUrl = "jdbc:mysql://" + SettingKey.MYSQL_HOST.get() + ":" + SettingKey.MYSQL_PORT.get() + "/" + SettingKey.MYSQL_DATABASE.get()
+                + "?useSSL=" + SettingKey.MYSQL_USE_SSL.get()
+                + "&rewriteBatchedStatements=true"
+                + "&characterEncoding=utf8"
+                + "&connectTimeout=10000";
+        this.username = SettingKey.MYSQL_USERNAME.get();
+        this.password = SettingKey.MYSQL_PASSWORD.get();
+    }
+
+    @Override
+    public String getName() {
+        return "MySQL";
+    }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.MYSQL;
+    }
+
+    @Override
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, username, password);
+    }
+
+    @Override
+    public Connection openReadConnection() throws SQLException {
+        Connection connection = openConnection();
+        connection.setReadOnly(true);
+        return connection;
+    }
+
+    @Override
+    public int getReaderConnections() {
+        return Math.max(0, SettingKey.DATABASE_READER_CONNECTIONS.get());
+    }
+
+    @Override
+    public boolean supportsParallelWrites() {
+        return true;
+    }
+}
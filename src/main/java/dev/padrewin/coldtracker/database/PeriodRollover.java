@@ -0,0 +1,204 @@
+package dev.padrewin.coldtracker.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Ends a tracking period by renaming its running totals to archive tables, then registers them
+ * in staff_periods. Renaming costs the same however much data the period holds.
+ *
+ * On MySQL every DDL statement commits on its own, so the rename can never share a transaction
+ * with the registry. A rollover is therefore journaled:
+ * <ol>
+ *     <li>a staff_periods row with archived = 0 records the period and its end, in its own commit;</li>
+ *     <li>the tables are renamed to their {@code _pN} names;</li>
+ *     <li>the row is flagged archived and the sanctions period restarts at its end.</li>
+ * </ol>
+ * On SQLite the last two commit together. {@link #recover()} runs before every rollover and on
+ * startup and settles a rollover cut short anywhere: if the archive tables exist the rename went
+ * through and only the last step is repeated, otherwise the row is dropped. A new period's id also
+ * skips every {@code _pN} table already in the catalog, so a rename never targets an existing table.
+ *
+ * Confined to the DB thread like the ledger.
+ */
+final class PeriodRollover {
+
+    static final List<String> TABLES = List.of("staff_time", "staff_votes", "staff_vote_counts");
+
+    private final Connection connection;
+    private final SqlDialect dialect;
+    private final Logger logger;
+
+    PeriodRollover(Connection connection, SqlDialect dialect, Logger logger) {
+        this.connection = connection;
+        this.dialect = dialect;
+        this.logger = logger;
+    }
+
+    static String suffix(int period) {
+        return "_p" + period;
+    }
+
+    /**
+     * Archives the current period as of the given instant.
+     *
+     * @return the id of the archived period
+     */
+    int run(long endedAt) throws SQLException {
+        recover();
+        int period = register(endedAt);
+        archive(period, endedAt);
+        return period;
+    }
+
+    /**
+     * Step 1: journals the rollover.
+     *
+     * @return the id the period will be archived under
+     */
+    int register(long endedAt) throws SQLException {
+        int[] period = {0};
+        inTransaction(() -> {
+            long startedAt = 0L;
+            try (PreparedStatement stmt = connection.prepareStatement("SELECT last_reset FROM sanctions_period WHERE id = 1");
+                 ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    startedAt = rs.getLong("last_reset");
+                }
+            }
+
+            period[0] = nextPeriodId();
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "INSERT INTO staff_periods (id, started_at, ended_at, archived) VALUES (?, ?, ?, 0)")) {
+                stmt.setInt(1, period[0]);
+                stmt.setLong(2, startedAt);
+                stmt.setLong(3, endedAt);
+                stmt.executeUpdate();
+            }
+        });
+        return period[0];
+    }
+
+    /**
+     * Steps 2 and 3: renames the tables and completes the registration.
+     */
+    void archive(int period, long endedAt) throws SQLException {
+        inTransaction(() -> {
+            dialect.archiveTables(connection, TABLES, suffix(period));
+            complete(period, endedAt);
+        });
+    }
+
+    /**
+     * Finishes or undoes every rollover that did not complete.
+     *
+     * @return the number of rollovers whose rename had gone through and were finished
+     */
+    int recover() throws SQLException {
+        List<long[]> interrupted = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT id, ended_at FROM staff_periods WHERE archived = 0 ORDER BY id");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                interrupted.add(new long[] {rs.getInt("id"), rs.getLong("ended_at")});
+            }
+        }
+
+        int finished = 0;
+        for (long[] row : interrupted) {
+            int period = (int) row[0];
+            int archivedTables = 0;
+            for (String table : TABLES) {
+                if (tableExists(table + suffix(period))) {
+                    archivedTables++;
+                }
+            }
+
+            if (archivedTables == TABLES.size()) {
+                inTransaction(() -> complete(period, row[1]));
+                finished++;
+                logger.warning("Finished the interrupted rollover of tracking period " + period + ".");
+            } else if (archivedTables == 0) {
+                inTransaction(() -> {
+                    try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM staff_periods WHERE id = ? AND archived = 0")) {
+                        stmt.setInt(1, period);
+                        stmt.executeUpdate();
+                    }
+                });
+                logger.warning("Rolled back the interrupted rollover of tracking period " + period + "; its totals were never archived.");
+            } else {
+                logger.severe("Tracking period " + period + " is only partly archived (" + archivedTables + " of " + TABLES.size()
+                        + " tables). Leaving it for manual repair; new periods skip its id.");
+            }
+        }
+        return finished;
+    }
+
+    private void complete(int period, long endedAt) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("UPDATE staff_periods SET archived = 1 WHERE id = ?")) {
+            stmt.setInt(1, period);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = connection.prepareStatement("UPDATE sanctions_period SET last_reset = ? WHERE id = 1 AND last_reset < ?")) {
+            stmt.setLong(1, endedAt);
+            stmt.setLong(2, endedAt);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * One past the highest id in the registry or in the name of any archive table.
+     */
+    private int nextPeriodId() throws SQLException {
+        int highest = 0;
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM staff_periods");
+             ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+                highest = rs.getInt(1);
+            }
+        }
+
+        for (String table : TABLES) {
+            String prefix = table + "_p";
+            try (ResultSet rs = connection.getMetaData().getTables(connection.getCatalog(), null, prefix + "%", new String[] {"TABLE"})) {
+                while (rs.next()) {
+                    String name = rs.getString("TABLE_NAME");
+                    if (name.length() > prefix.length() && name.regionMatches(true, 0, prefix, 0, prefix.length())
+                            && name.substring(prefix.length()).chars().allMatch(Character::isDigit)) {
+                        highest = Math.max(highest, Integer.parseInt(name.substring(prefix.length())));
+                    }
+                }
+            }
+        }
+        return highest + 1;
+    }
+
+    private boolean tableExists(String table) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getTables(connection.getCatalog(), null, table, new String[] {"TABLE"})) {
+            while (rs.next()) {
+                if (table.equalsIgnoreCase(rs.getString("TABLE_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void inTransaction(WriteShard.SqlWork work) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            work.run();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
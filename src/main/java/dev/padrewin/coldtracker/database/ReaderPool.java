@@ -0,0 +1,154 @@
+package dev.padrewin.coldtracker.database;
+
+import dev.padrewin.coldtracker.ColdTracker;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Small pool of read-only connections with its own executor. With SQLite in WAL mode readers
+ * never block the writer (and vice versa); with MySQL the reads simply run in parallel. Either
+ * way interactive lookups stop queueing behind flushes and exports on the single DB thread.
+ */
+final class ReaderPool {
+
+    /**
+     * Connections idle for longer than this are validated before use, since a network server may
+     * have dropped them in the meantime.
+     */
+    static final long VALIDATE_AFTER_IDLE_MILLIS = 30_000L;
+    static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private final ColdTracker plugin;
+    private final StorageBackend backend;
+    private final List<StatementCache> connections = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<StatementCache> idle;
+    private final LaneExecutor executor;
+
+    ReaderPool(ColdTracker plugin, StorageBackend backend, int size, int queueCapacity, LaneExecutor.OverflowPolicy overflowPolicy) throws SQLException {
+        this.plugin = plugin;
+        this.backend = backend;
+        this.idle = new ArrayBlockingQueue<>(size);
+
+        try {
+            for (int i = 0; i < size; i++) {
+                StatementCache cache = new StatementCache(backend.openReadConnection());
+                connections.add(cache);
+                idle.add(cache);
+            }
+        } catch (SQLException e) {
+            closeConnections();
+            throw e;
+        }
+
+        this.executor = new LaneExecutor("ColdTracker-DB-Reader", size, queueCapacity, overflowPolicy, plugin.getLogger());
+    }
+
+    /**
+     * Runs a read against a pooled connection's statement cache. The executor has exactly one
+     * thread per connection, so a connection is always free when a task starts.
+     */
+    <T> CompletableFuture<T> supplyAsync(LaneExecutor.Lane lane, Function<StatementCache, T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(lane, () -> {
+                StatementCache statements = idle.poll();
+                try {
+                    statements = ensureValid(statements);
+                    future.complete(task.apply(statements));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    idle.offer(statements);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    List<LaneStats> getLaneStats() {
+        return executor.getStats();
+    }
+
+    /**
+     * Replaces a connection that has gone stale while idle. Connections used recently are trusted
+     * without a round trip.
+     */
+    private StatementCache ensureValid(StatementCache statements) throws SQLException {
+        if (statements.getIdleMillis() < VALIDATE_AFTER_IDLE_MILLIS) {
+            return statements;
+        }
+
+        try {
+            if (statements.getConnection().isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                statements.markUsed();
+                return statements;
+            }
+        } catch (SQLException ignored) {
+        }
+
+        plugin.getLogger().warning("A database reader connection was lost, reconnecting.");
+        closeQuietly(statements);
+        Connection connection = backend.openReadConnection();
+        StatementCache replacement = new StatementCache(connection);
+        connections.remove(statements);
+        connections.add(replacement);
+        return replacement;
+    }
+
+    int size() {
+        return connections.size();
+    }
+
+    long getStatementCacheHits() {
+        long hits = 0;
+        for (StatementCache cache : connections) {
+            hits += cache.getHits();
+        }
+        return hits;
+    }
+
+    long getStatementCacheMisses() {
+        long misses = 0;
+        for (StatementCache cache : connections) {
+            misses += cache.getMisses();
+        }
+        return misses;
+    }
+
+    void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+
+        closeConnections();
+    }
+
+    private void closeConnections() {
+        for (StatementCache cache : connections) {
+            closeQuietly(cache);
+        }
+        connections.clear();
+        idle.clear();
+    }
+
+    private void closeQuietly(StatementCache cache) {
+        cache.close();
+        try {
+            cache.getConnection().close();
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Failed to close a database reader connection: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package dev.padrewin.coldtracker.database;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds vote and session history older than the retention window into per-day rollups, then
+ * gives the freed pages back to the file system if the database allows it, see
+ * {@link SqlDialect#enableIncrementalVacuum}. Totals never change: staff_time and
+ * staff_vote_counts are kept separately, and every compacted row is still counted in its day.
+ *
+ * The work is split into steps of at most one batch each, every step its own short transaction,
+ * so the DB thread can run other tasks in between. Confined to the DB thread like the ledger.
+ */
+final class RetentionJob {
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int PAGES_PER_STEP = 1000;
+
+    private enum Stage {
+        VOTES, SESSION_LOG, RECLAIM, DONE
+    }
+
+    private record VoteDay(UUID playerUUID, long dayStart, int serviceId) {
+    }
+
+    private record SessionDay(UUID playerUUID, long dayStart) {
+    }
+
+    private final SqlDialect dialect;
+    private final List<String> voteTables;
+    private final long voteCutoff;
+    private final long sessionCutoff;
+    private final int batchSize;
+    private final String upsertVoteDayQuery;
+    private final String upsertSessionDayQuery;
+    private final long startedAt = System.currentTimeMillis();
+
+    private Stage stage = Stage.VOTES;
+    private int voteTable;
+    private int votesCompacted;
+    private int sessionsCompacted;
+    private int pagesReclaimed;
+
+    /**
+     * @param voteTables the live vote table and every archived one
+     * @param voteCutoff votes before this instant are compacted, or 0 to keep every vote
+     * @param sessionCutoff sessions started before this instant are compacted, or 0 to keep every session
+     */
+    RetentionJob(SqlDialect dialect, List<String> voteTables, long voteCutoff, long sessionCutoff, int batchSize) {
+        this.dialect = dialect;
+        this.voteTables = voteTables;
+        this.voteCutoff = voteCutoff;
+        this.sessionCutoff = sessionCutoff;
+        this.batchSize = batchSize;
+        this.upsertVoteDayQuery = "INSERT INTO staff_vote_daily (player_uuid, day_start, service_id, votes) VALUES (?, ?, ?, ?) " +
+                dialect.onConflictUpdate("player_uuid, day_start, service_id") + "votes = votes + " + dialect.excluded("votes");
+        this.upsertSessionDayQuery = "INSERT INTO staff_session_daily (player_uuid, day_start, sessions, playtime) VALUES (?, ?, ?, ?) " +
+                dialect.onConflictUpdate("player_uuid, day_start") + "sessions = sessions + " + dialect.excluded("sessions") +
+                ", playtime = playtime + " + dialect.excluded("playtime");
+    }
+
+    /**
+     * Runs the next step on the shard's connection.
+     *
+     * @return true if there is more to do
+     */
+    boolean step(WriteShard shard) throws SQLException {
+        switch (stage) {
+            case VOTES -> {
+                if (voteCutoff <= 0 || voteTable >= voteTables.size()) {
+                    stage = Stage.SESSION_LOG;
+                } else {
+                    int[] rows = {0};
+                    shard.inTransaction(() -> rows[0] = compactVotes(shard.statements, voteTables.get(voteTable)));
+                    votesCompacted += rows[0];
+                    if (rows[0] < batchSize) {
+                        voteTable++;
+                    }
+                }
+            }
+            case SESSION_LOG -> {
+                int[] rows = {0};
+                if (sessionCutoff > 0) {
+                    shard.inTransaction(() -> rows[0] = compactSessionLog(shard.statements));
+                    sessionsCompacted += rows[0];
+                }
+                if (rows[0] < batchSize) {
+                    stage = Stage.RECLAIM;
+                }
+            }
+            case RECLAIM -> {
+                int pages = dialect.reclaimFreePages(shard.connection, PAGES_PER_STEP);
+                pagesReclaimed += pages;
+                if (pages < PAGES_PER_STEP) {
+                    stage = Stage.DONE;
+                }
+            }
+            case DONE -> {
+            }
+        }
+        return stage != Stage.DONE;
+    }
+
+    RetentionRun getResult() {
+        return new RetentionRun(votesCompacted, sessionsCompacted, pagesReclaimed, System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Compacts the oldest batch of votes before the cutoff. The batch is bounded by the highest id
+     * it contains, so the rows counted and the rows deleted are exactly the same.
+     */
+    private int compactVotes(StatementCache statements, String table) throws SQLException {
+        long lastId = lastIdOfBatch(statements, table, "vote_time", voteCutoff);
+        if (lastId < 0) {
+            return 0;
+        }
+
+        int rows = 0;
+        Map<VoteDay, Integer> days = new HashMap<>();
+        PreparedStatement select = statements.prepare("SELECT player_uuid, service_id, vote_time FROM " + table + " WHERE id <= ? AND vote_time < ?");
+        select.setLong(1, lastId);
+        select.setLong(2, voteCutoff);
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                rows++;
+                VoteDay day = new VoteDay(UuidBytes.fromBytes(rs.getBytes("player_uuid")), toDay(rs.getLong("vote_time")), rs.getInt("service_id"));
+                days.merge(day, 1, Integer::sum);
+            }
+        }
+
+        PreparedStatement upsert = statements.prepare(upsertVoteDayQuery);
+        for (Map.Entry<VoteDay, Integer> entry : days.entrySet()) {
+            upsert.setBytes(1, UuidBytes.toBytes(entry.getKey().playerUUID()));
+            upsert.setLong(2, entry.getKey().dayStart());
+            upsert.setInt(3, entry.getKey().serviceId());
+            upsert.setInt(4, entry.getValue());
+            upsert.addBatch();
+        }
+        upsert.executeBatch();
+
+        deleteBatch(statements, table, "vote_time", voteCutoff, lastId);
+        return rows;
+    }
+
+    private int compactSessionLog(StatementCache statements) throws SQLException {
+        long lastId = lastIdOfBatch(statements, "staff_session_log", "session_start", sessionCutoff);
+        if (lastId < 0) {
+            return 0;
+        }
+
+        int rows = 0;
+        Map<SessionDay, long[]> days = new HashMap<>();
+        PreparedStatement select = statements.prepare("SELECT player_uuid, session_start, duration FROM staff_session_log WHERE id <= ? AND session_start < ?");
+        select.setLong(1, lastId);
+        select.setLong(2, sessionCutoff);
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                rows++;
+                SessionDay day = new SessionDay(UuidBytes.fromBytes(rs.getBytes("player_uuid")), toDay(rs.getLong("session_start")));
+                long[] totals = days.computeIfAbsent(day, key -> new long[2]);
+                totals[0]++;
+                totals[1] += rs.getLong("duration");
+            }
+        }
+
+        PreparedStatement upsert = statements.prepare(upsertSessionDayQuery);
+        for (Map.Entry<SessionDay, long[]> entry : days.entrySet()) {
+            upsert.setBytes(1, UuidBytes.toBytes(entry.getKey().playerUUID()));
+            upsert.setLong(2, entry.getKey().dayStart());
+            upsert.setInt(3, (int) entry.getValue()[0]);
+            upsert.setLong(4, entry.getValue()[1]);
+            upsert.addBatch();
+        }
+        upsert.executeBatch();
+
+        deleteBatch(statements, "staff_session_log", "session_start", sessionCutoff, lastId);
+        return rows;
+    }
+
+    /**
+     * @return the highest id among the oldest batch of rows before the cutoff, or -1 if there are none
+     */
+    private long lastIdOfBatch(StatementCache statements, String table, String timeColumn, long cutoff) throws SQLException {
+        PreparedStatement stmt = statements.prepare("SELECT MAX(id) FROM (SELECT id FROM " + table +
+                " WHERE " + timeColumn + " < ? ORDER BY id LIMIT ?) batch");
+        stmt.setLong(1, cutoff);
+        stmt.setInt(2, batchSize);
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+                long lastId = rs.getLong(1);
+                return rs.wasNull() ? -1 : lastId;
+            }
+        }
+        return -1;
+    }
+
+    private void deleteBatch(StatementCache statements, String table, String timeColumn, long cutoff, long lastId) throws SQLException {
+        PreparedStatement stmt = statements.prepare("DELETE FROM " + table + " WHERE id <= ? AND " + timeColumn + " < ?");
+        stmt.setLong(1, lastId);
+        stmt.setLong(2, cutoff);
+        stmt.executeUpdate();
+    }
+
+    private static long toDay(long timestamp) {
+        return timestamp - Math.floorMod(timestamp, DAY_MILLIS);
+    }
+}
@@ -0,0 +1,12 @@
+package dev.padrewin.coldtracker.database;
+
+/**
+ * Outcome of one pass of the retention job.
+ *
+ * @param votesCompacted vote rows folded into staff_vote_daily
+ * @param sessionsCompacted session log rows folded into staff_session_daily
+ * @param pagesReclaimed free database pages given back to the file system
+ * @param durationMillis time from start to finish, including the pauses for other work
+ */
+public record RetentionRun(int votesCompacted, int sessionsCompacted, int pagesReclaimed, long durationMillis) {
+}
@@ -0,0 +1,134 @@
+package dev.padrewin.coldtracker.database;
+
+import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.setting.SettingKey;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The local coldtracker.db file. Read connections are only pooled in WAL mode; with a rollback
+ * journal they would just contend for the same file lock as the writer.
+ */
+public class SQLiteStorageBackend implements StorageBackend {
+
+    /**
+     * sqlite-jdbc reads the open flags from this property; 1 is SQLITE_OPEN_READONLY.
+     */
+    private static final String OPEN_MODE_PROPERTY = "open_mode";
+    private static final String OPEN_READONLY = "1";
+
+    private final ColdTracker plugin;
+    private final boolean walMode;
+
+    public SQLiteStorageBackend(ColdTracker plugin) {
+        this.plugin = plugin;
+        this.walMode = SettingKey.DATABASE_WAL_MODE.get();
+    }
+
+    @Override
+    public String getName() {
+        return walMode ? "SQLite (WAL mode)" : "SQLite";
+    }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.SQLITE;
+    }
+
+    @Override
+    public Connection openConnection() throws SQLException {
+        File dataFolder = plugin.getDataFolder();
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
+
+        Connection connection = DriverManager.getConnection(getJdbcUrl());
+        if (walMode) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA journal_mode=WAL");
+            }
+            applyTuningPragmas(connection);
+        }
+        return connection;
+    }
+
+    @Override
+    public Connection openReadConnection() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty(OPEN_MODE_PROPERTY, OPEN_READONLY);
+
+        Connection connection = DriverManager.getConnection(getJdbcUrl(), properties);
+        applyTuningPragmas(connection);
+        return connection;
+    }
+
+    @Override
+    public int getReaderConnections() {
+        return walMode ? Math.max(0, SettingKey.DATABASE_READER_CONNECTIONS.get()) : 0;
+    }
+
+    /**
+     * In WAL mode VACUUM INTO copies one consistent read snapshot, which never blocks the writer.
+     * With a rollback journal a long read would, so the online backup API copies a few pages at
+     * a time instead and lets the writer commit between steps.
+     */
+    @Override
+    public boolean supportsBackup() {
+        return true;
+    }
+
+    @Override
+    public void backup(File target) throws SQLException {
+        if (walMode) {
+            try (Connection source = openReadConnection();
+                 Statement stmt = source.createStatement()) {
+                stmt.execute("VACUUM INTO '" + target.getAbsolutePath().replace("'", "''") + "'");
+            }
+            return;
+        }
+
+        try (Connection source = DriverManager.getConnection(getJdbcUrl());
+             Statement stmt = source.createStatement()) {
+            stmt.executeUpdate("backup to " + quote(target));
+        }
+    }
+
+    /**
+     * Quotes a path for the driver's backup and restore commands. Those commands take no escapes,
+     * so the path is wrapped in whichever quote character it does not contain.
+     */
+    static String quote(File file) throws SQLException {
+        String path = file.getAbsolutePath();
+        if (path.indexOf('"') < 0) {
+            return "\"" + path + "\"";
+        }
+        if (path.indexOf('\'') < 0) {
+            return "'" + path + "'";
+        }
+        throw new SQLException("Cannot back up to " + path + ": the path contains both quote characters");
+    }
+
+    private String getJdbcUrl() {
+        return "jdbc:sqlite:" + plugin.getDataFolder().getAbsolutePath() + File.separator + "coldtracker.db";
+    }
+
+    private void applyTuningPragmas(Connection connection) throws SQLException {
+        String synchronous = SettingKey.DATABASE_SYNCHRONOUS.get().trim().toUpperCase();
+        if (!List.of("OFF", "NORMAL", "FULL", "EXTRA").contains(synchronous)) {
+            plugin.getLogger().warning("Invalid database synchronous mode '" + synchronous + "', using NORMAL.");
+            synchronous = "NORMAL";
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA synchronous=" + synchronous);
+            stmt.execute("PRAGMA cache_size=-" + Math.max(0, SettingKey.DATABASE_CACHE_SIZE_KB.get()));
+            stmt.execute("PRAGMA mmap_size=" + Math.max(0L, SettingKey.DATABASE_MMAP_SIZE_MB.get()) * 1024L * 1024L);
+        }
+    }
+}
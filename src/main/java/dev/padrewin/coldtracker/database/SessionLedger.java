@@ -0,0 +1,224 @@
+package dev.padrewin.coldtracker.database;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Authoritative in-memory record of every open staff session and the playtime it has accrued
+ * since it was last written to disk. Playtime is measured on the monotonic clock; each entry
+ * keeps the wall time it started at and derives every wall time it writes from that anchor, so
+ * a system clock step during a session neither adds nor erases time. The database only sees
+ * these sessions when a checkpoint drains them in one batch, or when a single session is closed
+ * on quit.
+ *
+ * Not thread-safe on purpose: it is only ever touched from the DB executor, which already
+ * serializes every read and write against the connection.
+ */
+final class SessionLedger {
+
+    private static final long NOT_IDLE = Long.MIN_VALUE;
+    private static final long NOT_ENDED = Long.MAX_VALUE;
+
+    static final class Entry {
+        private final UUID playerUUID;
+        private String playerName;
+        private final long sessionStart;
+        private final long startedAt;
+        private long checkpointedAt;
+        private long idleSince = NOT_IDLE;
+        private long idleAccrued;
+        private long endedAt = NOT_ENDED;
+        private boolean persisted;
+
+        private Entry(UUID playerUUID, String playerName, long sessionStart, long startedAt) {
+            this.playerUUID = playerUUID;
+            this.playerName = playerName;
+            this.sessionStart = sessionStart;
+            this.startedAt = startedAt;
+            this.checkpointedAt = startedAt;
+        }
+
+        UUID getPlayerUUID() {
+            return playerUUID;
+        }
+
+        String getPlayerName() {
+            return playerName;
+        }
+
+        /**
+         * Wall time the session started at, in epoch millis.
+         */
+        long getSessionStart() {
+            return sessionStart;
+        }
+
+        /**
+         * Monotonic time of the last checkpoint, or of the session start before the first one.
+         */
+        long getCheckpointedAt() {
+            return checkpointedAt;
+        }
+
+        /**
+         * Converts a monotonic reading taken during this session to epoch millis on the
+         * session's own timeline.
+         */
+        long wallTime(long monotonic) {
+            return sessionStart + (monotonic - startedAt);
+        }
+
+        /**
+         * @return true once a checkpoint has written this session, i.e. it has been counted
+         */
+        boolean isPersisted() {
+            return persisted;
+        }
+
+        /**
+         * Playtime accrued since the last checkpoint that has not been credited to staff_time yet.
+         */
+        long pendingTime(long now) {
+            return Math.max(0L, accruedUntil(now) - checkpointedAt);
+        }
+
+        /**
+         * Part of {@link #pendingTime(long)} the player spent idle.
+         */
+        long pendingIdleTime(long now) {
+            long idle = idleAccrued + (idleSince != NOT_IDLE ? Math.max(0L, accruedUntil(now) - idleSince) : 0L);
+            return Math.min(idle, pendingTime(now));
+        }
+
+        /**
+         * Part of {@link #pendingTime(long)} the player spent active, credited as playtime.
+         */
+        long pendingActiveTime(long now) {
+            return pendingTime(now) - pendingIdleTime(now);
+        }
+
+        boolean isIdle() {
+            return idleSince != NOT_IDLE;
+        }
+
+        /**
+         * Starts or ends an idle stretch at the given monotonic time. Repeating the current state
+         * changes nothing.
+         */
+        void setIdle(boolean idle, long now) {
+            if (idle && idleSince == NOT_IDLE) {
+                idleSince = Math.max(now, checkpointedAt);
+            } else if (!idle && idleSince != NOT_IDLE) {
+                idleAccrued += Math.max(0L, now - idleSince);
+                idleSince = NOT_IDLE;
+            }
+        }
+
+        /**
+         * Stops the session from accruing time after the given monotonic time. Only the first
+         * call counts.
+         */
+        void end(long now) {
+            if (endedAt == NOT_ENDED) {
+                endedAt = now;
+            }
+        }
+
+        /**
+         * Monotonic time the session has accrued time up to: now, or its end if it ended earlier.
+         */
+        long accruedUntil(long now) {
+            return Math.min(now, endedAt);
+        }
+
+        /**
+         * An entry is dirty when it has uncredited time or its staff_sessions row was never written.
+         */
+        boolean isDirty(long now) {
+            return !persisted || pendingTime(now) > 0;
+        }
+
+        void markCheckpointed(long now) {
+            this.checkpointedAt = now;
+            this.idleAccrued = 0L;
+            if (idleSince != NOT_IDLE) {
+                this.idleSince = now;
+            }
+            this.persisted = true;
+        }
+    }
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    // Ended sessions whose close did not commit, finished by the next checkpoint
+    private final List<Entry> failedCloses = new ArrayList<>();
+
+    /**
+     * Opens a session for the player, or refreshes the name of one that is already open so a
+     * missed quit never resets accrued time.
+     *
+     * @param joinTime wall time of the join, in epoch millis
+     * @param joinedAt monotonic time of the join
+     */
+    Entry open(UUID playerUUID, String playerName, long joinTime, long joinedAt) {
+        Entry entry = entries.get(playerUUID);
+        if (entry != null) {
+            entry.playerName = playerName;
+            return entry;
+        }
+
+        entry = new Entry(playerUUID, playerName, joinTime, joinedAt);
+        entries.put(playerUUID, entry);
+        return entry;
+    }
+
+    Entry get(UUID playerUUID) {
+        return entries.get(playerUUID);
+    }
+
+    Entry close(UUID playerUUID) {
+        return entries.remove(playerUUID);
+    }
+
+    /**
+     * Keeps an ended session whose close was rolled back, so its remaining time and log row are
+     * written by the next checkpoint instead of being lost.
+     */
+    void retryClose(Entry entry) {
+        failedCloses.add(entry);
+    }
+
+    List<Entry> failedCloses() {
+        return failedCloses;
+    }
+
+    boolean isOpen(UUID playerUUID) {
+        return entries.containsKey(playerUUID);
+    }
+
+    List<Entry> dirtyEntries(long now) {
+        List<Entry> dirty = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.isDirty(now)) {
+                dirty.add(entry);
+            }
+        }
+        return dirty;
+    }
+
+    Collection<Entry> openEntries() {
+        return entries.values();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void clear() {
+        entries.clear();
+        failedCloses.clear();
+    }
+}
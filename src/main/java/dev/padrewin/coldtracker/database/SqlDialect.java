@@ -0,0 +1,401 @@
+package dev.padrewin.coldtracker.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The handful of SQL differences between the supported backends. Everything else ColdTracker
+ * runs is plain SQL shared by both.
+ */
+public enum SqlDialect {
+
+    SQLITE {
+        @Override
+        public String uuidType() {
+            return "TEXT";
+        }
+
+        @Override
+        public String binaryUuidType() {
+            return "BLOB";
+        }
+
+        @Override
+        public String withoutRowid() {
+            return " WITHOUT ROWID";
+        }
+
+        @Override
+        public String textType() {
+            return "TEXT";
+        }
+
+        @Override
+        public String bigintType() {
+            return "INTEGER";
+        }
+
+        @Override
+        public String autoIncrementKey() {
+            return "INTEGER PRIMARY KEY AUTOINCREMENT";
+        }
+
+        @Override
+        public String insertIgnore() {
+            return "INSERT OR IGNORE INTO";
+        }
+
+        @Override
+        public String replaceInto() {
+            return "INSERT OR REPLACE INTO";
+        }
+
+        @Override
+        public String onConflictUpdate(String keyColumns) {
+            return "ON CONFLICT(" + keyColumns + ") DO UPDATE SET ";
+        }
+
+        @Override
+        public String excluded(String column) {
+            return "excluded." + column;
+        }
+
+        @Override
+        public boolean indexExists(Connection connection, String table, String index) throws SQLException {
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT 1 FROM sqlite_master WHERE type = 'index' AND tbl_name = ? AND name = ?")) {
+                stmt.setString(1, table);
+                stmt.setString(2, index);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        }
+
+        /**
+         * Renames each table away and recreates it from its own stored definition. Index names
+         * are global in SQLite and travel with the renamed table, so they are dropped from the
+         * archive and recreated on the fresh table. DDL is transactional here, so the caller's
+         * transaction makes the whole swap atomic.
+         */
+        @Override
+        public void archiveTables(Connection connection, List<String> tables, String suffix) throws SQLException {
+            List<String> createStatements = new ArrayList<>();
+            List<String> indexNames = new ArrayList<>();
+            for (String table : tables) {
+                try (PreparedStatement stmt = connection.prepareStatement(
+                        "SELECT type, name, sql FROM sqlite_master WHERE tbl_name = ? AND sql IS NOT NULL ORDER BY type = 'index'")) {
+                    stmt.setString(1, table);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            createStatements.add(rs.getString("sql"));
+                            if ("index".equals(rs.getString("type"))) {
+                                indexNames.add(rs.getString("name"));
+                            }
+                        }
+                    }
+                }
+            }
+
+            try (Statement stmt = connection.createStatement()) {
+                for (String table : tables) {
+                    stmt.execute("ALTER TABLE " + table + " RENAME TO " + table + suffix);
+                }
+                for (String index : indexNames) {
+                    stmt.execute("DROP INDEX " + index);
+                }
+                for (String sql : createStatements) {
+                    stmt.execute(sql);
+                }
+            }
+        }
+
+        @Override
+        public void replaceTable(Connection connection, String table, String replacement) throws SQLException {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("DROP TABLE IF EXISTS " + table);
+                stmt.execute("ALTER TABLE " + replacement + " RENAME TO " + table);
+            }
+        }
+
+        /**
+         * auto_vacuum can only change on an empty database or through a full VACUUM, so a file
+         * created without it is rewritten once.
+         */
+        @Override
+        public boolean enableIncrementalVacuum(Connection connection) throws SQLException {
+            try (Statement stmt = connection.createStatement()) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+                    if (rs.next() && rs.getInt(1) == INCREMENTAL_AUTO_VACUUM) {
+                        return false;
+                    }
+                }
+
+                stmt.execute("PRAGMA auto_vacuum=INCREMENTAL");
+                stmt.execute("VACUUM");
+            }
+            return true;
+        }
+
+        /**
+         * Drivers differ in whether one execute runs the pragma to completion, and every step of
+         * it frees a single page, so it is repeated until the limit is met or nothing more frees.
+         */
+        @Override
+        public int reclaimFreePages(Connection connection, int maxPages) throws SQLException {
+            try (Statement stmt = connection.createStatement()) {
+                int before = freePages(stmt);
+                int remaining = before;
+                while (remaining > 0 && before - remaining < maxPages) {
+                    if (stmt.execute("PRAGMA incremental_vacuum(" + (maxPages - (before - remaining)) + ")")) {
+                        try (ResultSet rs = stmt.getResultSet()) {
+                            while (rs.next()) {
+                                // Each row is one more page freed.
+                            }
+                        }
+                    }
+
+                    int after = freePages(stmt);
+                    if (after >= remaining) {
+                        break;
+                    }
+                    remaining = after;
+                }
+                return before - remaining;
+            }
+        }
+
+        private int freePages(Statement stmt) throws SQLException {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA freelist_count")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    },
+
+    MYSQL {
+        @Override
+        public String uuidType() {
+            return "VARCHAR(36)";
+        }
+
+        @Override
+        public String binaryUuidType() {
+            return "BINARY(16)";
+        }
+
+        @Override
+        public String withoutRowid() {
+            // InnoDB always clusters rows on the primary key.
+            return "";
+        }
+
+        @Override
+        public String textType() {
+            return "VARCHAR(255)";
+        }
+
+        @Override
+        public String bigintType() {
+            return "BIGINT";
+        }
+
+        @Override
+        public String autoIncrementKey() {
+            return "BIGINT PRIMARY KEY AUTO_INCREMENT";
+        }
+
+        @Override
+        public String insertIgnore() {
+            return "INSERT IGNORE INTO";
+        }
+
+        @Override
+        public String replaceInto() {
+            return "REPLACE INTO";
+        }
+
+        @Override
+        public String onConflictUpdate(String keyColumns) {
+            return "ON DUPLICATE KEY UPDATE ";
+        }
+
+        @Override
+        public String excluded(String column) {
+            // VALUES() is deprecated on MySQL 8 but is the only form MariaDB also understands.
+            return "VALUES(" + column + ")";
+        }
+
+        @Override
+        public boolean indexExists(Connection connection, String table, String index) throws SQLException {
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT 1 FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?")) {
+                stmt.setString(1, table);
+                stmt.setString(2, index);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        }
+
+        /**
+         * Builds empty copies first, then swaps every table in a single RENAME TABLE, which MySQL
+         * applies atomically. DDL commits implicitly on MySQL, so leftovers of an interrupted
+         * run are dropped before starting.
+         */
+        @Override
+        public void archiveTables(Connection connection, List<String> tables, String suffix) throws SQLException {
+            StringBuilder rename = new StringBuilder("RENAME TABLE ");
+            try (Statement stmt = connection.createStatement()) {
+                for (String table : tables) {
+                    stmt.execute("DROP TABLE IF EXISTS " + table + "_next");
+                    stmt.execute("CREATE TABLE " + table + "_next LIKE " + table);
+
+                    if (rename.length() > "RENAME TABLE ".length()) {
+                        rename.append(", ");
+                    }
+                    rename.append(table).append(" TO ").append(table).append(suffix)
+                            .append(", ").append(table).append("_next TO ").append(table);
+                }
+                stmt.execute(rename.toString());
+            }
+        }
+
+        /**
+         * The swap is a single atomic RENAME TABLE; a crash before the old table is dropped
+         * leaves it behind as {@code table_legacy}, which the next swap clears first.
+         */
+        @Override
+        public void replaceTable(Connection connection, String table, String replacement) throws SQLException {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("DROP TABLE IF EXISTS " + table + "_legacy");
+                stmt.execute("RENAME TABLE " + table + " TO " + table + "_legacy, " + replacement + " TO " + table);
+                stmt.execute("DROP TABLE " + table + "_legacy");
+            }
+        }
+
+        /**
+         * InnoDB reuses the pages freed by deletes within its tablespace on its own.
+         */
+        @Override
+        public boolean enableIncrementalVacuum(Connection connection) {
+            return false;
+        }
+
+        @Override
+        public int reclaimFreePages(Connection connection, int maxPages) {
+            return 0;
+        }
+    };
+
+    private static final int INCREMENTAL_AUTO_VACUUM = 2;
+
+    /**
+     * @return column type for a dashed UUID string, usable as a primary key. Only the schema
+     * before the compact layout stores UUIDs this way
+     */
+    public abstract String uuidType();
+
+    /**
+     * @return column type for a UUID in its 16-byte form, see {@link UuidBytes}
+     */
+    public abstract String binaryUuidType();
+
+    /**
+     * @return table option that stores rows clustered on their primary key, appended after the
+     * closing parenthesis of CREATE TABLE
+     */
+    public abstract String withoutRowid();
+
+    /**
+     * @return column type for short strings such as player or service names
+     */
+    public abstract String textType();
+
+    /**
+     * @return column type for epoch millis and millisecond durations
+     */
+    public abstract String bigintType();
+
+    /**
+     * @return full column definition for a surrogate auto-increment primary key
+     */
+    public abstract String autoIncrementKey();
+
+    public abstract String insertIgnore();
+
+    public abstract String replaceInto();
+
+    /**
+     * Start of an upsert's update clause, to be followed by the column assignments.
+     *
+     * @param keyColumns the conflicting unique key; ignored where the syntax does not name it
+     */
+    public abstract String onConflictUpdate(String keyColumns);
+
+    /**
+     * @return an expression for the value the upsert tried to insert into the given column
+     */
+    public abstract String excluded(String column);
+
+    public abstract boolean indexExists(Connection connection, String table, String index) throws SQLException;
+
+    /**
+     * Moves every given table to {@code table + suffix} and leaves an empty table with the same
+     * definition and indexes in its place.
+     */
+    public abstract void archiveTables(Connection connection, List<String> tables, String suffix) throws SQLException;
+
+    /**
+     * Drops table and moves replacement into its place. Indexes of the old table go with it.
+     */
+    public abstract void replaceTable(Connection connection, String table, String replacement) throws SQLException;
+
+    /**
+     * Makes space freed by deletes returnable to the file system through
+     * {@link #reclaimFreePages(Connection, int)}. Must run outside a transaction.
+     *
+     * @return true if the database had to be rewritten to allow it
+     */
+    public abstract boolean enableIncrementalVacuum(Connection connection) throws SQLException;
+
+    /**
+     * Gives up to maxPages free pages back to the file system. Must run outside a transaction.
+     *
+     * @return the number of pages given back
+     */
+    public abstract int reclaimFreePages(Connection connection, int maxPages) throws SQLException;
+
+    /**
+     * ALTER TABLE ADD COLUMN is not idempotent on either backend, and MySQL cannot roll it back,
+     * so the column is looked up through the JDBC metadata first.
+     */
+    public void addColumnIfMissing(Connection connection, String table, String column, String definition) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(), null, table, column)) {
+            if (rs.next()) {
+                return;
+            }
+        }
+
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition)) {
+            stmt.execute();
+        }
+    }
+
+    /**
+     * Neither MySQL nor older MariaDB accept CREATE INDEX IF NOT EXISTS, so existence is checked first.
+     */
+    public void createIndexIfMissing(Connection connection, String index, String table, String columns) throws SQLException {
+        if (!indexExists(connection, table, index)) {
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "CREATE INDEX " + index + " ON " + table + " (" + columns + ")")) {
+                stmt.execute();
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package dev.padrewin.coldtracker.database;
+
+/**
+ * Activity of one staff member summed over a range of hourly buckets.
+ */
+public record StaffActivity(long playtime, int votes, int sessions) {
+
+    public static final StaffActivity EMPTY = new StaffActivity(0L, 0, 0);
+}
@@ -0,0 +1,7 @@
+package dev.padrewin.coldtracker.database;
+
+/**
+ * An archived tracking period. Times are epoch millis.
+ */
+public record StaffPeriod(int id, long startedAt, long endedAt) {
+}
@@ -0,0 +1,13 @@
+package dev.padrewin.coldtracker.database;
+
+import java.util.UUID;
+
+/**
+ * One finished staff session from staff_session_log. Times are epoch millis.
+ */
+public record StaffSession(UUID playerUUID, long start, long end) {
+
+    public long duration() {
+        return end - start;
+    }
+}
@@ -0,0 +1,18 @@
+package dev.padrewin.coldtracker.database;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Report data read at a single instant, see {@link DatabaseManager#readSnapshotAsync()}.
+ *
+ * @param takenAt when the snapshot's read transaction started, in epoch millis
+ * @param sanctionsPeriodStart start of the sanctions period the totals belong to
+ * @param totals time and vote totals of every tracked staff member
+ */
+public record StaffSnapshot(long takenAt, long sanctionsPeriodStart, Map<UUID, StaffTotals> totals) {
+
+    public StaffTotals getTotals(UUID playerUUID) {
+        return totals.getOrDefault(playerUUID, StaffTotals.EMPTY);
+    }
+}
@@ -0,0 +1,6 @@
+package dev.padrewin.coldtracker.database;
+
+public record StaffTotals(long totalTime, int totalVotes) {
+
+    public static final StaffTotals EMPTY = new StaffTotals(0L, 0);
+}
@@ -0,0 +1,91 @@
+package dev.padrewin.coldtracker.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps one compiled statement per SQL string for a single connection, so hot queries are only
+ * parsed and planned by the database once per connection lifetime.
+ *
+ * A cache belongs to exactly one connection and must only be used by the thread currently
+ * owning that connection. Statements handed out here must never be closed by callers (no
+ * try-with-resources on them); close their ResultSets instead so the statement is reset.
+ * The counters are safe to read from any thread.
+ */
+final class StatementCache {
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long lastUsedAt = System.currentTimeMillis();
+
+    StatementCache(Connection connection) {
+        this.connection = connection;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Returns the cached statement for this SQL with its parameters and pending batch cleared,
+     * compiling it on first use.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        lastUsedAt = System.currentTimeMillis();
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt != null && !stmt.isClosed()) {
+            hits.increment();
+            stmt.clearParameters();
+            stmt.clearBatch();
+            return stmt;
+        }
+
+        misses.increment();
+        stmt = connection.prepareStatement(sql);
+        statements.put(sql, stmt);
+        return stmt;
+    }
+
+    /**
+     * How long the connection has sat unused, used to decide when a network connection should be
+     * validated before reuse.
+     */
+    long getIdleMillis() {
+        return System.currentTimeMillis() - lastUsedAt;
+    }
+
+    void markUsed() {
+        lastUsedAt = System.currentTimeMillis();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    /**
+     * Closes every cached statement. The connection itself is left open.
+     */
+    void close() {
+        for (PreparedStatement stmt : statements.values()) {
+            try {
+                stmt.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        statements.clear();
+    }
+}
@@ -0,0 +1,93 @@
+package dev.padrewin.coldtracker.database;
+
+import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.setting.SettingKey;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Where ColdTracker's data lives. A backend only hands out connections and names its SQL
+ * dialect; scheduling, caching and every query stay in {@link DatabaseManager}.
+ */
+public interface StorageBackend {
+
+    /**
+     * @return display name used in console messages
+     */
+    String getName();
+
+    SqlDialect getDialect();
+
+    /**
+     * Opens the single writer connection.
+     */
+    Connection openConnection() throws SQLException;
+
+    /**
+     * Opens a connection used only for reads by the reader pool.
+     */
+    Connection openReadConnection() throws SQLException;
+
+    /**
+     * @return how many read connections to pool, or 0 to run reads on the writer
+     */
+    int getReaderConnections();
+
+    /**
+     * @return true if several connections can commit at the same time without waiting on each
+     * other, i.e. the database does not serialize writers behind a single file lock
+     */
+    default boolean supportsParallelWrites() {
+        return false;
+    }
+
+    /**
+     * Persists the writer connection's data, for backends that keep it somewhere volatile. Runs
+     * on the DB executor. Durable backends have nothing to do.
+     *
+     * @return true if a snapshot was written
+     */
+    default boolean snapshot(Connection connection) throws SQLException {
+        return false;
+    }
+
+    /**
+     * @return how often to call {@link #snapshot(Connection)}, in seconds, or 0 to only call it on shutdown
+     */
+    default int getSnapshotIntervalSeconds() {
+        return 0;
+    }
+
+    /**
+     * @return true if {@link #backup(File)} is implemented
+     */
+    default boolean supportsBackup() {
+        return false;
+    }
+
+    /**
+     * Writes a consistent copy of the database to target, which must not exist yet. Runs on its
+     * own connection off the DB executor, so tracking carries on while it copies.
+     */
+    default void backup(File target) throws SQLException {
+        throw new SQLException(getName() + " databases cannot be backed up by ColdTracker, use the server's own backup tools.");
+    }
+
+    static StorageBackend create(ColdTracker plugin) {
+        String type = SettingKey.DATABASE_TYPE.get().trim().toLowerCase();
+        switch (type) {
+            case "mysql":
+            case "mariadb":
+                return new MySQLStorageBackend();
+            case "sqlite":
+                return new SQLiteStorageBackend(plugin);
+            case "sqlite-memory":
+                return new InMemorySQLiteStorageBackend(plugin);
+            default:
+                plugin.getLogger().warning("Unknown database type '" + type + "', using SQLite.");
+                return new SQLiteStorageBackend(plugin);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package dev.padrewin.coldtracker.database;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded LRU cache of per-staff totals and the sanctions period start, so repeated lookups of
+ * the same staff member skip the database. Writers update or drop entries once their
+ * transaction has committed.
+ *
+ * Every change bumps a generation counter. A read captures it before querying and only caches
+ * its result if nothing changed meanwhile, so a lookup racing a write can never put an older
+ * value back over the write's update. Writers that add to cached totals also announce
+ * themselves with {@link #beginWrite()} before committing: until the matching
+ * {@link #endWrite()}, no read result is cached, since it may or may not include the write and
+ * the addition would then count it twice.
+ */
+final class TotalsCache {
+
+    private final boolean enabled;
+    private final Map<UUID, Long> times;
+    private final Map<UUID, Integer> votes;
+    private Long sanctionsPeriodStart;
+    private long generation;
+    private int writesInFlight;
+
+    /**
+     * @param capacity staff members to keep totals for, or 0 to cache nothing
+     */
+    TotalsCache(int capacity) {
+        this.enabled = capacity > 0;
+        this.times = lruMap(capacity);
+        this.votes = lruMap(capacity);
+    }
+
+    private static <V> Map<UUID, V> lruMap(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    synchronized Long getTime(UUID playerUUID) {
+        return times.get(playerUUID);
+    }
+
+    synchronized void putTime(UUID playerUUID, long totalTime, long readGeneration) {
+        if (readGeneration == generation && writesInFlight == 0) {
+            times.put(playerUUID, totalTime);
+        }
+    }
+
+    synchronized Integer getVotes(UUID playerUUID) {
+        return votes.get(playerUUID);
+    }
+
+    synchronized void putVotes(UUID playerUUID, int totalVotes, long readGeneration) {
+        if (readGeneration == generation && writesInFlight == 0) {
+            votes.put(playerUUID, totalVotes);
+        }
+    }
+
+    synchronized Long getSanctionsPeriodStart() {
+        return sanctionsPeriodStart;
+    }
+
+    synchronized void putSanctionsPeriodStart(long periodStart, long readGeneration) {
+        if (enabled && readGeneration == generation && writesInFlight == 0) {
+            sanctionsPeriodStart = periodStart;
+        }
+    }
+
+    /**
+     * Must be called before a write that will be added with {@link #addTime} or
+     * {@link #addVote} can commit, and paired with {@link #endWrite()} whether it commits or not.
+     */
+    synchronized void beginWrite() {
+        generation++;
+        writesInFlight++;
+    }
+
+    synchronized void endWrite() {
+        generation++;
+        writesInFlight--;
+    }
+
+    /**
+     * Adds committed playtime to a cached total. Only valid between beginWrite and endWrite.
+     */
+    synchronized void addTime(UUID playerUUID, long time) {
+        generation++;
+        times.computeIfPresent(playerUUID, (key, total) -> total + time);
+    }
+
+    /**
+     * Counts a committed vote in a cached total. Only valid between beginWrite and endWrite.
+     */
+    synchronized void addVote(UUID playerUUID) {
+        generation++;
+        votes.computeIfPresent(playerUUID, (key, total) -> total + 1);
+    }
+
+    synchronized void invalidate(UUID playerUUID) {
+        generation++;
+        times.remove(playerUUID);
+        votes.remove(playerUUID);
+    }
+
+    /**
+     * Drops every total and sets the new sanctions period start, after a period rollover.
+     */
+    synchronized void resetPeriod(long periodStart) {
+        generation++;
+        times.clear();
+        votes.clear();
+        sanctionsPeriodStart = enabled ? periodStart : null;
+    }
+
+    /**
+     * Drops everything, for when the tables may have changed in a way the cache cannot follow,
+     * such as a rollover that failed partway.
+     */
+    synchronized void clear() {
+        generation++;
+        times.clear();
+        votes.clear();
+        sanctionsPeriodStart = null;
+    }
+}
@@ -0,0 +1,37 @@
+package dev.padrewin.coldtracker.database;
+
+/**
+ * Votifier passes the vote time through as whatever string the voting site sent. Most sites send
+ * epoch seconds or millis; anything else cannot be placed on a timeline.
+ */
+public final class VoteTimestamps {
+
+    /**
+     * Numbers below this are read as seconds: as millis they would all fall in early 1973.
+     */
+    private static final long MIN_EPOCH_MILLIS = 100_000_000_000L;
+
+    private VoteTimestamps() {
+    }
+
+    /**
+     * @return the vote time in epoch millis, or fallback if the timestamp is not a number
+     */
+    public static long parse(String timestamp, long fallback) {
+        if (timestamp == null) {
+            return fallback;
+        }
+
+        long value;
+        try {
+            value = Long.parseLong(timestamp.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+
+        if (value <= 0) {
+            return fallback;
+        }
+        return value < MIN_EPOCH_MILLIS ? value * 1000L : value;
+    }
+}
@@ -0,0 +1,66 @@
+package dev.padrewin.coldtracker.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One writer connection with its own DB thread, session ledger and group-commit queue. Every
+ * write for a given staff member is routed to the same shard, so their join, checkpoints and
+ * quit stay in order while different staff members are written in parallel. Shard 0 also runs
+ * the migrations and every write that is not tied to a single staff member.
+ *
+ * Only the write queue and its counters are shared; the connection, ledger and session log are
+ * confined to the shard's thread.
+ */
+final class WriteShard {
+
+    @FunctionalInterface
+    interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    /**
+     * @param rollback run on the shard's thread if the work's changes are rolled back, so it can
+     *                 undo in-memory changes made along with them; may be null
+     */
+    record PendingWrite(SqlWork work, Runnable rollback, CompletableFuture<Void> future) {
+    }
+
+    final int index;
+    final LaneExecutor executor;
+    final SessionLedger sessionLedger = new SessionLedger();
+    final List<StaffSession> pendingSessionLog = new ArrayList<>();
+
+    // Group commit: mutations queue here and are committed together by a drain on the shard's thread.
+    final ConcurrentLinkedQueue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<>();
+    final AtomicInteger pendingWriteCount = new AtomicInteger();
+    final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    Connection connection;
+    StatementCache statements;
+
+    WriteShard(int index, LaneExecutor executor) {
+        this.index = index;
+        this.executor = executor;
+    }
+
+    void inTransaction(SqlWork work) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            work.run();
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
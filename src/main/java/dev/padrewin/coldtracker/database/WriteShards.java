@@ -0,0 +1,313 @@
+package dev.padrewin.coldtracker.database;
+
+import dev.padrewin.coldtracker.database.WriteShard.PendingWrite;
+import dev.padrewin.coldtracker.database.WriteShard.SqlWork;
+
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * The write shards of a database and their group commit. Every write for a staff member is
+ * routed to the same shard and queued there; a drain on the shard's thread commits whatever is
+ * queued in one transaction, in the order it was queued. Writes for one staff member therefore
+ * commit in the order they were submitted, whichever shard they land on.
+ *
+ * The write queue is bounded across all shards, following the executors' overflow policy.
+ */
+final class WriteShards {
+
+    /**
+     * What the shards need from the database they write to.
+     */
+    interface Host {
+
+        /**
+         * @return true once the database could not be connected or migrated
+         */
+        boolean isUnavailable();
+
+        /**
+         * Reopens the shard's connection if the server dropped it. Runs on the shard's thread.
+         */
+        void ensureConnection(WriteShard shard);
+
+        /**
+         * Runs on the shard's thread after every drain.
+         */
+        void afterDrain(WriteShard shard);
+    }
+
+    private final WriteShard[] shards;
+    private final Host host;
+    private final Logger logger;
+    private final LaneExecutor.OverflowPolicy overflowPolicy;
+    private final int queueCapacity;
+    private final int groupCommitWindowMillis;
+    private final int groupCommitMaxOperations;
+
+    private final Semaphore writePermits;
+    private final LongAdder rejectedWrites = new LongAdder();
+    private final LongAdder committedWriteBatches = new LongAdder();
+    private final LongAdder committedWrites = new LongAdder();
+    private volatile int lastWriteBatchSize;
+    private final AtomicInteger maxWriteBatchSize = new AtomicInteger();
+
+    WriteShards(int shardCount, int queueCapacity, LaneExecutor.OverflowPolicy overflowPolicy,
+                int groupCommitWindowMillis, int groupCommitMaxOperations, Logger logger, Host host) {
+        this.host = host;
+        this.logger = logger;
+        this.overflowPolicy = overflowPolicy;
+        this.queueCapacity = queueCapacity;
+        this.groupCommitWindowMillis = groupCommitWindowMillis;
+        this.groupCommitMaxOperations = groupCommitMaxOperations;
+        this.writePermits = new Semaphore(queueCapacity);
+
+        this.shards = new WriteShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String name = shardCount > 1 ? "ColdTracker-DB-" + i : "ColdTracker-DB";
+            shards[i] = new WriteShard(i, new LaneExecutor(name, 1, queueCapacity, overflowPolicy, logger));
+        }
+    }
+
+    /**
+     * Every shard, primary first. Not to be modified.
+     */
+    WriteShard[] shards() {
+        return shards;
+    }
+
+    /**
+     * The shard owning every write for this staff member.
+     */
+    WriteShard shardFor(UUID playerUUID) {
+        return shards[Math.floorMod(playerUUID.hashCode(), shards.length)];
+    }
+
+    /**
+     * Runs the task on the shard's thread once its connection is usable.
+     */
+    <T> CompletableFuture<T> supplyAsync(WriteShard shard, LaneExecutor.Lane lane, Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            shard.executor.execute(lane, () -> {
+                try {
+                    if (host.isUnavailable()) {
+                        throw DatabaseManager.unavailableException();
+                    }
+                    host.ensureConnection(shard);
+                    future.complete(task.get());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Runs the task on every shard's own thread, in parallel. Anything a shard had queued on the
+     * same lane before runs first.
+     */
+    CompletableFuture<Void> runOnEveryShard(LaneExecutor.Lane lane, Consumer<WriteShard> task) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            WriteShard shard = shards[i];
+            futures[i] = supplyAsync(shard, lane, () -> {
+                task.accept(shard);
+                return null;
+            });
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Queues a mutation for the next group commit. Everything queued within the commit window,
+     * or until the batch is full, runs in one transaction on the DB executor with a savepoint per
+     * operation, so one failing write neither aborts the others nor completes their futures.
+     * The returned future completes once the transaction holding this write has committed.
+     *
+     * @param rollback run on the shard's thread if the work's changes do not commit; may be null
+     */
+    CompletableFuture<Void> submit(WriteShard shard, SqlWork work, Runnable rollback) {
+        if (host.isUnavailable()) {
+            return CompletableFuture.failedFuture(DatabaseManager.unavailableException());
+        }
+        if (!acquireWritePermit()) {
+            rejectedWrites.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Database write queue is full (" + queueCapacity + " queued writes)"));
+        }
+
+        PendingWrite write = new PendingWrite(work, rollback, new CompletableFuture<>());
+        shard.pendingWrites.add(write);
+
+        try {
+            if (shard.pendingWriteCount.incrementAndGet() >= groupCommitMaxOperations) {
+                shard.executor.execute(LaneExecutor.Lane.WRITE, () -> drain(shard));
+            } else if (shard.drainScheduled.compareAndSet(false, true)) {
+                if (groupCommitWindowMillis > 0) {
+                    shard.executor.schedule(LaneExecutor.Lane.WRITE, () -> drain(shard), groupCommitWindowMillis);
+                } else {
+                    shard.executor.execute(LaneExecutor.Lane.WRITE, () -> drain(shard));
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            // The write stays queued; the next drain or the shutdown drain picks it up.
+            shard.drainScheduled.set(false);
+        }
+        return write.future();
+    }
+
+    /**
+     * Writes waiting for a group commit are bounded like the executor lanes, following the
+     * same overflow policy. The server thread never waits for a permit.
+     */
+    private boolean acquireWritePermit() {
+        if (!overflowPolicy.mayBlockCurrentThread()) {
+            return writePermits.tryAcquire();
+        }
+
+        try {
+            return writePermits.tryAcquire(LaneExecutor.BLOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Commits everything currently queued on the shard, in batches of at most the configured
+     * size. Must run on the shard's thread.
+     */
+    void drain(WriteShard shard) {
+        shard.drainScheduled.set(false);
+        if (host.isUnavailable()) {
+            // Queued before the schema failed; never run them against it.
+            PendingWrite write;
+            while ((write = shard.pendingWrites.poll()) != null) {
+                shard.pendingWriteCount.decrementAndGet();
+                writePermits.release();
+                rollBack(write);
+                write.future().completeExceptionally(DatabaseManager.unavailableException());
+            }
+            return;
+        }
+        host.ensureConnection(shard);
+
+        List<PendingWrite> batch = new ArrayList<>();
+        PendingWrite write;
+        while ((write = shard.pendingWrites.poll()) != null) {
+            batch.add(write);
+            if (batch.size() >= groupCommitMaxOperations) {
+                commitBatch(shard, batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            commitBatch(shard, batch);
+        }
+
+        host.afterDrain(shard);
+    }
+
+    private void commitBatch(WriteShard shard, List<PendingWrite> batch) {
+        shard.pendingWriteCount.addAndGet(-batch.size());
+        writePermits.release(batch.size());
+        Throwable[] failures = new Throwable[batch.size()];
+
+        try {
+            shard.inTransaction(() -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    Savepoint savepoint = shard.connection.setSavepoint();
+                    try {
+                        batch.get(i).work().run();
+                        shard.connection.releaseSavepoint(savepoint);
+                    } catch (SQLException | RuntimeException e) {
+                        shard.connection.rollback(savepoint);
+                        failures[i] = e;
+                    }
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            logger.severe("Failed to commit a batch of " + batch.size() + " database writes!");
+            e.printStackTrace();
+            for (PendingWrite failed : batch) {
+                rollBack(failed);
+                failed.future().completeExceptionally(e);
+            }
+            return;
+        }
+
+        committedWriteBatches.increment();
+        committedWrites.add(batch.size());
+        lastWriteBatchSize = batch.size();
+        maxWriteBatchSize.accumulateAndGet(batch.size(), Math::max);
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (failures[i] != null) {
+                rollBack(batch.get(i));
+                batch.get(i).future().completeExceptionally(failures[i]);
+            } else {
+                batch.get(i).future().complete(null);
+            }
+        }
+    }
+
+    private void rollBack(PendingWrite write) {
+        if (write.rollback() == null) {
+            return;
+        }
+
+        try {
+            write.rollback().run();
+        } catch (RuntimeException e) {
+            logger.severe("Failed to undo a rolled back database write!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return writes queued for the next group commit
+     */
+    int getQueueDepth() {
+        int depth = 0;
+        for (WriteShard shard : shards) {
+            depth += shard.pendingWriteCount.get();
+        }
+        return depth;
+    }
+
+    long getRejectedWrites() {
+        return rejectedWrites.sum();
+    }
+
+    long getCommittedWriteBatches() {
+        return committedWriteBatches.sum();
+    }
+
+    long getCommittedWrites() {
+        return committedWrites.sum();
+    }
+
+    int getLastWriteBatchSize() {
+        return lastWriteBatchSize;
+    }
+
+    int getMaxWriteBatchSize() {
+        return maxWriteBatchSize.get();
+    }
+}
@@ -0,0 +1,39 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hourly activity buckets per staff member. The primary key serves per-staff range scans and
+ * the bucket index serves "everyone in this period" queries. Starts empty; history before this
+ * version only exists as the running totals.
+ */
+public class ActivityBucketsMigration extends SchemaMigration {
+
+    public ActivityBucketsMigration() {
+        super(4, "Create hourly activity buckets");
+    }
+
+    @Override
+    protected String[] getStatements(SqlDialect dialect) {
+        return new String[] {
+                "CREATE TABLE IF NOT EXISTS staff_activity (" +
+                        "player_uuid " + dialect.uuidType() + " NOT NULL," +
+                        "bucket_start " + dialect.bigintType() + " NOT NULL," +
+                        "playtime " + dialect.bigintType() + " NOT NULL DEFAULT 0," +
+                        "votes INTEGER NOT NULL DEFAULT 0," +
+                        "sessions INTEGER NOT NULL DEFAULT 0," +
+                        "PRIMARY KEY (player_uuid, bucket_start)" +
+                        ")"
+        };
+    }
+
+    @Override
+    public boolean step(Connection connection, SqlDialect dialect) throws SQLException {
+        super.step(connection, dialect);
+        dialect.createIndexIfMissing(connection, "idx_staff_activity_bucket", "staff_activity", "bucket_start");
+        return false;
+    }
+}
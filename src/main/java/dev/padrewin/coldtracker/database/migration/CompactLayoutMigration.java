@@ -0,0 +1,407 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+import dev.padrewin.coldtracker.database.UuidBytes;
+import dev.padrewin.coldtracker.database.VoteTimestamps;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Rewrites every table keyed by player into the compact layout: 16-byte binary UUIDs, vote times
+ * as epoch millis, service names moved to the vote_services dictionary, and tables keyed by
+ * player clustered on their primary key instead of a rowid plus a separate key index.
+ *
+ * Each table is copied into a {@code _compact} twin a batch of rows per step and the twins are
+ * swapped in at the end, so the live tables are never half converted. A rerun after a crash
+ * drops the twins and starts over; tables already swapped are recognized by their binary UUID
+ * column and skipped. Archived periods are converted along with the live tables.
+ *
+ * Rows that cannot be converted as they are, such as a UUID that does not parse or a vote time
+ * that is not a number, are never dropped or zeroed: they are logged with their table and key
+ * and copied verbatim into migration_quarantine, in the same transaction as their batch.
+ */
+public class CompactLayoutMigration implements Migration {
+
+    private static final int BATCH_SIZE = 5000;
+    private static final String COMPACT_SUFFIX = "_compact";
+
+    private enum Layout {
+        TIME("staff_time", "player_uuid, player_name, total_time", Key.PLAYER) {
+            @Override
+            String create(SqlDialect dialect, String table) {
+                return "CREATE TABLE " + table + " (" +
+                        "player_uuid " + dialect.binaryUuidType() + " PRIMARY KEY," +
+                        "player_name " + dialect.textType() + " NOT NULL," +
+                        "total_time " + dialect.bigintType() + " NOT NULL DEFAULT 0" +
+                        ")" + dialect.withoutRowid();
+            }
+        },
+        SESSIONS("staff_sessions", "player_uuid, player_name, join_time, session_start, last_seen", Key.PLAYER) {
+            @Override
+            String create(SqlDialect dialect, String table) {
+                return "CREATE TABLE " + table + " (" +
+                        "player_uuid " + dialect.binaryUuidType() + " PRIMARY KEY," +
+                        "player_name " + dialect.textType() + " NOT NULL," +
+                        "join_time " + dialect.bigintType() + " NOT NULL," +
+                        "session_start " + dialect.bigintType() + " NOT NULL DEFAULT 0," +
+                        "last_seen " + dialect.bigintType() + " NOT NULL DEFAULT 0" +
+                        ")" + dialect.withoutRowid();
+            }
+        },
+        VOTE_COUNTS("staff_vote_counts", "player_uuid, vote_count", Key.PLAYER) {
+            @Override
+            String create(SqlDialect dialect, String table) {
+                return "CREATE TABLE " + table + " (" +
+                        "player_uuid " + dialect.binaryUuidType() + " PRIMARY KEY," +
+                        "vote_count INTEGER NOT NULL DEFAULT 0" +
+                        ")" + dialect.withoutRowid();
+            }
+        },
+        ACTIVITY("staff_activity", "player_uuid, bucket_start, playtime, votes, sessions", Key.PLAYER_BUCKET,
+                "idx_staff_activity_bucket", "bucket_start") {
+            @Override
+            String create(SqlDialect dialect, String table) {
+                return "CREATE TABLE " + table + " (" +
+                        "player_uuid " + dialect.binaryUuidType() + " NOT NULL," +
+                        "bucket_start " + dialect.bigintType() + " NOT NULL," +
+                        "playtime " + dialect.bigintType() + " NOT NULL DEFAULT 0," +
+                        "votes INTEGER NOT NULL DEFAULT 0," +
+                        "sessions INTEGER NOT NULL DEFAULT 0," +
+                        "PRIMARY KEY (player_uuid, bucket_start)" +
+                        ")" + dialect.withoutRowid();
+            }
+        },
+        SESSION_LOG("staff_session_log", "id, player_uuid, session_start, session_end, duration", Key.ID,
+                "idx_staff_session_log_player", "player_uuid, session_start") {
+            @Override
+            String create(SqlDialect dialect, String table) {
+                return "CREATE TABLE " + table + " (" +
+                        "id " + dialect.autoIncrementKey() + "," +
+                        "player_uuid " + dialect.binaryUuidType() + " NOT NULL," +
+                        "session_start " + dialect.bigintType() + " NOT NULL," +
+                        "session_end " + dialect.bigintType() + " NOT NULL," +
+                        "duration " + dialect.bigintType() + " NOT NULL" +
+                        ")";
+            }
+        },
+        // Votes keep their rowid: ids are how vote history is read back in batches.
+        VOTES("staff_votes", "id, player_uuid, player_name, service_name, vote_time", Key.ID,
+                "idx_staff_votes_player", "player_uuid, vote_time", "idx_staff_votes_time", "vote_time") {
+            @Override
+            String create(SqlDialect dialect, String table) {
+                return "CREATE TABLE " + table + " (" +
+                        "id " + dialect.autoIncrementKey() + "," +
+                        "player_uuid " + dialect.binaryUuidType() + " NOT NULL," +
+                        "player_name " + dialect.textType() + " NOT NULL," +
+                        "service_id INTEGER NOT NULL," +
+                        "vote_time " + dialect.bigintType() + " NOT NULL" +
+                        ")";
+            }
+
+            @Override
+            String insert(SqlDialect dialect, String table) {
+                return "INSERT INTO " + table + " (id, player_uuid, player_name, service_id, vote_time) " +
+                        "SELECT ?, ?, ?, id, ? FROM vote_services WHERE name = ?";
+            }
+        };
+
+        private final String table;
+        private final String columns;
+        private final Key key;
+        /**
+         * Alternating index names and column lists, created on the live table after the swap.
+         */
+        private final String[] indexes;
+
+        Layout(String table, String columns, Key key, String... indexes) {
+            this.table = table;
+            this.columns = columns;
+            this.key = key;
+            this.indexes = indexes;
+        }
+
+        abstract String create(SqlDialect dialect, String table);
+
+        String insert(SqlDialect dialect, String table) {
+            int count = columns.split(",").length;
+            return dialect.insertIgnore() + " " + table + " (" + columns + ") VALUES (" + "?, ".repeat(count - 1) + "?)";
+        }
+    }
+
+    private enum Key {
+        PLAYER, PLAYER_BUCKET, ID
+    }
+
+    private record Table(String name, Layout layout) {
+    }
+
+    /**
+     * A source row queued in the current batch, kept to quarantine it if its insert is ignored.
+     */
+    private record SourceRow(String key, String data) {
+    }
+
+    private final Logger logger;
+    private List<Table> pending;
+    private List<Table> converted;
+    private String lastPlayer;
+    private long lastNumber;
+    private int quarantined;
+
+    public CompactLayoutMigration(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public int getVersion() {
+        return 8;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Compact storage layout";
+    }
+
+    @Override
+    public boolean step(Connection connection, SqlDialect dialect) throws SQLException {
+        if (pending == null) {
+            prepare(connection, dialect);
+            return true;
+        }
+
+        if (!pending.isEmpty()) {
+            if (!copyBatch(connection, dialect, pending.get(0))) {
+                converted.add(pending.remove(0));
+                resetCursor();
+            }
+            return true;
+        }
+
+        for (Table table : converted) {
+            dialect.replaceTable(connection, table.name(), table.name() + COMPACT_SUFFIX);
+        }
+        // Also covers tables swapped by an interrupted run, whose indexes may not exist yet.
+        for (Layout layout : Layout.values()) {
+            for (int i = 0; i < layout.indexes.length; i += 2) {
+                dialect.createIndexIfMissing(connection, layout.indexes[i], layout.table, layout.indexes[i + 1]);
+            }
+        }
+        if (quarantined > 0) {
+            logger.warning(quarantined + " row(s) could not be converted and were kept in migration_quarantine.");
+        }
+        return false;
+    }
+
+    private void prepare(Connection connection, SqlDialect dialect) throws SQLException {
+        List<Table> tables = new ArrayList<>();
+        for (Layout layout : Layout.values()) {
+            tables.add(new Table(layout.table, layout));
+        }
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM staff_periods ORDER BY id")) {
+            while (rs.next()) {
+                String suffix = "_p" + rs.getInt("id");
+                tables.add(new Table("staff_time" + suffix, Layout.TIME));
+                tables.add(new Table("staff_vote_counts" + suffix, Layout.VOTE_COUNTS));
+                tables.add(new Table("staff_votes" + suffix, Layout.VOTES));
+            }
+        }
+
+        pending = new ArrayList<>();
+        converted = new ArrayList<>();
+        resetCursor();
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS vote_services (" +
+                    "id " + dialect.autoIncrementKey() + "," +
+                    "name " + dialect.textType() + " NOT NULL UNIQUE" +
+                    ")");
+            // row_data holds every column of the original row, which may not fit a VARCHAR(255)
+            stmt.execute("CREATE TABLE IF NOT EXISTS migration_quarantine (" +
+                    "id " + dialect.autoIncrementKey() + "," +
+                    "source_table " + dialect.textType() + " NOT NULL," +
+                    "row_key " + dialect.textType() + " NOT NULL," +
+                    "reason " + dialect.textType() + " NOT NULL," +
+                    "row_data TEXT NOT NULL," +
+                    "quarantined_at " + dialect.bigintType() + " NOT NULL" +
+                    ")");
+
+            for (Table table : tables) {
+                stmt.execute("DROP TABLE IF EXISTS " + table.name() + COMPACT_SUFFIX);
+                if (needsConversion(connection, table.name())) {
+                    stmt.execute(table.layout().create(dialect, table.name() + COMPACT_SUFFIX));
+                    pending.add(table);
+                }
+            }
+        }
+
+        // A table copied again after a crash quarantines its rows again.
+        try (PreparedStatement stmt = connection.prepareStatement("DELETE FROM migration_quarantine WHERE source_table = ?")) {
+            for (Table table : pending) {
+                stmt.setString(1, table.name());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * @return false if the table is missing or its player_uuid column is already binary
+     */
+    private boolean needsConversion(Connection connection, String table) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(), null, table, "player_uuid")) {
+            if (!rs.next()) {
+                return false;
+            }
+
+            int type = rs.getInt("DATA_TYPE");
+            return type != Types.BINARY && type != Types.VARBINARY && type != Types.LONGVARBINARY && type != Types.BLOB;
+        }
+    }
+
+    /**
+     * Copies the next batch of rows in key order.
+     *
+     * @return true if the table may have more rows to copy
+     */
+    private boolean copyBatch(Connection connection, SqlDialect dialect, Table table) throws SQLException {
+        Layout layout = table.layout();
+        String where = switch (layout.key) {
+            case PLAYER -> "player_uuid > ? ORDER BY player_uuid";
+            case PLAYER_BUCKET -> "player_uuid > ? OR (player_uuid = ? AND bucket_start > ?) ORDER BY player_uuid, bucket_start";
+            case ID -> "id > ? ORDER BY id";
+        };
+
+        int rows = 0;
+        List<SourceRow> batched = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT " + layout.columns + " FROM " + table.name() + " WHERE " + where + " LIMIT " + BATCH_SIZE);
+             PreparedStatement insert = connection.prepareStatement(layout.insert(dialect, table.name() + COMPACT_SUFFIX));
+             PreparedStatement registerService = layout == Layout.VOTES
+                     ? connection.prepareStatement(dialect.insertIgnore() + " vote_services (name) VALUES (?)")
+                     : null) {
+            switch (layout.key) {
+                case PLAYER -> select.setString(1, lastPlayer);
+                case PLAYER_BUCKET -> {
+                    select.setString(1, lastPlayer);
+                    select.setString(2, lastPlayer);
+                    select.setLong(3, lastNumber);
+                }
+                case ID -> select.setLong(1, lastNumber);
+            }
+
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    rows++;
+                    String playerUUID = rs.getString("player_uuid");
+                    String key;
+                    if (layout.key == Key.ID) {
+                        lastNumber = rs.getLong("id");
+                        key = "id=" + lastNumber;
+                    } else {
+                        lastPlayer = playerUUID;
+                        key = "player_uuid=" + playerUUID;
+                        if (layout.key == Key.PLAYER_BUCKET) {
+                            lastNumber = rs.getLong("bucket_start");
+                            key += ", bucket_start=" + lastNumber;
+                        }
+                    }
+                    SourceRow row = new SourceRow(key, describe(rs));
+
+                    byte[] uuidBytes;
+                    try {
+                        uuidBytes = UuidBytes.toBytes(UUID.fromString(playerUUID));
+                    } catch (IllegalArgumentException | NullPointerException e) {
+                        quarantine(connection, table, row, "player_uuid is not a UUID");
+                        continue;
+                    }
+
+                    if (layout == Layout.VOTES) {
+                        String serviceName = rs.getString("service_name");
+                        long voteTime = VoteTimestamps.parse(rs.getString("vote_time"), Long.MIN_VALUE);
+                        if (serviceName == null) {
+                            quarantine(connection, table, row, "service_name is missing");
+                            continue;
+                        }
+                        if (voteTime == Long.MIN_VALUE) {
+                            quarantine(connection, table, row, "vote_time is not an epoch timestamp");
+                            continue;
+                        }
+                        registerService.setString(1, serviceName);
+                        registerService.executeUpdate();
+
+                        insert.setLong(1, rs.getLong("id"));
+                        insert.setBytes(2, uuidBytes);
+                        insert.setString(3, rs.getString("player_name"));
+                        insert.setLong(4, voteTime);
+                        insert.setString(5, serviceName);
+                    } else {
+                        int columnCount = rs.getMetaData().getColumnCount();
+                        for (int i = 1; i <= columnCount; i++) {
+                            if ("player_uuid".equalsIgnoreCase(rs.getMetaData().getColumnLabel(i))) {
+                                insert.setBytes(i, uuidBytes);
+                            } else {
+                                insert.setObject(i, rs.getObject(i));
+                            }
+                        }
+                    }
+                    insert.addBatch();
+                    batched.add(row);
+                }
+            }
+
+            // SQLite keys text UUIDs case-sensitively, so two spellings of one UUID collide once
+            // binary. MySQL never held such pairs and reports no per-row counts anyway.
+            int[] counts = insert.executeBatch();
+            for (int i = 0; i < counts.length && i < batched.size(); i++) {
+                if (counts[i] == 0) {
+                    quarantine(connection, table, batched.get(i), "duplicate key after conversion");
+                }
+            }
+        }
+        return rows == BATCH_SIZE;
+    }
+
+    /**
+     * Keeps a row that could not be converted, and logs it so the loss is visible in the console.
+     */
+    private void quarantine(Connection connection, Table table, SourceRow row, String reason) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "INSERT INTO migration_quarantine (source_table, row_key, reason, row_data, quarantined_at) VALUES (?, ?, ?, ?, ?)")) {
+            stmt.setString(1, table.name());
+            stmt.setString(2, row.key());
+            stmt.setString(3, reason);
+            stmt.setString(4, row.data());
+            stmt.setLong(5, System.currentTimeMillis());
+            stmt.executeUpdate();
+        }
+        quarantined++;
+        logger.warning("Quarantined " + table.name() + " row (" + row.key() + "): " + reason + ". Original: " + row.data());
+    }
+
+    private static String describe(ResultSet rs) throws SQLException {
+        StringBuilder data = new StringBuilder();
+        int columnCount = rs.getMetaData().getColumnCount();
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                data.append(", ");
+            }
+            data.append(rs.getMetaData().getColumnLabel(i)).append('=').append(rs.getString(i));
+        }
+        return data.toString();
+    }
+
+    private void resetCursor() {
+        lastPlayer = "";
+        lastNumber = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,60 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * The schema shipped up to 1.4.3. Existing installs already have these tables, so every
+ * statement is a no-op for them.
+ */
+public class CreateBaseTablesMigration extends SchemaMigration {
+
+    public CreateBaseTablesMigration() {
+        super(1, "Create base tables");
+    }
+
+    @Override
+    protected String[] getStatements(SqlDialect dialect) {
+        return new String[] {
+                "CREATE TABLE IF NOT EXISTS staff_time (" +
+                        "player_uuid " + dialect.uuidType() + " PRIMARY KEY," +
+                        "player_name " + dialect.textType() + " NOT NULL," +
+                        "total_time " + dialect.bigintType() + " NOT NULL DEFAULT 0" +
+                        ")",
+                "CREATE TABLE IF NOT EXISTS staff_sessions (" +
+                        "player_uuid " + dialect.uuidType() + " PRIMARY KEY," +
+                        "player_name " + dialect.textType() + " NOT NULL," +
+                        "join_time " + dialect.bigintType() + " NOT NULL" +
+                        ")",
+                "CREATE TABLE IF NOT EXISTS staff_votes (" +
+                        "id " + dialect.autoIncrementKey() + "," +
+                        "player_uuid " + dialect.uuidType() + " NOT NULL," +
+                        "player_name " + dialect.textType() + " NOT NULL," +
+                        "service_name " + dialect.textType() + " NOT NULL," +
+                        "vote_time " + dialect.textType() + " NOT NULL" +
+                        ")",
+                "CREATE TABLE IF NOT EXISTS sanctions_period (" +
+                        "id INTEGER PRIMARY KEY CHECK (id = 1)," +
+                        "last_reset " + dialect.bigintType() + " NOT NULL DEFAULT 0" +
+                        ")"
+        };
+    }
+
+    @Override
+    public boolean step(Connection connection, SqlDialect dialect) throws SQLException {
+        super.step(connection, dialect);
+
+        // On first-ever startup with this feature, start the sanctions clock at "now" instead of
+        // the epoch, so upgrading an existing install doesn't surface a server's entire punishment
+        // history. Existing playtime/vote data in the other tables is untouched either way.
+        try (PreparedStatement stmt = connection.prepareStatement(
+                dialect.insertIgnore() + " sanctions_period (id, last_reset) VALUES (1, ?)")) {
+            stmt.setLong(1, System.currentTimeMillis());
+            stmt.executeUpdate();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+/**
+ * Daily rollups that vote and session history is compacted into once it is older than the
+ * retention window, see the retention settings.
+ */
+public class HistoryRollupMigration extends SchemaMigration {
+
+    public HistoryRollupMigration() {
+        super(9, "Create daily history rollups");
+    }
+
+    @Override
+    protected String[] getStatements(SqlDialect dialect) {
+        return new String[] {
+                "CREATE TABLE IF NOT EXISTS staff_vote_daily (" +
+                        "player_uuid " + dialect.binaryUuidType() + " NOT NULL," +
+                        "day_start " + dialect.bigintType() + " NOT NULL," +
+                        "service_id INTEGER NOT NULL," +
+                        "votes INTEGER NOT NULL DEFAULT 0," +
+                        "PRIMARY KEY (player_uuid, day_start, service_id)" +
+                        ")" + dialect.withoutRowid(),
+                "CREATE TABLE IF NOT EXISTS staff_session_daily (" +
+                        "player_uuid " + dialect.binaryUuidType() + " NOT NULL," +
+                        "day_start " + dialect.bigintType() + " NOT NULL," +
+                        "sessions INTEGER NOT NULL DEFAULT 0," +
+                        "playtime " + dialect.bigintType() + " NOT NULL DEFAULT 0," +
+                        "PRIMARY KEY (player_uuid, day_start)" +
+                        ")" + dialect.withoutRowid()
+        };
+    }
+}
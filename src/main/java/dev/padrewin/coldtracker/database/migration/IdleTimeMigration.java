@@ -0,0 +1,32 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Keeps idle time apart from playtime: time a staff member spends connected but AFK goes to
+ * idle_time instead of total_time. Existing totals are left as they are, idle or not. Open
+ * session rows record the idle part of their uncredited time too, so a session recovered after
+ * a crash is split the same way.
+ */
+public class IdleTimeMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 10;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Add idle time columns";
+    }
+
+    @Override
+    public boolean step(Connection connection, SqlDialect dialect) throws SQLException {
+        dialect.addColumnIfMissing(connection, "staff_time", "idle_time", dialect.bigintType() + " NOT NULL DEFAULT 0");
+        dialect.addColumnIfMissing(connection, "staff_sessions", "idle_time", dialect.bigintType() + " NOT NULL DEFAULT 0");
+        return false;
+    }
+}
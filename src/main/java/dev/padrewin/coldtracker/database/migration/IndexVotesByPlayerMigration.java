@@ -0,0 +1,25 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class IndexVotesByPlayerMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Index staff_votes by player";
+    }
+
+    @Override
+    public boolean step(Connection connection, SqlDialect dialect) throws SQLException {
+        dialect.createIndexIfMissing(connection, "idx_staff_votes_player", "staff_votes", "player_uuid");
+        return false;
+    }
+}
@@ -0,0 +1,33 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A single schema change. Migrations are applied in ascending {@link #getVersion()} order and
+ * must be idempotent, since a crash can interrupt one after some of its steps committed.
+ */
+public interface Migration {
+
+    /**
+     * @return the schema version this migration brings the database to
+     */
+    int getVersion();
+
+    /**
+     * @return a short human-readable summary, stored in schema_version
+     */
+    String getDescription();
+
+    /**
+     * Runs the next step of this migration. Each step is committed in its own transaction, so
+     * long data rewrites should process a bounded batch per call.
+     *
+     * @param connection the writer connection, already inside a transaction
+     * @param dialect the SQL dialect of the connected backend
+     * @return true if more steps remain, false once the migration is complete
+     */
+    boolean step(Connection connection, SqlDialect dialect) throws SQLException;
+}
@@ -0,0 +1,30 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Lets a period rollover be journaled: a staff_periods row is written with archived = 0 before
+ * its tables are renamed and only flagged once they are, so a rollover cut short between the
+ * two is finished or undone on the next run. Periods registered before this are complete.
+ */
+public class PeriodArchiveStateMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 11;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Journal period rollovers";
+    }
+
+    @Override
+    public boolean step(Connection connection, SqlDialect dialect) throws SQLException {
+        dialect.addColumnIfMissing(connection, "staff_periods", "archived", "INTEGER NOT NULL DEFAULT 1");
+        return false;
+    }
+}
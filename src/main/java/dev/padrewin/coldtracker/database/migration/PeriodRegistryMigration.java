@@ -0,0 +1,25 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+/**
+ * Registry of archived tracking periods. Period N keeps its data in staff_time_pN,
+ * staff_votes_pN and staff_vote_counts_pN.
+ */
+public class PeriodRegistryMigration extends SchemaMigration {
+
+    public PeriodRegistryMigration() {
+        super(7, "Create period registry");
+    }
+
+    @Override
+    protected String[] getStatements(SqlDialect dialect) {
+        return new String[] {
+                "CREATE TABLE IF NOT EXISTS staff_periods (" +
+                        "id INTEGER PRIMARY KEY," +
+                        "started_at " + dialect.bigintType() + " NOT NULL," +
+                        "ended_at " + dialect.bigintType() + " NOT NULL" +
+                        ")"
+        };
+    }
+}
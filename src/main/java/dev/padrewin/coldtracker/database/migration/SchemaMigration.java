@@ -0,0 +1,43 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Base for migrations that are a fixed list of statements and finish in a single step.
+ */
+public abstract class SchemaMigration implements Migration {
+
+    private final int version;
+    private final String description;
+
+    protected SchemaMigration(int version, String description) {
+        this.version = version;
+        this.description = description;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    protected abstract String[] getStatements(SqlDialect dialect);
+
+    @Override
+    public boolean step(Connection connection, SqlDialect dialect) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : getStatements(dialect)) {
+                stmt.execute(sql);
+            }
+        }
+        return false;
+    }
+}
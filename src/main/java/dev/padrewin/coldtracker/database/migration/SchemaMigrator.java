@@ -0,0 +1,121 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Brings the database schema up to date by applying every {@link Migration} newer than the
+ * version recorded in schema_version. Each migration step commits separately and the version
+ * row is written in the same transaction as the final step, so an interrupted migration is
+ * simply re-run from the start on the next boot.
+ */
+public class SchemaMigrator {
+
+    private final Connection connection;
+    private final SqlDialect dialect;
+    private final Logger logger;
+    private final List<Migration> migrations;
+
+    public SchemaMigrator(Connection connection, SqlDialect dialect, Logger logger) {
+        // Batched migrations keep their progress in fields, so every run gets fresh instances.
+        this(connection, dialect, logger, migrations(logger));
+    }
+
+    SchemaMigrator(Connection connection, SqlDialect dialect, Logger logger, List<Migration> migrations) {
+        this.connection = connection;
+        this.dialect = dialect;
+        this.logger = logger;
+        this.migrations = migrations;
+    }
+
+    /**
+     * Every migration in the order they apply, as fresh instances.
+     */
+    static List<Migration> migrations(Logger logger) {
+        return List.of(
+                new CreateBaseTablesMigration(),
+                new IndexVotesByPlayerMigration(),
+                new VoteCountsMigration(),
+                new ActivityBucketsMigration(),
+                new SessionLogMigration(),
+                new SessionHeartbeatMigration(),
+                new PeriodRegistryMigration(),
+                new CompactLayoutMigration(logger),
+                new HistoryRollupMigration(),
+                new IdleTimeMigration(),
+                new PeriodArchiveStateMigration()
+        );
+    }
+
+    /**
+     * Applies all pending migrations. Must run on the thread that owns the writer connection.
+     *
+     * @return the schema version after migrating
+     */
+    public int migrate() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INTEGER PRIMARY KEY," +
+                    "description " + dialect.textType() + " NOT NULL," +
+                    "applied_at " + dialect.bigintType() + " NOT NULL" +
+                    ")");
+        }
+
+        int currentVersion = getCurrentVersion();
+        for (Migration migration : migrations) {
+            if (migration.getVersion() <= currentVersion) {
+                continue;
+            }
+
+            long start = System.currentTimeMillis();
+            int steps = 0;
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                boolean more;
+                do {
+                    more = migration.step(connection, dialect);
+                    steps++;
+                    if (!more) {
+                        recordVersion(migration);
+                    }
+                    connection.commit();
+                } while (more);
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+
+            currentVersion = migration.getVersion();
+            logger.info("Applied database migration " + migration.getVersion() + " (" + migration.getDescription() + ") in "
+                    + steps + " step(s), " + (System.currentTimeMillis() - start) + "ms.");
+        }
+        return currentVersion;
+    }
+
+    private int getCurrentVersion() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void recordVersion(Migration migration) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                dialect.replaceInto() + " schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+            stmt.setInt(1, migration.getVersion());
+            stmt.setString(2, migration.getDescription());
+            stmt.setLong(3, System.currentTimeMillis());
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Lets a session row outlive a crash with its time intact: last_seen is refreshed by a frequent
+ * heartbeat and session_start keeps the real join time for the session log. Rows written before
+ * this version have 0 in both and are recovered without extra time, as before.
+ */
+public class SessionHeartbeatMigration implements Migration {
+
+    @Override
+    public int getVersion() {
+        return 6;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Add session heartbeat columns";
+    }
+
+    @Override
+    public boolean step(Connection connection, SqlDialect dialect) throws SQLException {
+        dialect.addColumnIfMissing(connection, "staff_sessions", "session_start", dialect.bigintType() + " NOT NULL DEFAULT 0");
+        dialect.addColumnIfMissing(connection, "staff_sessions", "last_seen", dialect.bigintType() + " NOT NULL DEFAULT 0");
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Append-only history of finished sessions, indexed for per-staff time range scans.
+ */
+public class SessionLogMigration extends SchemaMigration {
+
+    public SessionLogMigration() {
+        super(5, "Create session log");
+    }
+
+    @Override
+    protected String[] getStatements(SqlDialect dialect) {
+        return new String[] {
+                "CREATE TABLE IF NOT EXISTS staff_session_log (" +
+                        "id " + dialect.autoIncrementKey() + "," +
+                        "player_uuid " + dialect.uuidType() + " NOT NULL," +
+                        "session_start " + dialect.bigintType() + " NOT NULL," +
+                        "session_end " + dialect.bigintType() + " NOT NULL," +
+                        "duration " + dialect.bigintType() + " NOT NULL" +
+                        ")"
+        };
+    }
+
+    @Override
+    public boolean step(Connection connection, SqlDialect dialect) throws SQLException {
+        super.step(connection, dialect);
+        dialect.createIndexIfMissing(connection, "idx_staff_session_log_player", "staff_session_log", "player_uuid, session_start");
+        return false;
+    }
+}
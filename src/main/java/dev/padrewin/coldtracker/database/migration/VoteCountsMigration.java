@@ -0,0 +1,64 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates the staff_vote_counts aggregate and fills it from the existing vote history, a range
+ * of vote ids per step so large tables are never rewritten in one transaction. The first step
+ * always starts from an empty aggregate, which keeps a rerun after a crash correct.
+ */
+public class VoteCountsMigration implements Migration {
+
+    private static final int BATCH_SIZE = 5000;
+
+    private long lastId = -1;
+    private long maxId;
+
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Materialize per-staff vote counts";
+    }
+
+    @Override
+    public boolean step(Connection connection, SqlDialect dialect) throws SQLException {
+        if (lastId < 0) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS staff_vote_counts (" +
+                        "player_uuid " + dialect.uuidType() + " PRIMARY KEY," +
+                        "vote_count INTEGER NOT NULL DEFAULT 0" +
+                        ")");
+                stmt.execute("DELETE FROM staff_vote_counts");
+
+                try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM staff_votes")) {
+                    maxId = rs.next() ? rs.getLong(1) : 0L;
+                }
+            }
+            lastId = 0;
+            return maxId > 0;
+        }
+
+        long upperId = Math.min(lastId + BATCH_SIZE, maxId);
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "INSERT INTO staff_vote_counts (player_uuid, vote_count) " +
+                        "SELECT player_uuid, COUNT(*) FROM staff_votes WHERE id > ? AND id <= ? GROUP BY player_uuid " +
+                        dialect.onConflictUpdate("player_uuid") + "vote_count = vote_count + " + dialect.excluded("vote_count"))) {
+            stmt.setLong(1, lastId);
+            stmt.setLong(2, upperId);
+            stmt.executeUpdate();
+        }
+
+        lastId = upperId;
+        return lastId < maxId;
+    }
+}
@@ -0,0 +1,239 @@
+package dev.padrewin.coldtracker.listeners;
+
+import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.setting.SettingKey;
+import dev.padrewin.coldtracker.util.UuidLongMap;
+import io.papermc.paper.event.player.AsyncChatEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Tells active staff from idle staff without listening to movement. Every few ticks the position,
+ * rotation and last interaction of tracked staff are copied into primitive arrays and compared
+ * with the previous sample; a staff member who has done none of those for afk.idle-after-seconds
+ * is idle until they do again. State changes are reported to the {@link PlayerTrackingListener}.
+ *
+ * Only main-thread code touches the arrays. Interactions can come from async chat, so they are
+ * recorded in a thread-safe map and picked up by the next sample.
+ */
+public class AfkSampler implements Listener {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ColdTracker plugin;
+    private final PlayerTrackingListener trackingListener;
+    private final Location scratch = new Location(null, 0, 0, 0);
+
+    private final UuidLongMap slots = new UuidLongMap();
+    private final UuidLongMap interactionTicks = new UuidLongMap();
+
+    private Player[] players = new Player[INITIAL_CAPACITY];
+    private double[] x = new double[INITIAL_CAPACITY];
+    private double[] y = new double[INITIAL_CAPACITY];
+    private double[] z = new double[INITIAL_CAPACITY];
+    private float[] yaw = new float[INITIAL_CAPACITY];
+    private float[] pitch = new float[INITIAL_CAPACITY];
+    private long[] lastActiveTick = new long[INITIAL_CAPACITY];
+    private boolean[] idle = new boolean[INITIAL_CAPACITY];
+    private int count;
+    private int cursor;
+
+    private long samples;
+    private long totalSampleNanos;
+    private long maxSampleNanos;
+
+    private BukkitTask sampleTask;
+
+    public AfkSampler(ColdTracker plugin, PlayerTrackingListener trackingListener) {
+        this.plugin = plugin;
+        this.trackingListener = trackingListener;
+    }
+
+    public void start() {
+        long interval = Math.max(1, SettingKey.AFK_SAMPLE_INTERVAL_TICKS.get());
+        sampleTask = Bukkit.getScheduler().runTaskTimer(plugin, this::sample, interval, interval);
+    }
+
+    public void stop() {
+        if (sampleTask != null && !sampleTask.isCancelled()) {
+            sampleTask.cancel();
+        }
+    }
+
+    /**
+     * Starts sampling a staff member, who counts as active from now on. Must run on the main thread.
+     */
+    public void track(Player player) {
+        if (slots.containsKey(player.getUniqueId())) {
+            return;
+        }
+
+        if (count == players.length) {
+            grow();
+        }
+
+        int slot = count++;
+        players[slot] = player;
+        snapshot(slot);
+        lastActiveTick[slot] = Bukkit.getCurrentTick();
+        idle[slot] = false;
+        slots.put(player.getUniqueId(), slot);
+    }
+
+    /**
+     * Stops sampling a staff member, e.g. when they quit. Must run on the main thread.
+     */
+    public void untrack(UUID playerUUID) {
+        long slot = slots.remove(playerUUID, -1L);
+        interactionTicks.remove(playerUUID, 0L);
+        if (slot >= 0) {
+            removeSlot((int) slot);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChat(AsyncChatEvent event) {
+        recordInteraction(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onCommand(PlayerCommandPreprocessEvent event) {
+        recordInteraction(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInteract(PlayerInteractEvent event) {
+        recordInteraction(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryClick(InventoryClickEvent event) {
+        if (event.getWhoClicked() instanceof Player player) {
+            recordInteraction(player);
+        }
+    }
+
+    private void recordInteraction(Player player) {
+        UUID playerUUID = player.getUniqueId();
+        if (slots.containsKey(playerUUID)) {
+            interactionTicks.put(playerUUID, Bukkit.getCurrentTick());
+        }
+    }
+
+    /**
+     * Checks up to afk.max-staff-per-sample staff members, continuing where the previous sample
+     * stopped, so the cost of one sample stays bounded however many staff are online.
+     */
+    private void sample() {
+        if (count == 0) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int currentTick = Bukkit.getCurrentTick();
+        long idleAfterTicks = Math.max(1, SettingKey.AFK_IDLE_AFTER_SECONDS.get()) * 20L;
+        int budget = Math.min(count, Math.max(1, SettingKey.AFK_MAX_STAFF_PER_SAMPLE.get()));
+
+        for (int checked = 0; checked < budget && count > 0; checked++) {
+            if (cursor >= count) {
+                cursor = 0;
+            }
+
+            int slot = cursor++;
+            Player player = players[slot];
+            if (!player.isOnline()) {
+                // Missed quit: the swapped-in last slot is checked next instead.
+                untrack(player.getUniqueId());
+                cursor = slot;
+                continue;
+            }
+
+            double lastX = x[slot];
+            double lastY = y[slot];
+            double lastZ = z[slot];
+            float lastYaw = yaw[slot];
+            float lastPitch = pitch[slot];
+            snapshot(slot);
+
+            if (x[slot] != lastX || y[slot] != lastY || z[slot] != lastZ || yaw[slot] != lastYaw || pitch[slot] != lastPitch) {
+                lastActiveTick[slot] = currentTick;
+            } else {
+                lastActiveTick[slot] = Math.max(lastActiveTick[slot], interactionTicks.get(player.getUniqueId(), 0L));
+            }
+
+            boolean nowIdle = currentTick - lastActiveTick[slot] >= idleAfterTicks;
+            if (nowIdle != idle[slot]) {
+                idle[slot] = nowIdle;
+                trackingListener.onIdleChanged(player, nowIdle);
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        samples++;
+        totalSampleNanos += elapsed;
+        maxSampleNanos = Math.max(maxSampleNanos, elapsed);
+    }
+
+    private void snapshot(int slot) {
+        players[slot].getLocation(scratch);
+        x[slot] = scratch.getX();
+        y[slot] = scratch.getY();
+        z[slot] = scratch.getZ();
+        yaw[slot] = scratch.getYaw();
+        pitch[slot] = scratch.getPitch();
+    }
+
+    /**
+     * Moves the last slot into the freed one, so the tracked staff always fill [0, count).
+     */
+    private void removeSlot(int slot) {
+        int last = --count;
+        if (slot != last) {
+            players[slot] = players[last];
+            x[slot] = x[last];
+            y[slot] = y[last];
+            z[slot] = z[last];
+            yaw[slot] = yaw[last];
+            pitch[slot] = pitch[last];
+            lastActiveTick[slot] = lastActiveTick[last];
+            idle[slot] = idle[last];
+            slots.put(players[slot].getUniqueId(), slot);
+        }
+        players[last] = null;
+    }
+
+    private void grow() {
+        int capacity = players.length * 2;
+        players = Arrays.copyOf(players, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        yaw = Arrays.copyOf(yaw, capacity);
+        pitch = Arrays.copyOf(pitch, capacity);
+        lastActiveTick = Arrays.copyOf(lastActiveTick, capacity);
+        idle = Arrays.copyOf(idle, capacity);
+    }
+
+    public int getTrackedCount() {
+        return count;
+    }
+
+    public double getAverageSampleMicros() {
+        return samples > 0 ? totalSampleNanos / 1000.0 / samples : 0.0;
+    }
+
+    public double getMaxSampleMicros() {
+        return maxSampleNanos / 1000.0;
+    }
+}
@@ -1,6 +1,9 @@
 package dev.padrewin.coldtracker.listeners;
 
 import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.setting.SettingKey;
+import dev.padrewin.coldtracker.util.TrackerClock;
+import dev.padrewin.coldtracker.util.UuidLongMap;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -9,24 +12,40 @@ import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.scheduler.BukkitTask;
 
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class PlayerTrackingListener implements Listener {
 
     private final ColdTracker plugin;
+    private final TrackerClock clock;
 
-    // Real-time tracking cache - very lightweight
-    private final Map<UUID, Long> realtimeJoinTimes = new ConcurrentHashMap<>();
-    private final Map<UUID, Long> cachedTotalTimes = new ConcurrentHashMap<>();
+    // Real-time tracking cache - very lightweight, values are kept unboxed
+    // Join times are monotonic readings, so only differences against the clock mean anything
+    private final UuidLongMap realtimeJoinTimes = new UuidLongMap();
+    private final UuidLongMap cachedTotalTimes = new UuidLongMap();
+
+    // Idle time of the current sessions, kept out of the real-time totals
+    private final UuidLongMap idleSince = new UuidLongMap();
+    private final UuidLongMap sessionIdleTimes = new UuidLongMap();
+
+    // Null when AFK detection is disabled
+    private final AfkSampler afkSampler;
 
     // Cleanup task to prevent memory buildup
     private BukkitTask cleanupTask;
 
     public PlayerTrackingListener(ColdTracker plugin) {
         this.plugin = plugin;
+        this.clock = plugin.getClock();
+        if (SettingKey.AFK_ENABLED.get()) {
+            afkSampler = new AfkSampler(plugin, this);
+            plugin.getServer().getPluginManager().registerEvents(afkSampler, plugin);
+            afkSampler.start();
+        } else {
+            afkSampler = null;
+        }
         startCleanupTask();
     }
 
@@ -35,17 +54,19 @@ public class PlayerTrackingListener implements Listener {
         Player player = event.getPlayer();
         if (player.hasPermission("coldtracker.tracktime")) {
             UUID playerUUID = player.getUniqueId();
-            long joinTime = System.currentTimeMillis();
-
             // Store join time for real-time calculations
-            realtimeJoinTimes.put(playerUUID, joinTime);
+            realtimeJoinTimes.put(playerUUID, clock.monotonicMillis());
 
             // Load their total time from database and cache it
             plugin.getDatabaseManager().getTotalTimeAsync(playerUUID)
                     .thenAccept(totalTime -> cachedTotalTimes.put(playerUUID, totalTime));
 
-            // Keep existing database logging (for batch safety system)
-            plugin.getDatabaseManager().logJoinTime(playerUUID, player.getName(), joinTime);
+            // Open the session in the write-behind ledger; it is persisted by the next checkpoint
+            plugin.getDatabaseManager().openSession(playerUUID, player.getName());
+
+            if (afkSampler != null) {
+                afkSampler.track(player);
+            }
 
             plugin.debugLog("Player " + player.getName() + " joined. Started real-time tracking.");
         } else {
@@ -56,22 +77,62 @@ public class PlayerTrackingListener implements Listener {
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
+        if (afkSampler != null) {
+            afkSampler.untrack(player.getUniqueId());
+        }
+
         if (player.hasPermission("coldtracker.tracktime")) {
             UUID playerUUID = player.getUniqueId();
 
             // Remove from real-time cache immediately
-            Long joinTime = realtimeJoinTimes.remove(playerUUID);
-            if (joinTime != null) {
-                long sessionTime = System.currentTimeMillis() - joinTime;
+            long now = clock.monotonicMillis();
+            long joinTime = realtimeJoinTimes.remove(playerUUID, Long.MIN_VALUE);
+            long idleTime = sessionIdleTime(playerUUID, now);
+            idleSince.remove(playerUUID, 0L);
+            sessionIdleTimes.remove(playerUUID, 0L);
+            if (joinTime != Long.MIN_VALUE) {
+                long sessionTime = now - joinTime - idleTime;
                 // Update cached total with final session time
-                cachedTotalTimes.merge(playerUUID, sessionTime, Long::sum);
+                cachedTotalTimes.addTo(playerUUID, sessionTime);
+
+                plugin.debugLog("Player " + player.getName() + " quit. Session time: " + sessionTime + "ms, idle: " + idleTime + "ms");
+            }
 
-                plugin.debugLog("Player " + player.getName() + " quit. Session time: " + sessionTime + "ms");
+            // Close the ledger session, crediting whatever was not checkpointed yet
+            plugin.getDatabaseManager().closeSessionAsync(playerUUID);
+        }
+    }
+
+    /**
+     * Start tracking staff who were already online when the plugin enabled, e.g. after a plugin
+     * reload, since they never fire a join event. Their totals are loaded in one query and their
+     * sessions opened in one batch. Must run on the main thread.
+     */
+    public void trackOnlineStaff() {
+        long joinTime = clock.monotonicMillis();
+        Map<UUID, String> staff = new HashMap<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (player.hasPermission("coldtracker.tracktime") && realtimeJoinTimes.putIfAbsent(player.getUniqueId(), joinTime)) {
+                staff.put(player.getUniqueId(), player.getName());
+                if (afkSampler != null) {
+                    afkSampler.track(player);
+                }
             }
+        }
 
-            // Keep existing database handling
-            plugin.getDatabaseManager().removeJoinTimeAsync(playerUUID);
+        if (staff.isEmpty()) {
+            return;
         }
+
+        plugin.getDatabaseManager().getStaffTotalsAsync(staff.keySet())
+                .thenAccept(totals -> totals.forEach((playerUUID, staffTotals) -> cachedTotalTimes.put(playerUUID, staffTotals.totalTime())));
+
+        plugin.getDatabaseManager().openSessionsAsync(staff).exceptionally(ex -> {
+            plugin.getLogger().severe("Failed to open sessions for " + staff.size() + " online staff members: " + ex.getMessage());
+            return null;
+        });
+
+        plugin.debugLog("Started real-time tracking for " + staff.size() + " staff members already online.");
     }
 
     /**
@@ -79,18 +140,47 @@ public class PlayerTrackingListener implements Listener {
      */
     public long getRealtimeTotalTime(UUID playerUUID) {
         // Get cached database total
-        long cachedTime = cachedTotalTimes.getOrDefault(playerUUID, 0L);
+        long cachedTime = cachedTotalTimes.get(playerUUID, 0L);
 
-        // Add current session if player is online
-        Long joinTime = realtimeJoinTimes.get(playerUUID);
-        if (joinTime != null) {
-            long currentSessionTime = System.currentTimeMillis() - joinTime;
+        // Add current session if player is online, minus the time they were idle
+        long joinTime = realtimeJoinTimes.get(playerUUID, Long.MIN_VALUE);
+        if (joinTime != Long.MIN_VALUE) {
+            long now = clock.monotonicMillis();
+            long currentSessionTime = now - joinTime - sessionIdleTime(playerUUID, now);
             return cachedTime + currentSessionTime;
         }
 
         return cachedTime;
     }
 
+    /**
+     * Called by the AFK sampler when a tracked staff member goes idle or becomes active again.
+     */
+    void onIdleChanged(Player player, boolean idle) {
+        UUID playerUUID = player.getUniqueId();
+        long now = clock.monotonicMillis();
+        if (idle) {
+            idleSince.put(playerUUID, now);
+        } else {
+            long since = idleSince.remove(playerUUID, Long.MIN_VALUE);
+            if (since != Long.MIN_VALUE) {
+                sessionIdleTimes.addTo(playerUUID, now - since);
+            }
+        }
+
+        plugin.getDatabaseManager().setSessionIdle(playerUUID, idle);
+        plugin.debugLog("Player " + player.getName() + (idle ? " is now idle." : " is active again."));
+    }
+
+    private long sessionIdleTime(UUID playerUUID, long now) {
+        long since = idleSince.get(playerUUID, Long.MIN_VALUE);
+        return sessionIdleTimes.get(playerUUID, 0L) + (since != Long.MIN_VALUE ? now - since : 0L);
+    }
+
+    public AfkSampler getAfkSampler() {
+        return afkSampler;
+    }
+
     /**
      * Check if we have real-time data for this player
      */
@@ -113,39 +203,19 @@ public class PlayerTrackingListener implements Listener {
      * This prevents memory buildup over time
      */
     private void cleanupOfflinePlayerData() {
-        int initialSize = cachedTotalTimes.size();
-
-        // Remove cached data for players who are offline
-        Iterator<Map.Entry<UUID, Long>> iterator = cachedTotalTimes.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<UUID, Long> entry = iterator.next();
-            UUID playerUUID = entry.getKey();
-
-            // If player is not online and not in real-time tracking, remove from cache
-            if (!realtimeJoinTimes.containsKey(playerUUID) && Bukkit.getPlayer(playerUUID) == null) {
-                iterator.remove();
-            }
-        }
-
-        int cleanedCount = initialSize - cachedTotalTimes.size();
+        // Remove cached data for players who are offline and not in real-time tracking
+        int cleanedCount = cachedTotalTimes.removeIf(playerUUID ->
+                !realtimeJoinTimes.containsKey(playerUUID) && Bukkit.getPlayer(playerUUID) == null);
         if (cleanedCount > 0) {
             plugin.debugLog("Cleaned up " + cleanedCount + " offline player entries from cache. " +
                     "Active cache size: " + cachedTotalTimes.size());
         }
 
         // Also verify real-time tracking consistency
-        Iterator<Map.Entry<UUID, Long>> realtimeIterator = realtimeJoinTimes.entrySet().iterator();
-        int realtimeCleanedCount = 0;
-        while (realtimeIterator.hasNext()) {
-            Map.Entry<UUID, Long> entry = realtimeIterator.next();
-            UUID playerUUID = entry.getKey();
-
-            // If player is not actually online, remove from real-time tracking
-            if (Bukkit.getPlayer(playerUUID) == null) {
-                realtimeIterator.remove();
-                realtimeCleanedCount++;
-            }
-        }
+        // If player is not actually online, remove from real-time tracking
+        int realtimeCleanedCount = realtimeJoinTimes.removeIf(playerUUID -> Bukkit.getPlayer(playerUUID) == null);
+        idleSince.removeIf(playerUUID -> Bukkit.getPlayer(playerUUID) == null);
+        sessionIdleTimes.removeIf(playerUUID -> Bukkit.getPlayer(playerUUID) == null);
 
         if (realtimeCleanedCount > 0) {
             plugin.debugLog("Cleaned up " + realtimeCleanedCount + " stale real-time tracking entries.");
@@ -159,10 +229,15 @@ public class PlayerTrackingListener implements Listener {
         if (cleanupTask != null && !cleanupTask.isCancelled()) {
             cleanupTask.cancel();
         }
+        if (afkSampler != null) {
+            afkSampler.stop();
+        }
 
         int totalCleared = realtimeJoinTimes.size() + cachedTotalTimes.size();
         realtimeJoinTimes.clear();
         cachedTotalTimes.clear();
+        idleSince.clear();
+        sessionIdleTimes.clear();
 
         plugin.debugLog("PlayerTrackingListener shutdown. Cleared " + totalCleared + " cached entries.");
     }
@@ -175,7 +250,7 @@ public class PlayerTrackingListener implements Listener {
         cachedTotalTimes.clear();
 
         // Reload fresh totals for currently online players (should be 0 after wipe)
-        for (UUID playerUUID : realtimeJoinTimes.keySet()) {
+        for (UUID playerUUID : realtimeJoinTimes.keys()) {
             plugin.getDatabaseManager().getTotalTimeAsync(playerUUID)
                     .thenAccept(totalTime -> cachedTotalTimes.put(playerUUID, totalTime));
         }
@@ -0,0 +1,181 @@
+package dev.padrewin.coldtracker.manager;
+
+import dev.padrewin.colddev.ColdPlugin;
+import dev.padrewin.colddev.manager.Manager;
+import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.database.DatabaseManager;
+import dev.padrewin.coldtracker.setting.SettingKey;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Scheduled and on-demand online backups. The database is copied by the storage backend on its
+ * own connection, then gzipped next to the previous backups, and the oldest ones beyond
+ * backup.keep are removed.
+ */
+public class BackupManager extends Manager {
+
+    private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String FILE_PREFIX = "coldtracker-";
+    private static final String FILE_SUFFIX = ".db.gz";
+
+    public record Backup(File file, long size, long durationMillis) {
+    }
+
+    private final ColdTracker plugin;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private boolean warnedUnsupported;
+    private ExecutorService executor;
+    private BukkitTask scheduledTask;
+
+    public BackupManager(ColdPlugin coldPlugin) {
+        super(coldPlugin);
+        this.plugin = (ColdTracker) coldPlugin;
+    }
+
+    @Override
+    public void reload() {
+        if (scheduledTask != null && !scheduledTask.isCancelled()) {
+            scheduledTask.cancel();
+        }
+
+        if (executor == null || executor.isShutdown()) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ColdTracker-Backup");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        int intervalHours = SettingKey.BACKUP_INTERVAL_HOURS.get();
+        if (intervalHours <= 0) {
+            plugin.debugLog("Scheduled backups are disabled.");
+            return;
+        }
+
+        DatabaseManager databaseManager = plugin.getDatabaseManager();
+        if (databaseManager != null && !databaseManager.supportsBackup()) {
+            // Every scheduled run would only fail, so do not schedule any
+            if (!warnedUnsupported) {
+                warnedUnsupported = true;
+                plugin.getLogger().warning(databaseManager.getBackendName()
+                        + " databases cannot be backed up by ColdTracker, ignoring backup.interval-hours. Use the server's own backup tools.");
+            }
+            return;
+        }
+
+        long intervalTicks = intervalHours * 72000L;
+        scheduledTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            runBackupAsync().exceptionally(ex -> null);
+        }, intervalTicks, intervalTicks);
+    }
+
+    @Override
+    public void disable() {
+        if (scheduledTask != null && !scheduledTask.isCancelled()) {
+            scheduledTask.cancel();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Starts a backup unless one is already running, in which case the future fails with an
+     * {@link IllegalStateException}.
+     */
+    public CompletableFuture<Backup> runBackupAsync() {
+        if (!running.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("A backup is already running."));
+        }
+
+        long start = System.currentTimeMillis();
+        File folder = new File(plugin.getDataFolder(), SettingKey.BACKUP_FOLDER_NAME.get());
+        String name = FILE_PREFIX + LocalDateTime.now().format(FILE_TIME_FORMAT);
+        File raw = new File(folder, name + ".db.tmp");
+        File compressed = new File(folder, name + FILE_SUFFIX);
+
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        raw.delete();
+
+        return plugin.getDatabaseManager().backupAsync(raw, executor).thenApplyAsync(unused -> {
+            try {
+                compress(raw, compressed);
+            } catch (IOException e) {
+                compressed.delete();
+                throw new CompletionException(e);
+            } finally {
+                raw.delete();
+            }
+
+            Backup backup = new Backup(compressed, compressed.length(), System.currentTimeMillis() - start);
+            int removed = rotate(folder);
+            plugin.getLogger().info("Database backup " + compressed.getName() + " created in " + backup.durationMillis() +
+                    "ms (" + formatSize(backup.size()) + ")" + (removed > 0 ? ", removed " + removed + " old backups." : "."));
+            return backup;
+        }, executor).whenComplete((backup, throwable) -> {
+            running.set(false);
+            if (throwable != null) {
+                raw.delete();
+                plugin.getLogger().severe("Failed to back up the database!");
+                throwable.printStackTrace();
+            }
+        });
+    }
+
+    private void compress(File source, File target) throws IOException {
+        try (InputStream in = Files.newInputStream(source.toPath());
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target.toPath()))) {
+            in.transferTo(out);
+        }
+    }
+
+    /**
+     * Deletes the oldest backups beyond backup.keep. File names start with a sortable timestamp,
+     * so name order is age order.
+     */
+    private int rotate(File folder) {
+        File[] backups = folder.listFiles((dir, fileName) -> fileName.startsWith(FILE_PREFIX) && fileName.endsWith(FILE_SUFFIX));
+        int keep = Math.max(1, SettingKey.BACKUP_KEEP.get());
+        if (backups == null || backups.length <= keep) {
+            return 0;
+        }
+
+        Arrays.sort(backups, Comparator.comparing(File::getName));
+        int removed = 0;
+        for (int i = 0; i < backups.length - keep; i++) {
+            if (backups[i].delete()) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -30,6 +30,9 @@ public class CommandManager extends Manager {
         VERSION,
         DUMP,
         EXPORT,
+        DBSTATS,
+        BACKUP,
+        PERIODS,
         HELP;
 
         private List<String> aliases;
@@ -242,18 +242,18 @@ public class FlexibleSchedulerManager extends Manager {
                         return;
                     }
 
-                    plugin.getDatabaseManager().wipeDatabaseTables();
-
-                    // Also clear real-time cache since database was wiped
-                    if (plugin.getPlayerTrackingListener() != null) {
-                        plugin.getPlayerTrackingListener().clearCacheAfterWipe();
-                    }
+                    plugin.getDatabaseManager().rolloverPeriodAsync().thenAccept(period -> {
+                        // Also clear real-time cache since the running totals were archived
+                        if (plugin.getPlayerTrackingListener() != null) {
+                            plugin.getPlayerTrackingListener().clearCacheAfterWipe();
+                        }
 
-                    // Nu mai notificăm jucătorii despre resetarea bazei de date
+                        // Nu mai notificăm jucătorii despre resetarea bazei de date
 
-                    if (SettingKey.DEBUG.get()) {
-                        plugin.getLogger().info("[DEBUG] Database wiped after sending " + scheduleType + " report. Starting fresh tracking.");
-                    }
+                        if (SettingKey.DEBUG.get()) {
+                            plugin.getLogger().info("[DEBUG] Archived period " + period + " after sending " + scheduleType + " report. Starting fresh tracking.");
+                        }
+                    });
                 }
             } catch (Exception e) {
                 plugin.getLogger().severe("Failed to process export file or send to Discord: " + e.getMessage());
@@ -0,0 +1,84 @@
+package dev.padrewin.coldtracker.manager;
+
+import dev.padrewin.colddev.ColdPlugin;
+import dev.padrewin.colddev.manager.Manager;
+import dev.padrewin.coldtracker.ColdTracker;
+import dev.padrewin.coldtracker.database.RetentionRun;
+import dev.padrewin.coldtracker.setting.SettingKey;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Periodically compacts old vote and session history, see
+ * {@link dev.padrewin.coldtracker.database.DatabaseManager#runRetentionAsync()}.
+ */
+public class RetentionManager extends Manager {
+
+    /**
+     * The first pass waits a few minutes so it does not compete with the startup rush.
+     */
+    private static final long INITIAL_DELAY_TICKS = 20L * 60 * 10;
+
+    private final ColdTracker plugin;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private BukkitTask scheduledTask;
+
+    public RetentionManager(ColdPlugin coldPlugin) {
+        super(coldPlugin);
+        this.plugin = (ColdTracker) coldPlugin;
+    }
+
+    @Override
+    public void reload() {
+        if (scheduledTask != null && !scheduledTask.isCancelled()) {
+            scheduledTask.cancel();
+        }
+
+        int intervalHours = SettingKey.RETENTION_INTERVAL_HOURS.get();
+        if (intervalHours <= 0) {
+            plugin.debugLog("History compaction is disabled.");
+            return;
+        }
+
+        long intervalTicks = intervalHours * 72000L;
+        scheduledTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            runRetentionAsync();
+        }, Math.min(INITIAL_DELAY_TICKS, intervalTicks), intervalTicks);
+    }
+
+    @Override
+    public void disable() {
+        if (scheduledTask != null && !scheduledTask.isCancelled()) {
+            scheduledTask.cancel();
+        }
+    }
+
+    /**
+     * Starts a compaction pass unless one is still running from the last interval.
+     */
+    public CompletableFuture<RetentionRun> runRetentionAsync() {
+        if (!running.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("History compaction is already running."));
+        }
+
+        return plugin.getDatabaseManager().runRetentionAsync().whenComplete((run, throwable) -> {
+            running.set(false);
+            if (throwable != null) {
+                plugin.getLogger().severe("Failed to compact old history!");
+                throwable.printStackTrace();
+                return;
+            }
+
+            String summary = "Compacted " + run.votesCompacted() + " old votes and " + run.sessionsCompacted() +
+                    " old sessions, reclaimed " + run.pagesReclaimed() + " pages in " + run.durationMillis() + "ms.";
+            if (run.votesCompacted() > 0 || run.sessionsCompacted() > 0) {
+                plugin.getLogger().info(summary);
+            } else {
+                plugin.debugLog(summary);
+            }
+        });
+    }
+}
@@ -54,6 +54,159 @@ public class SettingKey {
             "If set to true, the plugin will read sanction counts from LiteBans and include them in stats/exports/dumps.",
             "If set to false, sanctions will be ignored.");
 
+    public static final ColdSetting<Integer> STATS_RECENT_DAYS = create("stats-recent-days", INTEGER, 7,
+            "Show the playtime and finished sessions of the last X days in /coldtracker stats, next to the total playtime.",
+            "Recent playtime is kept per hour and is not cleared by wipes.",
+            "Set to 0 to hide it.");
+
+    public static final ColdSetting<Integer> SESSION_CHECKPOINT_INTERVAL = create("session-checkpoint-interval-seconds", INTEGER, 60,
+            "How often (in seconds) the playtime of online staff is written to the database.",
+            "Open sessions are kept in memory and all of them are saved together in a single transaction.",
+            "Sessions are always saved when a staff member quits and when the server stops.",
+            "Higher values mean fewer disk writes.",
+            "Changes require a server restart.");
+
+    public static final ColdSetting<Integer> SESSION_HEARTBEAT_INTERVAL = create("session-heartbeat-interval-seconds", INTEGER, 10,
+            "How often (in seconds) open sessions record that they are still alive.",
+            "After a crash, sessions are credited up to their last heartbeat instead of their last save.",
+            "A heartbeat is a single small update, much cheaper than a full save.",
+            "Set to 0 to disable. Changes require a server restart.");
+
+    // Database Settings
+    public static final ColdSetting<String> DATABASE_TYPE = create("database.type", STRING, "sqlite",
+            "Where ColdTracker stores its data.",
+            "Valid options: sqlite, sqlite-memory, mysql (also used for MariaDB)",
+            "sqlite-memory keeps the SQLite database in memory and saves it to coldtracker.db periodically,",
+            "see database.memory-snapshot-interval.",
+            "Use mysql to share tracked time between several servers. Existing SQLite data is not copied over.");
+
+    public static final ColdSetting<Integer> DATABASE_MEMORY_SNAPSHOT_INTERVAL = create("database.memory-snapshot-interval", INTEGER, 60,
+            "How often (in seconds) the in-memory database is saved to coldtracker.db, used when database.type is sqlite-memory.",
+            "The database is also saved when the server stops.",
+            "This is the durability window: if the server crashes, everything tracked since the last save is lost.",
+            "Set to 0 to only save on shutdown. Changes require a server restart.");
+
+    public static final ColdSetting<String> MYSQL_HOST = create("database.mysql.host", STRING, "localhost",
+            "MySQL/MariaDB server host, used when database.type is mysql.");
+
+    public static final ColdSetting<Integer> MYSQL_PORT = create("database.mysql.port", INTEGER, 3306,
+            "MySQL/MariaDB server port.");
+
+    public static final ColdSetting<String> MYSQL_DATABASE = create("database.mysql.database", STRING, "coldtracker",
+            "Name of the database (schema) ColdTracker creates its tables in. It must already exist.");
+
+    public static final ColdSetting<String> MYSQL_USERNAME = create("database.mysql.username", STRING, "root",
+            "MySQL/MariaDB username.");
+
+    public static final ColdSetting<String> MYSQL_PASSWORD = create("database.mysql.password", STRING, "",
+            "MySQL/MariaDB password.");
+
+    public static final ColdSetting<Boolean> MYSQL_USE_SSL = create("database.mysql.use-ssl", BOOLEAN, false,
+            "Connect to the MySQL/MariaDB server over SSL.");
+
+    public static final ColdSetting<Boolean> DATABASE_WAL_MODE = create("database.wal-mode", BOOLEAN, false,
+            "Open the SQLite database in WAL (write-ahead log) mode.",
+            "In WAL mode, commands like /coldtracker stats are answered by separate read-only connections",
+            "and no longer wait behind exports or playtime saves.",
+            "The pragmas below are only applied when WAL mode is enabled.",
+            "Changes require a server restart.");
+
+    public static final ColdSetting<String> DATABASE_SYNCHRONOUS = create("database.synchronous", STRING, "NORMAL",
+            "SQLite 'synchronous' pragma used in WAL mode.",
+            "Valid options: OFF, NORMAL, FULL, EXTRA",
+            "NORMAL is safe against corruption in WAL mode; a power loss can only undo the last few commits.");
+
+    public static final ColdSetting<Integer> DATABASE_CACHE_SIZE_KB = create("database.cache-size-kb", INTEGER, 8192,
+            "Page cache size per database connection, in kilobytes, used in WAL mode.");
+
+    public static final ColdSetting<Integer> DATABASE_MMAP_SIZE_MB = create("database.mmap-size-mb", INTEGER, 0,
+            "Maximum size of memory-mapped I/O per database connection, in megabytes, used in WAL mode.",
+            "Set to 0 to disable memory-mapped I/O.");
+
+    public static final ColdSetting<Integer> DATABASE_READER_CONNECTIONS = create("database.reader-connections", INTEGER, 2,
+            "Number of read-only connections serving commands, with SQLite in WAL mode or with MySQL.",
+            "Set to 0 to keep every query on the single database thread.");
+
+    public static final ColdSetting<Integer> GROUP_COMMIT_WINDOW_MS = create("database.group-commit-window-ms", INTEGER, 5,
+            "How long (in milliseconds) votes and session changes wait to be saved together in one transaction.",
+            "During a vote party or a restart wave this turns hundreds of disk syncs into a handful.",
+            "Set to 0 to only group writes that arrive while the previous transaction is still running.");
+
+    public static final ColdSetting<Integer> GROUP_COMMIT_MAX_OPERATIONS = create("database.group-commit-max-operations", INTEGER, 256,
+            "Maximum number of writes saved in a single transaction. A full batch is saved right away.");
+
+    public static final ColdSetting<Integer> DATABASE_QUEUE_CAPACITY = create("database.queue-capacity", INTEGER, 10000,
+            "Maximum number of database tasks waiting in each priority lane (interactive, write, bulk).",
+            "Commands are always served before playtime saves, and both before exports and reports.",
+            "Changes require a server restart.");
+
+    public static final ColdSetting<String> DATABASE_QUEUE_OVERFLOW_POLICY = create("database.queue-overflow-policy", STRING, "REJECT",
+            "What happens when a lane is full, e.g. because the disk or database server has stalled.",
+            "Valid options: REJECT (fail the new task right away), BLOCK (wait up to 5 seconds for space, then fail)",
+            "BLOCK only waits on async threads; tasks submitted from the main server thread are always",
+            "failed right away, so a stalled database can never freeze the server.",
+            "Changes require a server restart.");
+
+    public static final ColdSetting<Integer> DATABASE_TOTALS_CACHE_SIZE = create("database.totals-cache-size", INTEGER, 1000,
+            "Number of staff members whose playtime and vote totals are kept in memory for commands.",
+            "The cache is updated whenever those totals change, so it never serves outdated values.",
+            "Set to 0 to always read from the database.");
+
+    public static final ColdSetting<Integer> DATABASE_WRITE_SHARDS = create("database.write-shards", INTEGER, 1,
+            "Number of connections saving playtime and votes in parallel, each with its own database thread. MySQL only.",
+            "Every staff member is always saved by the same connection, so their changes stay in order.",
+            "Experimental: the gain over a single connection has not been measured yet, so it is off (1) by default.",
+            "Only raise it if the write queue in /coldtracker dbstats keeps growing on a busy MySQL server.",
+            "Changes require a server restart.");
+
+    // Backup Settings
+    public static final ColdSetting<Integer> BACKUP_INTERVAL_HOURS = create("backup.interval-hours", INTEGER, 24,
+            "How often (in hours) a compressed backup of the SQLite database is made while the server runs.",
+            "Backups are taken online: tracking carries on while the database is copied.",
+            "Set to 0 to only make backups with /coldtracker backup.");
+
+    public static final ColdSetting<Integer> BACKUP_KEEP = create("backup.keep", INTEGER, 7,
+            "How many backups to keep. The oldest ones are deleted when a new backup is made.");
+
+    public static final ColdSetting<String> BACKUP_FOLDER_NAME = create("backup.folder-name", STRING, "backups",
+            "Folder inside the plugin folder where backups are stored.");
+
+    // Retention Settings
+    public static final ColdSetting<Integer> RETENTION_INTERVAL_HOURS = create("retention.interval-hours", INTEGER, 0,
+            "How often (in hours) old vote and session history is compacted into daily totals, e.g. 6.",
+            "Playtime and vote totals are never affected, only the per-vote and per-session detail.",
+            "Disabled (0) by default. On SQLite, enabling it rewrites the database file once on the next startup.");
+
+    public static final ColdSetting<Integer> RETENTION_VOTE_DAYS = create("retention.vote-history-days", INTEGER, 90,
+            "Individual votes older than this many days are kept only as per-day counts for each staff member and vote service.",
+            "Set to 0 to keep every vote.");
+
+    public static final ColdSetting<Integer> RETENTION_SESSION_LOG_DAYS = create("retention.session-log-days", INTEGER, 180,
+            "Finished sessions older than this many days are kept only as per-day session counts and playtime for each staff member.",
+            "Set to 0 to keep every session.");
+
+    public static final ColdSetting<Integer> RETENTION_BATCH_SIZE = create("retention.batch-size", INTEGER, 500,
+            "Maximum number of rows compacted per transaction. Smaller batches hold the database for shorter moments.");
+
+    // AFK Settings
+    public static final ColdSetting<Boolean> AFK_ENABLED = create("afk.enabled", BOOLEAN, false,
+            "Whether staff members who are AFK stop accruing playtime. Disabled by default, so playtime counts all connected time.",
+            "Time spent idle is tracked separately and shown in /coldtracker stats.",
+            "Changes require a server restart.");
+
+    public static final ColdSetting<Integer> AFK_IDLE_AFTER_SECONDS = create("afk.idle-after-seconds", INTEGER, 300,
+            "How long (in seconds) a staff member has to stay still, without looking around, chatting, running commands or interacting, to count as idle.",
+            "The time before that moment still counts as playtime.");
+
+    public static final ColdSetting<Integer> AFK_SAMPLE_INTERVAL_TICKS = create("afk.sample-interval-ticks", INTEGER, 100,
+            "How often (in ticks) the position and rotation of online staff are checked. 20 ticks = 1 second.",
+            "Movement is never tracked per event, so this is the only work done for AFK detection.",
+            "Changes require a server restart.");
+
+    public static final ColdSetting<Integer> AFK_MAX_STAFF_PER_SAMPLE = create("afk.max-staff-per-sample", INTEGER, 100,
+            "Maximum number of staff members checked in one sample, which bounds the time it takes.",
+            "With more staff online, they are checked in turns over the following samples.");
+
     public static final ColdSetting<String> FOLDER_NAME = create("folder-name", STRING, "exported-database",
             "The name of the folder where exported files will be saved.",
             "If left blank, it will default to 'exported database'.");
@@ -0,0 +1,35 @@
+package dev.padrewin.coldtracker.util;
+
+/**
+ * Time source for session accounting. Durations are always measured on the monotonic reading,
+ * which never jumps when the system clock is stepped by NTP or a VM migration; wall time is only
+ * read to anchor a session to the calendar when it starts and to stamp what gets displayed.
+ *
+ * Everything that accrues playtime reads its clock from {@link dev.padrewin.coldtracker.ColdTracker#getClock()}
+ * and hands the readings to the session ledger, so tests drive the ledger with their own
+ * implementation.
+ */
+public interface TrackerClock {
+
+    TrackerClock SYSTEM = new TrackerClock() {
+        @Override
+        public long monotonicMillis() {
+            return System.nanoTime() / 1_000_000L;
+        }
+
+        @Override
+        public long wallMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Milliseconds from an arbitrary origin. Only differences between two readings mean anything.
+     */
+    long monotonicMillis();
+
+    /**
+     * Epoch millis, as shown to players and stored in the database.
+     */
+    long wallMillis();
+}
@@ -0,0 +1,353 @@
+package dev.padrewin.coldtracker.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe map from UUID to a primitive long, for per-player timestamps and counters that are
+ * read on every command and updated on every join, quit and sample.
+ *
+ * Keys are stored as their two halves and values unboxed, side by side in a single array with
+ * linear probing, so an entry costs four longs instead of a node, a UUID and a Long, and a probe
+ * touches one cache line. Lookups and updates allocate nothing.
+ *
+ * Reads take no lock. An entry never moves within a table: it is published by a release store
+ * of its state, a removal only marks it as removed, and removed slots are reclaimed by copying
+ * the live entries into a new table. Writes are serialized, which is plenty for the handful of
+ * updates per second this sees.
+ */
+public final class UuidLongMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // Layout of a slot: key halves, value and state.
+    private static final int MOST = 0;
+    private static final int LEAST = 1;
+    private static final int VALUE = 2;
+    private static final int STATE = 3;
+    private static final int STRIDE = 4;
+
+    private static final long FREE = 0L;
+    private static final long FULL = 1L;
+    private static final long REMOVED = 2L;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * The slots of one capacity. Once a table is replaced it is never written again, so a reader
+     * still holding it sees the map as it was.
+     */
+    private static final class Table {
+        final long[] slots;
+        final int capacity;
+        final int mask;
+        // Slots that are not free, removed ones included. Guarded by the map.
+        int taken;
+
+        Table(int capacity) {
+            this.slots = new long[capacity * STRIDE];
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+        }
+
+        long state(int slot) {
+            return (long) SLOTS.getAcquire(slots, slot * STRIDE + STATE);
+        }
+
+        long value(int slot) {
+            return (long) SLOTS.getOpaque(slots, slot * STRIDE + VALUE);
+        }
+
+        void setValue(int slot, long value) {
+            SLOTS.setOpaque(slots, slot * STRIDE + VALUE, value);
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table;
+    private volatile int size;
+
+    public UuidLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of entries to make room for before the first resize
+     */
+    public UuidLongMap(int expectedSize) {
+        this.table = new Table(capacityFor(expectedSize));
+    }
+
+    public long get(UUID key, long defaultValue) {
+        Table current = table;
+        int slot = slotOf(current, key.getMostSignificantBits(), key.getLeastSignificantBits());
+        return slot >= 0 ? current.value(slot) : defaultValue;
+    }
+
+    public boolean containsKey(UUID key) {
+        return slotOf(table, key.getMostSignificantBits(), key.getLeastSignificantBits()) >= 0;
+    }
+
+    public void put(UUID key, long value) {
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int slot = slotOf(current, key.getMostSignificantBits(), key.getLeastSignificantBits());
+            if (slot >= 0) {
+                current.setValue(slot, value);
+            } else {
+                insert(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return true if the key was absent and the value was stored
+     */
+    public boolean putIfAbsent(UUID key, long value) {
+        long stamp = lock.writeLock();
+        try {
+            if (slotOf(table, key.getMostSignificantBits(), key.getLeastSignificantBits()) >= 0) {
+                return false;
+            }
+            insert(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds delta to the value of the key, treating a missing key as 0.
+     *
+     * @return the new value
+     */
+    public long addTo(UUID key, long delta) {
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int slot = slotOf(current, key.getMostSignificantBits(), key.getLeastSignificantBits());
+            if (slot >= 0) {
+                long value = current.value(slot) + delta;
+                current.setValue(slot, value);
+                return value;
+            }
+            insert(key.getMostSignificantBits(), key.getLeastSignificantBits(), delta);
+            return delta;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the removed value, or defaultValue if the key was absent
+     */
+    public long remove(UUID key, long defaultValue) {
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int slot = slotOf(current, key.getMostSignificantBits(), key.getLeastSignificantBits());
+            if (slot < 0) {
+                return defaultValue;
+            }
+
+            long value = current.value(slot);
+            SLOTS.setRelease(current.slots, slot * STRIDE + STATE, REMOVED);
+            size--;
+            return value;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean removeKey(UUID key) {
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            int slot = slotOf(current, key.getMostSignificantBits(), key.getLeastSignificantBits());
+            if (slot < 0) {
+                return false;
+            }
+
+            SLOTS.setRelease(current.slots, slot * STRIDE + STATE, REMOVED);
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes every entry whose key matches. The filter runs outside the lock, so it may call
+     * into other code freely; entries added meanwhile are left alone.
+     *
+     * @return how many entries were removed
+     */
+    public int removeIf(Predicate<UUID> filter) {
+        int removed = 0;
+        for (UUID key : keys()) {
+            if (filter.test(key) && removeKey(key)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return a copy of the current keys
+     */
+    public List<UUID> keys() {
+        long stamp = lock.writeLock();
+        try {
+            Table current = table;
+            List<UUID> keys = new ArrayList<>(size);
+            for (int slot = 0; slot < current.capacity; slot++) {
+                if (current.state(slot) == FULL) {
+                    int base = slot * STRIDE;
+                    keys.add(new UUID(current.slots[base + MOST], current.slots[base + LEAST]));
+                }
+            }
+            return keys;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(MIN_CAPACITY);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Probes at most once around the table, so a read racing a write still ends.
+     */
+    private static int slotOf(Table table, long mostBits, long leastBits) {
+        long[] slots = table.slots;
+        int slot = indexFor(mostBits, leastBits, table.mask);
+        for (int probes = 0; probes <= table.mask; probes++) {
+            int base = slot * STRIDE;
+            long state = (long) SLOTS.getOpaque(slots, base + STATE);
+            if (state == FREE) {
+                return -1;
+            }
+            if (state == FULL && slots[base + MOST] == mostBits && slots[base + LEAST] == leastBits) {
+                // Orders the caller's read of the value after the state, as an acquiring read would
+                VarHandle.acquireFence();
+                return slot;
+            }
+            slot = (slot + 1) & table.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a key known to be absent. Must hold the lock.
+     */
+    private void insert(long mostBits, long leastBits, long value) {
+        if (revive(table, mostBits, leastBits, value)) {
+            size++;
+            return;
+        }
+        if ((table.taken + 1) * 2 > table.capacity) {
+            // Mostly removed slots: the same capacity leaves room for a quarter of it in new
+            // entries before the next copy, so a run of joins and quits rarely copies.
+            rebuild((size + 1) * 4 > table.capacity ? table.capacity * 2 : table.capacity);
+        }
+
+        store(table, mostBits, leastBits, value);
+        size++;
+    }
+
+    /**
+     * Brings back the removed slot of this key, if it still has one, as when a staff member
+     * rejoins. The slot keeps its key, so a reader sees either the removal or the new value.
+     */
+    private static boolean revive(Table table, long mostBits, long leastBits, long value) {
+        long[] slots = table.slots;
+        int slot = indexFor(mostBits, leastBits, table.mask);
+        for (int probes = 0; probes <= table.mask; probes++) {
+            long state = table.state(slot);
+            if (state == FREE) {
+                return false;
+            }
+            int base = slot * STRIDE;
+            if (state == REMOVED && slots[base + MOST] == mostBits && slots[base + LEAST] == leastBits) {
+                table.setValue(slot, value);
+                SLOTS.setRelease(slots, base + STATE, FULL);
+                return true;
+            }
+            slot = (slot + 1) & table.mask;
+        }
+        return false;
+    }
+
+    /**
+     * Copies the live entries into a new table, dropping the removed ones, and publishes it.
+     */
+    private void rebuild(int capacity) {
+        Table old = table;
+        Table rebuilt = new Table(capacity);
+        for (int slot = 0; slot < old.capacity; slot++) {
+            if (old.state(slot) == FULL) {
+                int base = slot * STRIDE;
+                store(rebuilt, old.slots[base + MOST], old.slots[base + LEAST], old.slots[base + VALUE]);
+            }
+        }
+        table = rebuilt;
+    }
+
+    /**
+     * Fills a free slot. Removed slots are only reclaimed by a rebuild or by their own key, so a
+     * reader never sees a slot change keys.
+     */
+    private static void store(Table table, long mostBits, long leastBits, long value) {
+        int slot = indexFor(mostBits, leastBits, table.mask);
+        while (table.state(slot) != FREE) {
+            slot = (slot + 1) & table.mask;
+        }
+        int base = slot * STRIDE;
+        table.slots[base + MOST] = mostBits;
+        table.slots[base + LEAST] = leastBits;
+        table.slots[base + VALUE] = value;
+        SLOTS.setRelease(table.slots, base + STATE, FULL);
+        table.taken++;
+    }
+
+    /**
+     * Folds the halves the way {@link UUID#hashCode()} and ConcurrentHashMap do. Player UUIDs are
+     * random or name hashes, so their low bits are spread already.
+     */
+    private static int indexFor(long mostBits, long leastBits, int mask) {
+        long hash = mostBits ^ leastBits;
+        int folded = (int) (hash ^ (hash >>> 32));
+        return (folded ^ (folded >>> 16)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
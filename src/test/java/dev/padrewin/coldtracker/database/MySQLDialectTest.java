@@ -0,0 +1,287 @@
+package dev.padrewin.coldtracker.database;
+
+import dev.padrewin.coldtracker.database.migration.SchemaMigrator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against a real server, see {@link MySQLTestDatabase}.
+ */
+class MySQLDialectTest {
+
+    private static final SqlDialect MYSQL = SqlDialect.MYSQL;
+    private static final long PERIOD_START = 1_690_000_000_000L;
+    private static final long PERIOD_END = 1_700_000_000_000L;
+
+    private final Logger logger = Logger.getLogger(MySQLDialectTest.class.getName());
+    private final UUID staff = UUID.randomUUID();
+    private Connection connection;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        connection = MySQLTestDatabase.open();
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Test
+    void archiveTablesLeavesEmptyCopiesWithTheirIndexes() throws SQLException {
+        execute("CREATE TABLE first_totals (player_uuid BINARY(16) PRIMARY KEY, total BIGINT NOT NULL)");
+        execute("CREATE INDEX idx_first_totals_total ON first_totals (total)");
+        execute("CREATE TABLE second_totals (player_uuid BINARY(16) PRIMARY KEY, total BIGINT NOT NULL)");
+        execute("INSERT INTO first_totals VALUES (X'00', 1), (X'01', 2)");
+        execute("INSERT INTO second_totals VALUES (X'00', 3)");
+
+        MYSQL.archiveTables(connection, List.of("first_totals", "second_totals"), "_p1");
+
+        assertEquals(2, count("SELECT COUNT(*) FROM first_totals_p1"));
+        assertEquals(1, count("SELECT COUNT(*) FROM second_totals_p1"));
+        assertEquals(0, count("SELECT COUNT(*) FROM first_totals"));
+        assertEquals(0, count("SELECT COUNT(*) FROM second_totals"));
+        assertTrue(MYSQL.indexExists(connection, "first_totals", "idx_first_totals_total"));
+        assertFalse(tableExists("first_totals_next"));
+    }
+
+    @Test
+    void archiveTablesClearsLeftoversOfAnInterruptedRun() throws SQLException {
+        execute("CREATE TABLE totals (player_uuid BINARY(16) PRIMARY KEY, total BIGINT NOT NULL)");
+        execute("CREATE TABLE totals_next (unrelated INTEGER)");
+        execute("INSERT INTO totals VALUES (X'00', 1)");
+
+        MYSQL.archiveTables(connection, List.of("totals"), "_p2");
+
+        assertEquals(1, count("SELECT COUNT(*) FROM totals_p2"));
+        assertEquals(0, count("SELECT COUNT(*) FROM totals"));
+        execute("INSERT INTO totals (player_uuid, total) VALUES (X'01', 2)");
+    }
+
+    @Test
+    void replaceTableSwapsInTheReplacement() throws SQLException {
+        execute("CREATE TABLE totals (player_uuid VARCHAR(36) PRIMARY KEY)");
+        execute("CREATE TABLE totals_compact (player_uuid BINARY(16) PRIMARY KEY)");
+        execute("CREATE TABLE totals_legacy (left_by_a_crash INTEGER)");
+        execute("INSERT INTO totals_compact VALUES (X'00')");
+
+        MYSQL.replaceTable(connection, "totals", "totals_compact");
+
+        assertEquals(1, count("SELECT COUNT(*) FROM totals"));
+        assertFalse(tableExists("totals_compact"));
+        assertFalse(tableExists("totals_legacy"));
+    }
+
+    @Test
+    void insertIgnoreSkipsDuplicateKeys() throws SQLException {
+        execute("CREATE TABLE services (id " + MYSQL.autoIncrementKey() + ", name " + MYSQL.textType() + " NOT NULL UNIQUE)");
+
+        try (PreparedStatement stmt = connection.prepareStatement(MYSQL.insertIgnore() + " services (name) VALUES (?)")) {
+            stmt.setString(1, "PlanetMinecraft");
+            assertEquals(1, stmt.executeUpdate());
+            assertEquals(0, stmt.executeUpdate());
+        }
+        assertEquals(1, count("SELECT COUNT(*) FROM services"));
+    }
+
+    @Test
+    void addColumnAndIndexAreIdempotent() throws SQLException {
+        execute("CREATE TABLE totals (player_uuid BINARY(16) PRIMARY KEY)");
+
+        for (int i = 0; i < 2; i++) {
+            MYSQL.addColumnIfMissing(connection, "totals", "idle_time", MYSQL.bigintType() + " NOT NULL DEFAULT 0");
+            MYSQL.createIndexIfMissing(connection, "idx_totals_idle", "totals", "idle_time");
+        }
+
+        execute("INSERT INTO totals (player_uuid) VALUES (X'00')");
+        assertEquals(0, count("SELECT idle_time FROM totals"));
+        assertTrue(MYSQL.indexExists(connection, "totals", "idx_totals_idle"));
+        assertFalse(MYSQL.indexExists(connection, "totals", "idx_totals_missing"));
+    }
+
+    @Test
+    void upsertsAccumulateThroughValues() throws SQLException {
+        migrate();
+        byte[] key = UuidBytes.toBytes(staff);
+
+        for (int i = 0; i < 2; i++) {
+            try (PreparedStatement stmt = connection.prepareStatement(DatabaseManager.creditPlaytimeQuery(MYSQL))) {
+                stmt.setBytes(1, key);
+                stmt.setString(2, "staff");
+                stmt.setLong(3, 60_000L);
+                stmt.setLong(4, 1_000L);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(DatabaseManager.upsertSessionQuery(MYSQL))) {
+                stmt.setBytes(1, key);
+                stmt.setString(2, "staff" + i);
+                stmt.setLong(3, PERIOD_END + i);
+                stmt.setLong(4, PERIOD_END);
+                stmt.setLong(5, PERIOD_END + i);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(DatabaseManager.recordActivityQuery(MYSQL))) {
+                stmt.setBytes(1, key);
+                stmt.setLong(2, PERIOD_END);
+                stmt.setLong(3, 60_000L);
+                stmt.setInt(4, 1);
+                stmt.setInt(5, 1);
+                // Batched like the checkpoints, which the driver rewrites into one statement
+                stmt.addBatch();
+                stmt.executeBatch();
+            }
+            insertVote(key, "PlanetMinecraft");
+        }
+
+        assertEquals(120_000L, queryLong("SELECT total_time FROM staff_time WHERE player_uuid = ?", key));
+        assertEquals(2_000L, queryLong("SELECT idle_time FROM staff_time WHERE player_uuid = ?", key));
+        assertEquals(PERIOD_END + 1, queryLong("SELECT join_time FROM staff_sessions WHERE player_uuid = ?", key));
+        assertEquals(PERIOD_END, queryLong("SELECT session_start FROM staff_sessions WHERE player_uuid = ?", key));
+        assertEquals(120_000L, queryLong("SELECT playtime FROM staff_activity WHERE player_uuid = ?", key));
+        assertEquals(2L, queryLong("SELECT votes FROM staff_activity WHERE player_uuid = ?", key));
+        assertEquals(2L, queryLong("SELECT vote_count FROM staff_vote_counts WHERE player_uuid = ?", key));
+        assertEquals(2, count("SELECT COUNT(*) FROM staff_votes"));
+        assertEquals(1, count("SELECT COUNT(*) FROM vote_services"));
+    }
+
+    @Test
+    void rolloverArchivesThePeriod() throws SQLException {
+        migrate();
+        insertTotals();
+
+        PeriodRollover rollover = new PeriodRollover(connection, MYSQL, logger);
+        assertEquals(1, rollover.run(PERIOD_END));
+
+        StatementCache statements = new StatementCache(connection);
+        assertEquals(List.of(new StaffPeriod(1, PERIOD_START, PERIOD_END)), DatabaseManager.queryPeriods(statements));
+        assertEquals(Map.of(staff, new StaffTotals(3_600_000L, 1)), DatabaseManager.queryPeriodTotals(statements, 1));
+        assertTrue(DatabaseManager.queryStaffTotals(statements).isEmpty());
+        assertEquals(PERIOD_END, count("SELECT last_reset FROM sanctions_period WHERE id = 1"));
+    }
+
+    @Test
+    void rolloverRenameSurvivesARollbackAndIsFinishedOnRecovery() throws SQLException {
+        migrate();
+        insertTotals();
+        PeriodRollover rollover = new PeriodRollover(connection, MYSQL, logger);
+        int period = rollover.register(PERIOD_END);
+
+        // The rename commits implicitly, so rolling back the transaction around it cannot undo it
+        connection.setAutoCommit(false);
+        MYSQL.archiveTables(connection, PeriodRollover.TABLES, PeriodRollover.suffix(period));
+        connection.rollback();
+        connection.setAutoCommit(true);
+
+        StatementCache statements = new StatementCache(connection);
+        assertTrue(DatabaseManager.queryPeriods(statements).isEmpty());
+        assertNull(DatabaseManager.queryPeriodTotals(statements, period));
+
+        assertEquals(1, rollover.recover());
+
+        assertEquals(Map.of(staff, new StaffTotals(3_600_000L, 1)), DatabaseManager.queryPeriodTotals(statements, period));
+        assertEquals(PERIOD_END, count("SELECT last_reset FROM sanctions_period WHERE id = 1"));
+        assertEquals(period + 1, rollover.run(PERIOD_END + 1000L));
+    }
+
+    @Test
+    void rolloverCutShortBeforeTheRenameIsUndone() throws SQLException {
+        migrate();
+        insertTotals();
+        PeriodRollover rollover = new PeriodRollover(connection, MYSQL, logger);
+        rollover.register(PERIOD_END);
+
+        assertEquals(0, rollover.recover());
+
+        assertEquals(0, count("SELECT COUNT(*) FROM staff_periods"));
+        assertEquals(PERIOD_START, count("SELECT last_reset FROM sanctions_period WHERE id = 1"));
+        assertEquals(1, count("SELECT COUNT(*) FROM staff_time"));
+        assertEquals(1, rollover.run(PERIOD_END));
+    }
+
+    private void migrate() throws SQLException {
+        new SchemaMigrator(connection, MYSQL, logger).migrate();
+        execute("UPDATE sanctions_period SET last_reset = " + PERIOD_START + " WHERE id = 1");
+    }
+
+    private void insertTotals() throws SQLException {
+        byte[] key = UuidBytes.toBytes(staff);
+        try (PreparedStatement stmt = connection.prepareStatement(DatabaseManager.creditPlaytimeQuery(MYSQL))) {
+            stmt.setBytes(1, key);
+            stmt.setString(2, "staff");
+            stmt.setLong(3, 3_600_000L);
+            stmt.setLong(4, 0L);
+            stmt.executeUpdate();
+        }
+        insertVote(key, "MinecraftServers");
+    }
+
+    private void insertVote(byte[] key, String service) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(DatabaseManager.registerServiceQuery(MYSQL))) {
+            stmt.setString(1, service);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(DatabaseManager.INSERT_VOTE_QUERY)) {
+            stmt.setBytes(1, key);
+            stmt.setString(2, "staff");
+            stmt.setLong(3, PERIOD_END);
+            stmt.setString(4, service);
+            assertEquals(1, stmt.executeUpdate());
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(DatabaseManager.incrementVoteCountQuery(MYSQL))) {
+            stmt.setBytes(1, key);
+            stmt.executeUpdate();
+        }
+    }
+
+    private boolean tableExists(String table) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT 1 FROM information_schema.tables WHERE table_schema = DATABASE() AND table_name = ?")) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private long queryLong(String query, byte[] key) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+            stmt.setBytes(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private long count(String query) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
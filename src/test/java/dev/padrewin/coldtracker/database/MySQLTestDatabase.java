@@ -0,0 +1,59 @@
+package dev.padrewin.coldtracker.database;
+
+import org.junit.jupiter.api.Assumptions;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A disposable MySQL or MariaDB database for the tests of {@link SqlDialect#MYSQL}. Those tests
+ * only run when one is passed on the command line, and are skipped otherwise:
+ * <pre>mvn test -Dcoldtracker.test.mysql.url=jdbc:mysql://127.0.0.1:3306/coldtracker_test?user=root</pre>
+ * Every table in that database is dropped before each test.
+ */
+public final class MySQLTestDatabase {
+
+    public static final String URL_PROPERTY = "coldtracker.test.mysql.url";
+
+    private MySQLTestDatabase() {
+    }
+
+    /**
+     * Connects and empties the database, or skips the calling test if none was given.
+     */
+    public static Connection open() throws SQLException {
+        Assumptions.assumeTrue(isConfigured(), "Set -D" + URL_PROPERTY + " to run the MySQL tests");
+
+        Connection connection = connect();
+        List<String> tables = new ArrayList<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT table_name FROM information_schema.tables WHERE table_schema = DATABASE()")) {
+            while (rs.next()) {
+                tables.add(rs.getString(1));
+            }
+        }
+        try (Statement stmt = connection.createStatement()) {
+            for (String table : tables) {
+                stmt.execute("DROP TABLE " + table);
+            }
+        }
+        return connection;
+    }
+
+    public static boolean isConfigured() {
+        return !System.getProperty(URL_PROPERTY, "").isBlank();
+    }
+
+    /**
+     * Connects with the options {@link MySQLStorageBackend} uses, leaving the database as it is.
+     */
+    public static Connection connect() throws SQLException {
+        String url = System.getProperty(URL_PROPERTY, "");
+        return DriverManager.getConnection(url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true&characterEncoding=utf8");
+    }
+}
@@ -0,0 +1,150 @@
+package dev.padrewin.coldtracker.database;
+
+import dev.padrewin.coldtracker.database.migration.SchemaMigrator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PeriodRolloverTest {
+
+    private static final long PERIOD_START = 1_690_000_000_000L;
+    private static final long PERIOD_END = 1_700_000_000_000L;
+
+    private Connection connection;
+    private StatementCache statements;
+    private PeriodRollover rollover;
+    private final UUID staff = UUID.randomUUID();
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        Logger logger = Logger.getLogger(PeriodRolloverTest.class.getName());
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        new SchemaMigrator(connection, SqlDialect.SQLITE, logger).migrate();
+        statements = new StatementCache(connection);
+        rollover = new PeriodRollover(connection, SqlDialect.SQLITE, logger);
+
+        execute("INSERT OR REPLACE INTO sanctions_period (id, last_reset) VALUES (1, " + PERIOD_START + ")");
+        insertTotals(staff, 3_600_000L, 2);
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        statements.close();
+        connection.close();
+    }
+
+    @Test
+    void rolloverArchivesTotalsAndStartsAFreshPeriod() throws SQLException {
+        assertEquals(1, rollover.run(PERIOD_END));
+
+        assertEquals(List.of(new StaffPeriod(1, PERIOD_START, PERIOD_END)), DatabaseManager.queryPeriods(statements));
+        assertEquals(Map.of(staff, new StaffTotals(3_600_000L, 2)), DatabaseManager.queryPeriodTotals(statements, 1));
+        assertTrue(DatabaseManager.queryStaffTotals(statements).isEmpty());
+        assertEquals(PERIOD_END, lastReset());
+
+        insertTotals(staff, 60_000L, 1);
+        assertEquals(2, rollover.run(PERIOD_END + 1000L));
+        assertEquals(Map.of(staff, new StaffTotals(60_000L, 1)), DatabaseManager.queryPeriodTotals(statements, 2));
+        assertEquals(2, DatabaseManager.queryPeriods(statements).get(0).id());
+    }
+
+    @Test
+    void crashBeforeRenameIsRolledBack() throws SQLException {
+        // The journal row committed, then the server died before the tables moved
+        assertEquals(1, rollover.register(PERIOD_END));
+        assertTrue(DatabaseManager.queryPeriods(statements).isEmpty());
+        assertNull(DatabaseManager.queryPeriodTotals(statements, 1));
+
+        assertEquals(0, rollover.recover());
+
+        assertEquals(0, count("SELECT COUNT(*) FROM staff_periods"));
+        assertEquals(PERIOD_START, lastReset());
+        assertEquals(Map.of(staff, new StaffTotals(3_600_000L, 2)), DatabaseManager.queryStaffTotals(statements));
+        assertEquals(1, rollover.run(PERIOD_END));
+    }
+
+    @Test
+    void crashAfterRenameIsFinished() throws SQLException {
+        // As on MySQL, where the rename commits on its own before the registry is completed
+        int period = rollover.register(PERIOD_END);
+        SqlDialect.SQLITE.archiveTables(connection, PeriodRollover.TABLES, PeriodRollover.suffix(period));
+        assertTrue(DatabaseManager.queryPeriods(statements).isEmpty());
+
+        assertEquals(1, rollover.recover());
+
+        assertEquals(List.of(new StaffPeriod(1, PERIOD_START, PERIOD_END)), DatabaseManager.queryPeriods(statements));
+        assertEquals(Map.of(staff, new StaffTotals(3_600_000L, 2)), DatabaseManager.queryPeriodTotals(statements, 1));
+        assertEquals(PERIOD_END, lastReset());
+        assertEquals(0, rollover.recover());
+    }
+
+    @Test
+    void partlyArchivedPeriodIsLeftAlone() throws SQLException {
+        int period = rollover.register(PERIOD_END);
+        execute("CREATE TABLE staff_time" + PeriodRollover.suffix(period) + " (player_uuid BLOB PRIMARY KEY)");
+
+        assertEquals(0, rollover.recover());
+
+        assertEquals(1, count("SELECT COUNT(*) FROM staff_periods WHERE archived = 0"));
+        assertEquals(2, rollover.run(PERIOD_END));
+        assertFalse(DatabaseManager.queryPeriods(statements).isEmpty());
+    }
+
+    @Test
+    void newPeriodSkipsArchiveTablesAlreadyInTheCatalog() throws SQLException {
+        // Left behind by a rollover whose registry row was lost
+        execute("CREATE TABLE staff_votes_p5 (id INTEGER PRIMARY KEY)");
+
+        assertEquals(6, rollover.run(PERIOD_END));
+        assertEquals(Map.of(staff, new StaffTotals(3_600_000L, 2)), DatabaseManager.queryPeriodTotals(statements, 6));
+        assertNull(DatabaseManager.queryPeriodTotals(statements, 5));
+    }
+
+    private void insertTotals(UUID playerUUID, long totalTime, int votes) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO staff_time (player_uuid, player_name, total_time) VALUES (?, ?, ?)")) {
+            stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+            stmt.setString(2, "staff");
+            stmt.setLong(3, totalTime);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO staff_vote_counts (player_uuid, vote_count) VALUES (?, ?)")) {
+            stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+            stmt.setInt(2, votes);
+            stmt.executeUpdate();
+        }
+    }
+
+    private long lastReset() throws SQLException {
+        return count("SELECT last_reset FROM sanctions_period WHERE id = 1");
+    }
+
+    private long count(String query) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package dev.padrewin.coldtracker.database;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SQLiteStorageBackendTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void backsUpToPathsWithSpacesAndQuotes() throws Exception {
+        for (String name : new String[] {"plain", "with space", "staff's backups", "\"nightly\""}) {
+            File target = Files.createDirectories(tempDir.resolve(name)).resolve("coldtracker.db").toFile();
+            backupAndVerify(target);
+        }
+    }
+
+    @Test
+    void rejectsPathsWithBothQuoteCharacters() throws Exception {
+        File target = tempDir.resolve("staff's \"backup\"").resolve("coldtracker.db").toFile();
+        assertThrows(SQLException.class, () -> SQLiteStorageBackend.quote(target));
+    }
+
+    private void backupAndVerify(File target) throws SQLException {
+        try (Connection source = DriverManager.getConnection("jdbc:sqlite::memory:");
+             Statement stmt = source.createStatement()) {
+            stmt.execute("CREATE TABLE staff_time (total_time INTEGER)");
+            stmt.execute("INSERT INTO staff_time VALUES (42)");
+            stmt.executeUpdate("backup to " + SQLiteStorageBackend.quote(target));
+        }
+
+        assertTrue(target.isFile(), "No backup at " + target);
+        try (Connection copy = DriverManager.getConnection("jdbc:sqlite:" + target.getAbsolutePath());
+             Statement stmt = copy.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT total_time FROM staff_time")) {
+            assertTrue(rs.next());
+            assertEquals(42, rs.getLong(1));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package dev.padrewin.coldtracker.database;
+
+import dev.padrewin.coldtracker.util.TrackerClock;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionLedgerTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final FakeClock clock = new FakeClock(1_700_000_000_000L);
+    private final SessionLedger ledger = new SessionLedger();
+    private final UUID staff = UUID.randomUUID();
+
+    @Test
+    void wallClockStepBackDoesNotEraseTime() {
+        SessionLedger.Entry entry = open();
+        long sessionStart = entry.getSessionStart();
+
+        clock.advance(10 * MINUTE);
+        clock.stepWall(-2 * HOUR);
+        clock.advance(5 * MINUTE);
+
+        long now = clock.monotonicMillis();
+        assertEquals(15 * MINUTE, entry.pendingTime(now));
+        assertEquals(sessionStart + 15 * MINUTE, entry.wallTime(now));
+    }
+
+    @Test
+    void wallClockStepForwardDoesNotAddTime() {
+        SessionLedger.Entry entry = open();
+
+        clock.advance(10 * MINUTE);
+        clock.stepWall(6 * HOUR);
+
+        assertEquals(10 * MINUTE, entry.pendingTime(clock.monotonicMillis()));
+    }
+
+    @Test
+    void checkpointAcrossStepOnlyCountsNewTime() {
+        SessionLedger.Entry entry = open();
+        clock.advance(20 * MINUTE);
+        entry.markCheckpointed(clock.monotonicMillis());
+        assertTrue(entry.isPersisted());
+        assertFalse(entry.isDirty(clock.monotonicMillis()));
+
+        clock.stepWall(-HOUR);
+        clock.advance(MINUTE);
+
+        assertEquals(MINUTE, entry.pendingTime(clock.monotonicMillis()));
+        assertEquals(1, ledger.dirtyEntries(clock.monotonicMillis()).size());
+    }
+
+    @Test
+    void idleStretchAcrossStepIsKeptOutOfActiveTime() {
+        SessionLedger.Entry entry = open();
+        clock.advance(5 * MINUTE);
+        entry.setIdle(true, clock.monotonicMillis());
+        clock.stepWall(3 * HOUR);
+        clock.advance(7 * MINUTE);
+        entry.setIdle(false, clock.monotonicMillis());
+        clock.advance(MINUTE);
+
+        long now = clock.monotonicMillis();
+        assertEquals(13 * MINUTE, entry.pendingTime(now));
+        assertEquals(7 * MINUTE, entry.pendingIdleTime(now));
+        assertEquals(6 * MINUTE, entry.pendingActiveTime(now));
+    }
+
+    @Test
+    void endedSessionStopsAccruing() {
+        SessionLedger.Entry entry = open();
+        clock.advance(4 * MINUTE);
+        entry.end(clock.monotonicMillis());
+        clock.stepWall(-HOUR);
+        clock.advance(HOUR);
+
+        assertEquals(4 * MINUTE, entry.pendingTime(clock.monotonicMillis()));
+    }
+
+    @Test
+    void reopeningKeepsTheRunningSession() {
+        SessionLedger.Entry entry = open();
+        clock.advance(MINUTE);
+        clock.stepWall(-HOUR);
+
+        SessionLedger.Entry again = ledger.open(staff, "renamed", clock.wallMillis(), clock.monotonicMillis());
+
+        assertSame(entry, again);
+        assertEquals("renamed", again.getPlayerName());
+        assertEquals(MINUTE, again.pendingTime(clock.monotonicMillis()));
+    }
+
+    private SessionLedger.Entry open() {
+        return ledger.open(staff, "staff", clock.wallMillis(), clock.monotonicMillis());
+    }
+
+    /**
+     * Monotonic time only moves forward; the wall clock can be stepped either way on top of it,
+     * like an NTP correction.
+     */
+    private static final class FakeClock implements TrackerClock {
+
+        private long monotonic = 1_000L;
+        private long wallOffset;
+
+        FakeClock(long wallStart) {
+            this.wallOffset = wallStart - monotonic;
+        }
+
+        void advance(long millis) {
+            monotonic += millis;
+        }
+
+        void stepWall(long millis) {
+            wallOffset += millis;
+        }
+
+        @Override
+        public long monotonicMillis() {
+            return monotonic;
+        }
+
+        @Override
+        public long wallMillis() {
+            return monotonic + wallOffset;
+        }
+    }
+}
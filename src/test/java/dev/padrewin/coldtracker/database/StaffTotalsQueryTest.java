@@ -0,0 +1,106 @@
+package dev.padrewin.coldtracker.database;
+
+import dev.padrewin.coldtracker.database.migration.SchemaMigrator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StaffTotalsQueryTest {
+
+    private Connection connection;
+    private StatementCache statements;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        new SchemaMigrator(connection, SqlDialect.SQLITE, Logger.getLogger(StaffTotalsQueryTest.class.getName())).migrate();
+        statements = new StatementCache(connection);
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        statements.close();
+        connection.close();
+    }
+
+    @Test
+    void filteredLookupOnlyReturnsRequestedStaff() throws SQLException {
+        UUID timeOnly = UUID.randomUUID();
+        UUID votesOnly = UUID.randomUUID();
+        UUID both = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        insertTime(timeOnly, 1000L);
+        insertVotes(votesOnly, 3);
+        insertTime(both, 2000L);
+        insertVotes(both, 5);
+        insertTime(other, 9000L);
+
+        Map<UUID, StaffTotals> totals = DatabaseManager.queryStaffTotals(statements, List.of(timeOnly, votesOnly, both, UUID.randomUUID()));
+
+        assertEquals(3, totals.size());
+        assertEquals(new StaffTotals(1000L, 0), totals.get(timeOnly));
+        assertEquals(new StaffTotals(0L, 3), totals.get(votesOnly));
+        assertEquals(new StaffTotals(2000L, 5), totals.get(both));
+        assertFalse(totals.containsKey(other));
+        assertEquals(4, DatabaseManager.queryStaffTotals(statements).size());
+    }
+
+    @Test
+    void largeLookupsAreSplitIntoChunks() throws SQLException {
+        List<UUID> wanted = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            UUID playerUUID = UUID.randomUUID();
+            insertTime(playerUUID, i);
+            wanted.add(playerUUID);
+        }
+
+        Map<UUID, StaffTotals> totals = DatabaseManager.queryStaffTotals(statements, wanted);
+
+        assertEquals(1500, totals.size());
+        for (int i = 0; i < wanted.size(); i++) {
+            assertEquals(i, totals.get(wanted.get(i)).totalTime());
+        }
+        // 1500 UUIDs: five full chunks, then 220 padded to 256, which shares the full chunk's statement
+        assertEquals(1, statements.size());
+    }
+
+    @Test
+    void emptyLookupReadsNothing() throws SQLException {
+        insertTime(UUID.randomUUID(), 1000L);
+
+        assertTrue(DatabaseManager.queryStaffTotals(statements, Set.of()).isEmpty());
+        assertEquals(0, statements.size());
+    }
+
+    private void insertTime(UUID playerUUID, long totalTime) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO staff_time (player_uuid, player_name, total_time) VALUES (?, ?, ?)")) {
+            stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+            stmt.setString(2, "staff");
+            stmt.setLong(3, totalTime);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void insertVotes(UUID playerUUID, int votes) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO staff_vote_counts (player_uuid, vote_count) VALUES (?, ?)")) {
+            stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+            stmt.setInt(2, votes);
+            stmt.executeUpdate();
+        }
+    }
+}
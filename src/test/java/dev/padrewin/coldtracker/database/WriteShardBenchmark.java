@@ -0,0 +1,137 @@
+package dev.padrewin.coldtracker.database;
+
+import dev.padrewin.coldtracker.database.migration.SchemaMigrator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Write throughput of the group commit with 1, 4 and 8 shards on a MySQL or MariaDB server, the
+ * backend sharding is meant for. Every write credits playtime and activity the way a session
+ * checkpoint does, for one of a few hundred staff members, and each invocation waits until a
+ * burst of them has committed, like a restart wave.
+ *
+ * Not part of the test run. After {@code mvn test-compile}, run it against a disposable database
+ * with {@code java -Dcoldtracker.test.mysql.url=<url> -cp target/test-classes:<test classpath>
+ * org.openjdk.jmh.Main WriteShardBenchmark}; see {@link MySQLTestDatabase}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteShardBenchmark {
+
+    private static final int STAFF = 300;
+    private static final int WRITES_PER_BURST = 1000;
+
+    @Param({"1", "4", "8"})
+    private int shards;
+
+    private final SqlDialect dialect = SqlDialect.MYSQL;
+    private final Random random = new Random(0);
+    private UUID[] staff;
+    private WriteShards writes;
+    private String creditPlaytimeQuery;
+    private String recordActivityQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        if (!MySQLTestDatabase.isConfigured()) {
+            throw new IllegalStateException("Set -D" + MySQLTestDatabase.URL_PROPERTY);
+        }
+        Logger logger = Logger.getLogger(WriteShardBenchmark.class.getName());
+        try (Connection connection = MySQLTestDatabase.open()) {
+            new SchemaMigrator(connection, dialect, logger).migrate();
+        }
+
+        staff = new UUID[STAFF];
+        for (int i = 0; i < STAFF; i++) {
+            staff[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        creditPlaytimeQuery = DatabaseManager.creditPlaytimeQuery(dialect);
+        recordActivityQuery = DatabaseManager.recordActivityQuery(dialect);
+
+        // The defaults of database.group-commit-window-ms and database.group-commit-max-operations
+        writes = new WriteShards(shards, 10_000, LaneExecutor.OverflowPolicy.REJECT, 5, 256, logger, new WriteShards.Host() {
+            @Override
+            public boolean isUnavailable() {
+                return false;
+            }
+
+            @Override
+            public void ensureConnection(WriteShard shard) {
+            }
+
+            @Override
+            public void afterDrain(WriteShard shard) {
+            }
+        });
+        for (WriteShard shard : writes.shards()) {
+            shard.connection = MySQLTestDatabase.connect();
+            shard.statements = new StatementCache(shard.connection);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException, InterruptedException {
+        for (WriteShard shard : writes.shards()) {
+            shard.executor.shutdown();
+        }
+        for (WriteShard shard : writes.shards()) {
+            shard.executor.awaitTermination(10, TimeUnit.SECONDS);
+            shard.statements.close();
+            shard.connection.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WRITES_PER_BURST)
+    public void checkpointBurst() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[WRITES_PER_BURST];
+        long bucket = System.currentTimeMillis() / 3_600_000L * 3_600_000L;
+        for (int i = 0; i < WRITES_PER_BURST; i++) {
+            UUID playerUUID = staff[random.nextInt(STAFF)];
+            WriteShard shard = writes.shardFor(playerUUID);
+            futures[i] = writes.submit(shard, () -> {
+                byte[] key = UuidBytes.toBytes(playerUUID);
+                PreparedStatement creditStmt = shard.statements.prepare(creditPlaytimeQuery);
+                creditStmt.setBytes(1, key);
+                creditStmt.setString(2, "staff");
+                creditStmt.setLong(3, 60_000L);
+                creditStmt.setLong(4, 0L);
+                creditStmt.executeUpdate();
+
+                PreparedStatement activityStmt = shard.statements.prepare(recordActivityQuery);
+                activityStmt.setBytes(1, key);
+                activityStmt.setLong(2, bucket);
+                activityStmt.setLong(3, 60_000L);
+                activityStmt.setInt(4, 0);
+                activityStmt.setInt(5, 0);
+                activityStmt.executeUpdate();
+            }, null);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
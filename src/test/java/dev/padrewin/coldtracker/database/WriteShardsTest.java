@@ -0,0 +1,291 @@
+package dev.padrewin.coldtracker.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteShardsTest {
+
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    private final Random random = new Random(0);
+    private WriteShards writes;
+
+    @AfterEach
+    void closeShards() throws SQLException, InterruptedException {
+        for (WriteShard shard : writes.shards()) {
+            shard.executor.shutdown();
+        }
+        for (WriteShard shard : writes.shards()) {
+            assertTrue(shard.executor.awaitTermination(10, TimeUnit.SECONDS));
+            shard.statements.close();
+            shard.connection.close();
+        }
+    }
+
+    @Test
+    void routesEveryStaffMemberToOneShard() throws SQLException {
+        open(8, 0, 64);
+
+        Map<WriteShard, Integer> perShard = new HashMap<>();
+        for (int i = 0; i < 8000; i++) {
+            UUID playerUUID = new UUID(random.nextLong(), random.nextLong());
+            WriteShard shard = writes.shardFor(playerUUID);
+            assertSame(shard, writes.shardFor(new UUID(playerUUID.getMostSignificantBits(), playerUUID.getLeastSignificantBits())));
+            perShard.merge(shard, 1, Integer::sum);
+        }
+
+        assertEquals(8, perShard.size());
+        for (int count : perShard.values()) {
+            assertTrue(count > 800 && count < 1200, "Uneven shard: " + perShard.values());
+        }
+    }
+
+    @Test
+    void singleShardTakesEveryWrite() throws SQLException {
+        open(1, 0, 64);
+
+        for (int i = 0; i < 100; i++) {
+            assertSame(writes.shards()[0], writes.shardFor(UUID.randomUUID()));
+        }
+    }
+
+    @Test
+    void writesForOneStaffMemberCommitInSubmissionOrder() throws Exception {
+        open(4, 1, 16);
+        List<UUID> staff = randomStaff(40);
+        Map<UUID, List<Integer>> committed = new HashMap<>();
+        Map<UUID, Set<String>> threads = new HashMap<>();
+        for (UUID playerUUID : staff) {
+            committed.put(playerUUID, Collections.synchronizedList(new ArrayList<>()));
+            threads.put(playerUUID, Collections.synchronizedSet(new HashSet<>()));
+        }
+
+        // Interleaved across staff members, as joins, checkpoints and votes arrive
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int sequence = 0; sequence < 100; sequence++) {
+            for (UUID playerUUID : staff) {
+                int value = sequence;
+                futures.add(writes.submit(writes.shardFor(playerUUID), () -> {
+                    committed.get(playerUUID).add(value);
+                    threads.get(playerUUID).add(Thread.currentThread().getName());
+                }, null));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        for (UUID playerUUID : staff) {
+            List<Integer> values = committed.get(playerUUID);
+            assertEquals(100, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals(i, values.get(i));
+            }
+            assertEquals(1, threads.get(playerUUID).size());
+        }
+        assertEquals(4000, writes.getCommittedWrites());
+    }
+
+    @Test
+    void joinFlushQuitStayInOrderAcrossShards() throws Exception {
+        open(4, 5, 64);
+        for (WriteShard shard : writes.shards()) {
+            execute(shard, "CREATE TABLE sessions (player_uuid BLOB PRIMARY KEY, checkpoints INTEGER NOT NULL DEFAULT 0)");
+        }
+
+        for (int round = 0; round < 20; round++) {
+            List<UUID> staff = randomStaff(16);
+            Map<UUID, List<String>> events = new HashMap<>();
+            for (UUID playerUUID : staff) {
+                events.put(playerUUID, Collections.synchronizedList(new ArrayList<>()));
+            }
+
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (UUID playerUUID : staff) {
+                WriteShard shard = writes.shardFor(playerUUID);
+                futures.add(writes.submit(shard, () -> {
+                    update(shard, "INSERT INTO sessions (player_uuid) VALUES (?)", playerUUID);
+                    events.get(playerUUID).add("join");
+                }, null));
+            }
+            // A checkpoint of every open session, like the periodic flush: drain, then write what is open
+            futures.add(writes.runOnEveryShard(LaneExecutor.Lane.WRITE, shard -> {
+                writes.drain(shard);
+                for (UUID playerUUID : openSessions(shard)) {
+                    checkpoint(shard, playerUUID);
+                    events.get(playerUUID).add("flush");
+                }
+            }));
+            for (UUID playerUUID : staff) {
+                WriteShard shard = writes.shardFor(playerUUID);
+                futures.add(writes.submit(shard, () -> {
+                    int closed = update(shard, "DELETE FROM sessions WHERE player_uuid = ?", playerUUID);
+                    events.get(playerUUID).add(closed == 1 ? "quit" : "quit without a session");
+                }, null));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+            for (UUID playerUUID : staff) {
+                List<String> sequence = events.get(playerUUID);
+                assertTrue(sequence.equals(List.of("join", "flush", "quit")) || sequence.equals(List.of("join", "quit")),
+                        "Round " + round + ": " + sequence);
+            }
+            for (WriteShard shard : writes.shards()) {
+                assertTrue(openSessions(shard).isEmpty());
+            }
+        }
+    }
+
+    @Test
+    void runOnEveryShardDrainsEveryQueue() throws Exception {
+        // A commit window long enough that nothing drains on its own during the test
+        open(4, 60_000, 1_000);
+        for (WriteShard shard : writes.shards()) {
+            execute(shard, "CREATE TABLE totals (player_uuid BLOB PRIMARY KEY)");
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (UUID playerUUID : randomStaff(200)) {
+            WriteShard shard = writes.shardFor(playerUUID);
+            futures.add(writes.submit(shard, () -> update(shard, "INSERT INTO totals (player_uuid) VALUES (?)", playerUUID), null));
+        }
+        assertEquals(200, writes.getQueueDepth());
+        assertFalse(futures.stream().anyMatch(CompletableFuture::isDone));
+
+        writes.runOnEveryShard(LaneExecutor.Lane.WRITE, writes::drain).get(30, TimeUnit.SECONDS);
+
+        assertTrue(futures.stream().allMatch(future -> future.isDone() && !future.isCompletedExceptionally()));
+        assertEquals(0, writes.getQueueDepth());
+        assertEquals(200, writes.getCommittedWrites());
+        assertEquals(4, writes.getCommittedWriteBatches());
+        int rows = 0;
+        for (WriteShard shard : writes.shards()) {
+            rows += writes.supplyAsync(shard, LaneExecutor.Lane.INTERACTIVE, () -> count(shard, "SELECT COUNT(*) FROM totals")).get();
+        }
+        assertEquals(200, rows);
+    }
+
+    @Test
+    void failingWriteOnlyFailsItself() throws Exception {
+        open(1, 0, 64);
+        WriteShard shard = writes.shards()[0];
+        execute(shard, "CREATE TABLE totals (player_uuid BLOB PRIMARY KEY)");
+        UUID playerUUID = UUID.randomUUID();
+        boolean[] rolledBack = {false};
+
+        writes.shards()[0].executor.execute(LaneExecutor.Lane.WRITE, () -> {
+            // Hold the shard so all three land in one batch
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CompletableFuture<Void> first = writes.submit(shard, () -> update(shard, "INSERT INTO totals (player_uuid) VALUES (?)", playerUUID), null);
+        CompletableFuture<Void> duplicate = writes.submit(shard, () -> update(shard, "INSERT INTO totals (player_uuid) VALUES (?)", playerUUID),
+                () -> rolledBack[0] = true);
+        CompletableFuture<Void> other = writes.submit(shard, () -> update(shard, "INSERT INTO totals (player_uuid) VALUES (?)", UUID.randomUUID()), null);
+
+        other.get(10, TimeUnit.SECONDS);
+        first.get();
+        assertTrue(assertThrows(ExecutionException.class, duplicate::get).getCause() instanceof SQLException);
+        assertTrue(rolledBack[0]);
+        assertEquals(2, writes.supplyAsync(shard, LaneExecutor.Lane.INTERACTIVE, () -> count(shard, "SELECT COUNT(*) FROM totals")).get());
+    }
+
+    private void open(int shardCount, int windowMillis, int maxOperations) throws SQLException {
+        writes = new WriteShards(shardCount, QUEUE_CAPACITY, LaneExecutor.OverflowPolicy.REJECT, windowMillis, maxOperations,
+                Logger.getLogger(WriteShardsTest.class.getName()), new WriteShards.Host() {
+                    @Override
+                    public boolean isUnavailable() {
+                        return false;
+                    }
+
+                    @Override
+                    public void ensureConnection(WriteShard shard) {
+                    }
+
+                    @Override
+                    public void afterDrain(WriteShard shard) {
+                    }
+                });
+        // One database per shard, as every shard has its own connection
+        for (WriteShard shard : writes.shards()) {
+            shard.connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+            shard.statements = new StatementCache(shard.connection);
+        }
+    }
+
+    private List<UUID> randomStaff(int count) {
+        List<UUID> staff = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            staff.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return staff;
+    }
+
+    private static List<UUID> openSessions(WriteShard shard) {
+        List<UUID> open = new ArrayList<>();
+        try (Statement stmt = shard.connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT player_uuid FROM sessions")) {
+            while (rs.next()) {
+                open.add(UuidBytes.fromBytes(rs.getBytes(1)));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return open;
+    }
+
+    private static void checkpoint(WriteShard shard, UUID playerUUID) {
+        try {
+            update(shard, "UPDATE sessions SET checkpoints = checkpoints + 1 WHERE player_uuid = ?", playerUUID);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int update(WriteShard shard, String sql, UUID playerUUID) throws SQLException {
+        PreparedStatement stmt = shard.statements.prepare(sql);
+        stmt.setBytes(1, UuidBytes.toBytes(playerUUID));
+        return stmt.executeUpdate();
+    }
+
+    private static int count(WriteShard shard, String sql) {
+        try (Statement stmt = shard.connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void execute(WriteShard shard, String sql) throws SQLException {
+        try (Statement stmt = shard.connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Throws on the n-th migration step, either before it runs (a crash between two committed
+ * steps) or after its work but before its commit (a crash mid-step).
+ */
+final class CrashSwitch {
+
+    static final String MESSAGE = "Simulated crash";
+
+    private final int crashAt;
+    private final boolean afterStep;
+    private int steps;
+    private boolean fired;
+
+    CrashSwitch(int crashAt, boolean afterStep) {
+        this.crashAt = crashAt;
+        this.afterStep = afterStep;
+    }
+
+    boolean fired() {
+        return fired;
+    }
+
+    /**
+     * @return the given migrations with every step counted against this switch
+     */
+    List<Migration> wrap(List<Migration> migrations) {
+        List<Migration> wrapped = new ArrayList<>();
+        for (Migration migration : migrations) {
+            wrapped.add(new Migration() {
+                @Override
+                public int getVersion() {
+                    return migration.getVersion();
+                }
+
+                @Override
+                public String getDescription() {
+                    return migration.getDescription();
+                }
+
+                @Override
+                public boolean step(Connection connection, SqlDialect dialect) throws SQLException {
+                    if (!afterStep) {
+                        count();
+                    }
+                    boolean more = migration.step(connection, dialect);
+                    if (afterStep) {
+                        count();
+                    }
+                    return more;
+                }
+            });
+        }
+        return wrapped;
+    }
+
+    private void count() throws SQLException {
+        if (++steps == crashAt) {
+            fired = true;
+            throw new SQLException(MESSAGE);
+        }
+    }
+}
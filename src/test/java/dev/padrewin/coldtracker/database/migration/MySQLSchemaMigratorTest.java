@@ -0,0 +1,184 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.MySQLTestDatabase;
+import dev.padrewin.coldtracker.database.SqlDialect;
+import dev.padrewin.coldtracker.database.UuidBytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The migrations on a real MySQL or MariaDB server, see {@link MySQLTestDatabase}. DDL commits
+ * on its own there, so an interrupted step cannot be rolled back and has to be safe to re-run.
+ */
+class MySQLSchemaMigratorTest {
+
+    private static final int LATEST_VERSION = 11;
+    private static final int PERIOD_REGISTRY_VERSION = 7;
+
+    private static final UUID ALICE = UUID.fromString("6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f");
+    private static final UUID BOB = UUID.fromString("0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d");
+
+    private final Logger logger = Logger.getLogger(MySQLSchemaMigratorTest.class.getName());
+    private Connection connection;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        connection = MySQLTestDatabase.open();
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    @Test
+    void migratesEmptyDatabaseToLatest() throws SQLException {
+        assertEquals(LATEST_VERSION, migrate());
+        assertEquals(LATEST_VERSION, migrate());
+
+        assertEquals(LATEST_VERSION, count("SELECT COUNT(*) FROM schema_version"));
+        assertEquals(1, count("SELECT COUNT(*) FROM sanctions_period"));
+        assertEquals("binary(16)", queryString("SELECT column_type FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = 'staff_time' AND column_name = 'player_uuid'"));
+    }
+
+    @Test
+    void migratesArchivedPeriodsFromV7() throws SQLException, IOException {
+        loadV7();
+
+        assertEquals(LATEST_VERSION, migrate());
+
+        assertEquals(2, count("SELECT COUNT(*) FROM staff_periods WHERE archived = 1"));
+        assertEquals(1000000L, queryLong("SELECT total_time FROM staff_time_p1 WHERE player_uuid = ?", ALICE));
+        assertEquals(2000000L, queryLong("SELECT total_time FROM staff_time_p1 WHERE player_uuid = ?", BOB));
+        assertEquals(3000000L, queryLong("SELECT total_time FROM staff_time_p2 WHERE player_uuid = ?", ALICE));
+        assertEquals(2L, queryLong("SELECT vote_count FROM staff_vote_counts_p2 WHERE player_uuid = ?", BOB));
+        assertEquals(1681000000000L, queryLong("SELECT vote_time FROM staff_votes_p1 WHERE id = 1"));
+        assertEquals("MinecraftServers", queryString(
+                "SELECT s.name FROM staff_votes_p2 v JOIN vote_services s ON s.id = v.service_id WHERE v.id = 2"));
+
+        assertEquals(7200000L, queryLong("SELECT total_time FROM staff_time WHERE player_uuid = ?", ALICE));
+        assertEquals(0L, queryLong("SELECT idle_time FROM staff_time WHERE player_uuid = ?", ALICE));
+        assertEquals(1700000300000L, queryLong("SELECT last_seen FROM staff_sessions WHERE player_uuid = ?", BOB));
+        assertEquals(1700000000000L, queryLong("SELECT vote_time FROM staff_votes WHERE id = 4"));
+        assertEquals(3600000L, queryLong("SELECT playtime FROM staff_activity WHERE player_uuid = ?", ALICE));
+
+        assertEquals(1, count("SELECT COUNT(*) FROM migration_quarantine WHERE source_table = 'staff_time_p1' AND row_key = 'player_uuid=CONSOLE'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM migration_quarantine WHERE source_table = 'staff_votes_p2' AND row_key = 'id=3'"));
+        assertEquals(2, count("SELECT COUNT(*) FROM migration_quarantine"));
+        assertEquals(0, count("SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE() " +
+                "AND (table_name LIKE '%\\_compact' OR table_name LIKE '%\\_legacy')"));
+    }
+
+    @Test
+    void resumesAfterCrashBetweenSteps() throws SQLException, IOException {
+        loadV7();
+        migrate();
+        String expected = SchemaDump.dump(connection, SqlDialect.MYSQL);
+
+        for (boolean afterStep : new boolean[] {false, true}) {
+            int crashAt = 1;
+            while (crashesAndResumes(crashAt, afterStep, expected)) {
+                crashAt++;
+            }
+            assertTrue(crashAt > LATEST_VERSION - PERIOD_REGISTRY_VERSION, "Only " + crashAt + " steps");
+        }
+    }
+
+    private boolean crashesAndResumes(int crashAt, boolean afterStep, String expected) throws SQLException, IOException {
+        closeDatabase();
+        openDatabase();
+        loadV7();
+
+        CrashSwitch crash = new CrashSwitch(crashAt, afterStep);
+        try {
+            new SchemaMigrator(connection, SqlDialect.MYSQL, logger, crash.wrap(SchemaMigrator.migrations(logger))).migrate();
+        } catch (SQLException e) {
+            assertEquals(CrashSwitch.MESSAGE, e.getMessage());
+        }
+        if (!crash.fired()) {
+            return false;
+        }
+
+        String where = "after a crash " + (afterStep ? "inside" : "before") + " step " + crashAt;
+        assertEquals(LATEST_VERSION, migrate(), where);
+        assertEquals(expected, SchemaDump.dump(connection, SqlDialect.MYSQL), where);
+        return true;
+    }
+
+    private int migrate() throws SQLException {
+        return new SchemaMigrator(connection, SqlDialect.MYSQL, logger).migrate();
+    }
+
+    /**
+     * Builds the schema as of version 7 with the migrations of that time, archives two periods
+     * the way a rollover did back then, and fills it with the rows of the SQLite v7 fixture.
+     */
+    private void loadV7() throws SQLException, IOException {
+        new SchemaMigrator(connection, SqlDialect.MYSQL, logger, SchemaMigrator.migrations(logger).subList(0, PERIOD_REGISTRY_VERSION)).migrate();
+
+        String script;
+        try (InputStream in = MySQLSchemaMigratorTest.class.getResourceAsStream("/migration/v7-sqlite.sql")) {
+            assertNotNull(in, "Missing fixture");
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            for (int period = 1; period <= 2; period++) {
+                for (String table : new String[] {"staff_time", "staff_votes", "staff_vote_counts"}) {
+                    stmt.execute("CREATE TABLE " + table + "_p" + period + " LIKE " + table);
+                }
+            }
+            for (String line : script.split("\n")) {
+                // The migrations above already recorded their versions and opened the sanctions period
+                if (line.startsWith("INSERT INTO sanctions_period")) {
+                    stmt.execute(line.replace("INSERT INTO", "REPLACE INTO").replace(";", ""));
+                } else if (line.startsWith("INSERT INTO") && !line.startsWith("INSERT INTO schema_version")) {
+                    stmt.execute(line.replace(";", ""));
+                }
+            }
+        }
+    }
+
+    private long queryLong(String sql, UUID... uuids) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < uuids.length; i++) {
+                stmt.setBytes(i + 1, UuidBytes.toBytes(uuids[i]));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next(), "No row for " + sql);
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private String queryString(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            assertTrue(rs.next(), "No row for " + sql);
+            return rs.getString(1);
+        }
+    }
+
+    private int count(String sql) throws SQLException {
+        return (int) queryLong(sql);
+    }
+}
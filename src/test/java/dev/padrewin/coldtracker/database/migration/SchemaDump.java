@@ -0,0 +1,82 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Every table with its rows in a stable order, to compare two migrated databases. Columns that
+ * hold the time a migration ran are ignored, and so are surrogate ids a resumed copy may assign
+ * anew: quarantine ids, and vote service ids, which are replaced by the service name.
+ */
+final class SchemaDump {
+
+    private SchemaDump() {
+    }
+
+    static String dump(Connection connection, SqlDialect dialect) throws SQLException {
+        StringBuilder dump = new StringBuilder();
+        List<String> tables = new ArrayList<>();
+        String schemaQuery = dialect == SqlDialect.SQLITE
+                ? "SELECT name, type, sql AS definition FROM sqlite_master WHERE type IN ('table', 'index') AND name NOT LIKE 'sqlite_%' ORDER BY name"
+                // information_schema has no CREATE statement, and SHOW CREATE TABLE includes the auto-increment counter
+                : "SELECT c.table_name AS name, 'table' AS type, GROUP_CONCAT(CONCAT(c.column_name, ' ', c.column_type, ' ', c.is_nullable, ' ', " +
+                  "COALESCE(c.column_default, '')) ORDER BY c.ordinal_position SEPARATOR ', ') AS definition " +
+                  "FROM information_schema.columns c WHERE c.table_schema = DATABASE() GROUP BY c.table_name " +
+                  "UNION ALL SELECT CONCAT(s.table_name, '.', s.index_name), 'index', " +
+                  "GROUP_CONCAT(s.column_name ORDER BY s.seq_in_index SEPARATOR ', ') " +
+                  "FROM information_schema.statistics s WHERE s.table_schema = DATABASE() GROUP BY s.table_name, s.index_name " +
+                  "ORDER BY 1";
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(schemaQuery)) {
+            while (rs.next()) {
+                dump.append(rs.getString("name")).append(": ").append(rs.getString("definition")).append('\n');
+                if (rs.getString("type").equals("table")) {
+                    tables.add(rs.getString("name"));
+                }
+            }
+        }
+
+        for (String table : tables) {
+            dump.append(table).append(":\n");
+            String query;
+            if (table.equals("migration_quarantine")) {
+                query = "SELECT source_table, row_key, reason, row_data FROM migration_quarantine ORDER BY 1, 2";
+            } else if (table.equals("vote_services")) {
+                query = "SELECT name FROM vote_services ORDER BY 1";
+            } else if (hasColumn(connection, table, "service_id")) {
+                query = "SELECT t.*, s.name AS service_name FROM " + table + " t JOIN vote_services s ON s.id = t.service_id ORDER BY 1, 2";
+            } else {
+                query = "SELECT * FROM " + table + " ORDER BY 1, 2";
+            }
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery(query)) {
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    for (int i = 1; i <= columns; i++) {
+                        String column = rs.getMetaData().getColumnLabel(i);
+                        if (column.equals("applied_at") || column.equals("quarantined_at") || column.equals("service_id")) {
+                            continue;
+                        }
+                        Object value = rs.getObject(i);
+                        dump.append(value instanceof byte[] bytes ? HexFormat.of().formatHex(bytes) : String.valueOf(value)).append(' ');
+                    }
+                    dump.append('\n');
+                }
+            }
+        }
+        return dump.toString();
+    }
+
+    private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+}
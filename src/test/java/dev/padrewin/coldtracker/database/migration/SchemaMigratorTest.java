@@ -0,0 +1,250 @@
+package dev.padrewin.coldtracker.database.migration;
+
+import dev.padrewin.coldtracker.database.SqlDialect;
+import dev.padrewin.coldtracker.database.UuidBytes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaMigratorTest {
+
+    private static final int LATEST_VERSION = 11;
+
+    private static final UUID ALICE = UUID.fromString("6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f");
+    private static final UUID BOB = UUID.fromString("0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d");
+
+    private final Logger logger = Logger.getLogger(SchemaMigratorTest.class.getName());
+    private Connection connection;
+
+    @BeforeEach
+    void openDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void migratesEmptyDatabaseToLatest() throws SQLException {
+        assertEquals(LATEST_VERSION, migrate());
+        assertTrue(hasColumn("staff_time", "idle_time"));
+        assertTrue(hasColumn("staff_sessions", "idle_time"));
+        assertEquals(1, count("SELECT COUNT(*) FROM sanctions_period"));
+    }
+
+    @Test
+    void migratesUnversionedDatabaseFrom143ToLatest() throws SQLException, IOException {
+        loadFixture("/migration/v1-sqlite.sql");
+
+        assertEquals(LATEST_VERSION, migrate());
+
+        // Totals survive the switch to binary UUIDs and start with no idle time
+        assertEquals(7200000L, queryLong("SELECT total_time FROM staff_time WHERE player_uuid = ?", ALICE));
+        assertEquals(3600000L, queryLong("SELECT total_time FROM staff_time WHERE player_uuid = ?", BOB));
+        assertEquals(0L, queryLong("SELECT idle_time FROM staff_time WHERE player_uuid = ?", ALICE));
+        assertEquals(1700000000000L, queryLong("SELECT join_time FROM staff_sessions WHERE player_uuid = ?", BOB));
+
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT player_uuid FROM staff_time ORDER BY player_uuid")) {
+            assertTrue(rs.next());
+            assertArrayEquals(UuidBytes.toBytes(BOB), rs.getBytes(1));
+            assertTrue(rs.next());
+            assertArrayEquals(UuidBytes.toBytes(ALICE), rs.getBytes(1));
+        }
+
+        // Vote times become epoch millis and seconds are scaled; an unreadable one is quarantined
+        assertEquals(1700000000000L, queryLong("SELECT vote_time FROM staff_votes WHERE id = 1"));
+        assertEquals(1700000100000L, queryLong("SELECT vote_time FROM staff_votes WHERE id = 2"));
+        assertEquals(0, count("SELECT COUNT(*) FROM staff_votes WHERE id = 3"));
+        assertEquals("vote_time is not an epoch timestamp", queryString(
+                "SELECT reason FROM migration_quarantine WHERE source_table = 'staff_votes' AND row_key = 'id=3'"));
+        assertTrue(queryString("SELECT row_data FROM migration_quarantine WHERE row_key = 'id=3'").contains("vote_time=yesterday"));
+
+        // A row whose key is not a UUID is kept aside instead of being dropped
+        assertEquals("player_uuid is not a UUID", queryString(
+                "SELECT reason FROM migration_quarantine WHERE source_table = 'staff_time' AND row_key = 'player_uuid=CONSOLE'"));
+        assertTrue(queryString("SELECT row_data FROM migration_quarantine WHERE source_table = 'staff_time'").contains("total_time=60000"));
+        assertEquals(2, count("SELECT COUNT(*) FROM migration_quarantine"));
+        assertEquals(2, count("SELECT COUNT(*) FROM vote_services"));
+        assertEquals(2L, queryLong("SELECT vote_count FROM staff_vote_counts WHERE player_uuid = ?", ALICE));
+        assertEquals(1L, queryLong("SELECT vote_count FROM staff_vote_counts WHERE player_uuid = ?", BOB));
+
+        // An existing install keeps its sanctions period instead of restarting it
+        assertEquals(1690000000000L, queryLong("SELECT last_reset FROM sanctions_period WHERE id = 1"));
+    }
+
+    @Test
+    void rerunIsNoOp() throws SQLException, IOException {
+        loadFixture("/migration/v1-sqlite.sql");
+        migrate();
+
+        assertEquals(LATEST_VERSION, migrate());
+        assertEquals(2, count("SELECT COUNT(*) FROM staff_time"));
+        assertEquals(2, count("SELECT COUNT(*) FROM staff_votes"));
+        assertEquals(2, count("SELECT COUNT(*) FROM migration_quarantine"));
+        assertEquals(LATEST_VERSION, count("SELECT COUNT(*) FROM schema_version"));
+        assertFalse(hasTable("staff_time_compact"));
+    }
+
+    @Test
+    void migratesArchivedPeriodsFromV7() throws SQLException, IOException {
+        loadFixture("/migration/v7-sqlite.sql");
+
+        assertEquals(LATEST_VERSION, migrate());
+
+        // Archived tables are converted like the live ones and stay registered
+        assertEquals(2, count("SELECT COUNT(*) FROM staff_periods"));
+        assertEquals(1000000L, queryLong("SELECT total_time FROM staff_time_p1 WHERE player_uuid = ?", ALICE));
+        assertEquals(2000000L, queryLong("SELECT total_time FROM staff_time_p1 WHERE player_uuid = ?", BOB));
+        assertEquals(3000000L, queryLong("SELECT total_time FROM staff_time_p2 WHERE player_uuid = ?", ALICE));
+        assertEquals(1L, queryLong("SELECT vote_count FROM staff_vote_counts_p1 WHERE player_uuid = ?", ALICE));
+        assertEquals(2L, queryLong("SELECT vote_count FROM staff_vote_counts_p2 WHERE player_uuid = ?", BOB));
+        assertEquals(1681000000000L, queryLong("SELECT vote_time FROM staff_votes_p1 WHERE id = 1"));
+        assertEquals(1686000000000L, queryLong("SELECT vote_time FROM staff_votes_p2 WHERE id = 2"));
+        assertEquals("MinecraftServers", queryString(
+                "SELECT s.name FROM staff_votes_p2 v JOIN vote_services s ON s.id = v.service_id WHERE v.id = 2"));
+
+        // So are the live tables next to them
+        assertEquals(7200000L, queryLong("SELECT total_time FROM staff_time WHERE player_uuid = ?", ALICE));
+        assertEquals(1700000300000L, queryLong("SELECT last_seen FROM staff_sessions WHERE player_uuid = ?", BOB));
+        assertEquals(1700000000000L, queryLong("SELECT vote_time FROM staff_votes WHERE id = 4"));
+        assertEquals(3600000L, queryLong("SELECT playtime FROM staff_activity WHERE player_uuid = ?", ALICE));
+        assertEquals(3600000L, queryLong("SELECT duration FROM staff_session_log WHERE player_uuid = ?", ALICE));
+
+        // Rows that cannot be converted are kept aside per archived table
+        assertEquals(1, count("SELECT COUNT(*) FROM migration_quarantine WHERE source_table = 'staff_time_p1' AND row_key = 'player_uuid=CONSOLE'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM migration_quarantine WHERE source_table = 'staff_votes_p2' AND row_key = 'id=3'"));
+        assertEquals(2, count("SELECT COUNT(*) FROM migration_quarantine"));
+        assertFalse(hasTable("staff_time_p1_compact"));
+        assertFalse(hasTable("staff_votes_p2_compact"));
+    }
+
+    @Test
+    void resumesAfterCrashBetweenSteps() throws SQLException, IOException {
+        for (String fixture : new String[] {"/migration/v1-sqlite.sql", "/migration/v7-sqlite.sql"}) {
+            closeDatabase();
+            openDatabase();
+            loadFixture(fixture);
+            migrate();
+            String expected = SchemaDump.dump(connection, SqlDialect.SQLITE);
+
+            for (boolean afterStep : new boolean[] {false, true}) {
+                int crashAt = 1;
+                while (crashesAndResumes(fixture, crashAt, afterStep, expected)) {
+                    crashAt++;
+                }
+                // Every migration runs at least one step, v8 several
+                assertTrue(crashAt > LATEST_VERSION, "Only " + crashAt + " steps in " + fixture);
+            }
+        }
+    }
+
+    /**
+     * Migrates a fresh copy of the fixture with a crash at the given step, then migrates again.
+     *
+     * @return false if the migration finished before reaching that step
+     */
+    private boolean crashesAndResumes(String fixture, int crashAt, boolean afterStep, String expected) throws SQLException, IOException {
+        closeDatabase();
+        openDatabase();
+        loadFixture(fixture);
+
+        CrashSwitch crash = new CrashSwitch(crashAt, afterStep);
+        try {
+            new SchemaMigrator(connection, SqlDialect.SQLITE, logger, crash.wrap(SchemaMigrator.migrations(logger))).migrate();
+        } catch (SQLException e) {
+            assertEquals(CrashSwitch.MESSAGE, e.getMessage());
+        }
+        if (!crash.fired()) {
+            return false;
+        }
+
+        String where = fixture + " after a crash " + (afterStep ? "inside" : "before") + " step " + crashAt;
+        assertEquals(LATEST_VERSION, migrate(), where);
+        assertEquals(expected, SchemaDump.dump(connection, SqlDialect.SQLITE), where);
+        return true;
+    }
+
+    private int migrate() throws SQLException {
+        return new SchemaMigrator(connection, SqlDialect.SQLITE, logger).migrate();
+    }
+
+    private void loadFixture(String resource) throws IOException, SQLException {
+        String script;
+        try (InputStream in = SchemaMigratorTest.class.getResourceAsStream(resource)) {
+            assertNotNull(in, "Missing fixture " + resource);
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        StringBuilder sql = new StringBuilder();
+        for (String line : script.split("\n")) {
+            if (!line.startsWith("--")) {
+                sql.append(line).append('\n');
+            }
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            for (String statement : sql.toString().split(";")) {
+                if (!statement.isBlank()) {
+                    stmt.execute(statement);
+                }
+            }
+        }
+    }
+
+    private long queryLong(String sql, UUID... uuids) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < uuids.length; i++) {
+                stmt.setBytes(i + 1, UuidBytes.toBytes(uuids[i]));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next(), "No row for " + sql);
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private String queryString(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            assertTrue(rs.next(), "No row for " + sql);
+            return rs.getString(1);
+        }
+    }
+
+    private int count(String sql) throws SQLException {
+        return (int) queryLong(sql);
+    }
+
+    private boolean hasColumn(String table, String column) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getColumns(null, null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    private boolean hasTable(String table) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getTables(null, null, table, null)) {
+            return rs.next();
+        }
+    }
+}
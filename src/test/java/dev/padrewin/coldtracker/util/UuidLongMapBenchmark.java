@@ -0,0 +1,144 @@
+package dev.padrewin.coldtracker.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link UuidLongMap} with the ConcurrentHashMap it replaced on the operations the
+ * tracking listener runs: a lookup per command, an addition per quit or idle change and a
+ * put/remove pair per join and quit. Reads also run from several threads at once, as they do
+ * when placeholders are resolved off the main thread.
+ *
+ * Not part of the test run. After {@code mvn test-compile}, run it with
+ * {@code java -cp target/test-classes:<test classpath> org.openjdk.jmh.Main UuidLongMapBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidLongMapBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int staff;
+
+    private UUID[] keys;
+    // Equal to the keys but other instances, like UUIDs read back from the database
+    private UUID[] copies;
+    private UuidLongMap primitiveMap;
+    private ConcurrentHashMap<UUID, Long> boxedMap;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(0);
+        keys = new UUID[staff];
+        copies = new UUID[staff];
+        primitiveMap = new UuidLongMap();
+        boxedMap = new ConcurrentHashMap<>();
+        for (int i = 0; i < staff; i++) {
+            keys[i] = new UUID(random.nextLong(), random.nextLong());
+            copies[i] = new UUID(keys[i].getMostSignificantBits(), keys[i].getLeastSignificantBits());
+            primitiveMap.put(keys[i], i * 1000L);
+            boxedMap.put(keys[i], i * 1000L);
+        }
+    }
+
+    private UUID nextKey() {
+        return keys[nextIndex()];
+    }
+
+    private int nextIndex() {
+        int index = next + 1;
+        next = index == keys.length ? 0 : index;
+        return next;
+    }
+
+    @Benchmark
+    public long getPrimitive() {
+        return primitiveMap.get(nextKey(), 0L);
+    }
+
+    @Benchmark
+    public long getBoxed() {
+        return boxedMap.getOrDefault(nextKey(), 0L);
+    }
+
+    /**
+     * ConcurrentHashMap skips equals() when handed the instance it stored, which the
+     * benchmarks above always do; this is the lookup without that shortcut.
+     */
+    @Benchmark
+    public long getBoxedEqualKey() {
+        return boxedMap.getOrDefault(copies[nextIndex()], 0L);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long getPrimitiveContended() {
+        return primitiveMap.get(keys[ThreadLocalIndex.next(keys.length)], 0L);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long getBoxedContended() {
+        return boxedMap.getOrDefault(keys[ThreadLocalIndex.next(keys.length)], 0L);
+    }
+
+    @Benchmark
+    public long addToPrimitive() {
+        return primitiveMap.addTo(nextKey(), 50L);
+    }
+
+    @Benchmark
+    public long addToBoxed() {
+        return boxedMap.merge(nextKey(), 50L, Long::sum);
+    }
+
+    @Benchmark
+    public long joinQuitPrimitive() {
+        UUID key = nextKey();
+        long value = primitiveMap.remove(key, 0L);
+        primitiveMap.put(key, value + 1);
+        return value;
+    }
+
+    @Benchmark
+    public long joinQuitBoxed() {
+        UUID key = nextKey();
+        Long value = boxedMap.remove(key);
+        boxedMap.put(key, value + 1);
+        return value;
+    }
+
+    /**
+     * Spreads the contended readers over the keys without sharing a counter between them.
+     */
+    private static final class ThreadLocalIndex {
+
+        private static final ThreadLocal<int[]> INDEX = ThreadLocal.withInitial(() -> new int[1]);
+
+        static int next(int bound) {
+            int[] index = INDEX.get();
+            index[0] = index[0] + 1 == bound ? 0 : index[0] + 1;
+            return index[0];
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package dev.padrewin.coldtracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidLongMapTest {
+
+    @Test
+    void storesAndUpdatesValues() {
+        UuidLongMap map = new UuidLongMap();
+        UUID key = UUID.randomUUID();
+
+        assertEquals(-1L, map.get(key, -1L));
+        assertFalse(map.containsKey(key));
+
+        map.put(key, 5L);
+        assertEquals(5L, map.get(key, -1L));
+        assertFalse(map.putIfAbsent(key, 7L));
+        assertEquals(12L, map.addTo(key, 7L));
+        assertEquals(12L, map.remove(key, -1L));
+        assertEquals(-1L, map.remove(key, -1L));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void removingAnyEntryKeepsTheOthersReachable() {
+        // Filled to just below the first resize, so probe runs are long and wrap around the end.
+        List<UUID> keys = randomKeys(new Random(1), 8);
+        for (UUID removed : keys) {
+            UuidLongMap map = new UuidLongMap();
+            for (int i = 0; i < keys.size(); i++) {
+                map.put(keys.get(i), i);
+            }
+
+            assertEquals(keys.indexOf(removed), map.remove(removed, -1L));
+            assertFalse(map.containsKey(removed));
+            for (int i = 0; i < keys.size(); i++) {
+                if (!keys.get(i).equals(removed)) {
+                    assertEquals(i, map.get(keys.get(i), -1L), "Lost an entry after removing another one");
+                }
+            }
+            assertEquals(keys.size() - 1, map.size());
+        }
+    }
+
+    @Test
+    void keepsEveryEntryAcrossResizes() {
+        List<UUID> keys = randomKeys(new Random(2), 10_000);
+        UuidLongMap map = new UuidLongMap();
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i), i);
+            assertEquals(i + 1, map.size());
+        }
+
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(i, map.get(keys.get(i), -1L));
+        }
+        assertEquals(new HashSet<>(keys), new HashSet<>(map.keys()));
+
+        for (int i = 0; i < keys.size(); i += 2) {
+            assertEquals(i, map.remove(keys.get(i), -1L));
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(i % 2 == 0 ? -1L : i, map.get(keys.get(i), -1L));
+        }
+        assertEquals(keys.size() / 2, map.size());
+    }
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        Random random = new Random(3);
+        // A small key pool keeps probe runs long and full of removed slots, and forces rebuilds.
+        List<UUID> pool = randomKeys(random, 40);
+        UuidLongMap map = new UuidLongMap();
+        Map<UUID, Long> expected = new HashMap<>();
+
+        for (int op = 0; op < 200_000; op++) {
+            UUID key = pool.get(random.nextInt(pool.size()));
+            long value = random.nextInt(1000);
+            switch (random.nextInt(5)) {
+                case 0 -> {
+                    map.put(key, value);
+                    expected.put(key, value);
+                }
+                case 1 -> assertEquals(expected.putIfAbsent(key, value) == null, map.putIfAbsent(key, value));
+                case 2 -> assertEquals((long) expected.merge(key, value, Long::sum), map.addTo(key, value));
+                case 3 -> {
+                    Long removed = expected.remove(key);
+                    assertEquals(removed != null ? removed : -1L, map.remove(key, -1L));
+                }
+                default -> assertEquals(expected.remove(key) != null, map.removeIf(key::equals) == 1);
+            }
+
+            assertEquals(expected.size(), map.size());
+            for (UUID check : pool) {
+                assertEquals(expected.getOrDefault(check, -1L), map.get(check, -1L));
+            }
+        }
+    }
+
+    @Test
+    void readersNeverMissAnEntryWhileOthersChurn() throws InterruptedException {
+        Random random = new Random(5);
+        List<UUID> stable = randomKeys(random, 50);
+        List<UUID> churn = randomKeys(random, 50);
+        UuidLongMap map = new UuidLongMap();
+        for (int i = 0; i < stable.size(); i++) {
+            map.put(stable.get(i), i);
+        }
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            Thread reader = new Thread(() -> {
+                while (!done.get() && failure.get() == null) {
+                    for (int i = 0; i < stable.size(); i++) {
+                        long value = map.get(stable.get(i), -1L);
+                        if (value != i) {
+                            failure.compareAndSet(null, "Read " + value + " for entry " + i);
+                        }
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        // Joins and quits of other staff members, enough to rebuild the table many times
+        for (int op = 0; op < 200_000 && failure.get() == null; op++) {
+            UUID key = churn.get(random.nextInt(churn.size()));
+            if (random.nextBoolean()) {
+                map.put(key, op);
+            } else {
+                map.remove(key, -1L);
+            }
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        UuidLongMap map = new UuidLongMap();
+        List<UUID> keys = randomKeys(new Random(4), 100);
+        keys.forEach(key -> map.put(key, 1L));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertTrue(map.keys().isEmpty());
+        keys.forEach(key -> assertFalse(map.containsKey(key)));
+    }
+
+    private static List<UUID> randomKeys(Random random, int count) {
+        List<UUID> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,15 @@
+-- A database written by ColdTracker 1.4.3, before schema versioning: dashed text UUIDs, vote
+-- times as whatever string the voting site sent, and no schema_version table.
+CREATE TABLE staff_time (player_uuid TEXT PRIMARY KEY, player_name TEXT NOT NULL, total_time INTEGER NOT NULL DEFAULT 0);
+CREATE TABLE staff_sessions (player_uuid TEXT PRIMARY KEY, player_name TEXT NOT NULL, join_time INTEGER NOT NULL);
+CREATE TABLE staff_votes (id INTEGER PRIMARY KEY AUTOINCREMENT, player_uuid TEXT NOT NULL, player_name TEXT NOT NULL, service_name TEXT NOT NULL, vote_time TEXT NOT NULL);
+CREATE TABLE sanctions_period (id INTEGER PRIMARY KEY CHECK (id = 1), last_reset INTEGER NOT NULL DEFAULT 0);
+
+INSERT INTO staff_time VALUES ('6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 'Alice', 7200000);
+INSERT INTO staff_time VALUES ('0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d', 'Bob', 3600000);
+INSERT INTO staff_time VALUES ('CONSOLE', 'Console', 60000);
+INSERT INTO staff_sessions VALUES ('0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d', 'Bob', 1700000000000);
+INSERT INTO staff_votes (player_uuid, player_name, service_name, vote_time) VALUES ('6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 'Alice', 'PlanetMinecraft', '1700000000');
+INSERT INTO staff_votes (player_uuid, player_name, service_name, vote_time) VALUES ('6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 'Alice', 'MinecraftServers', '1700000100000');
+INSERT INTO staff_votes (player_uuid, player_name, service_name, vote_time) VALUES ('0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d', 'Bob', 'PlanetMinecraft', 'yesterday');
+INSERT INTO sanctions_period VALUES (1, 1690000000000);
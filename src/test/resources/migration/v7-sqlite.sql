@@ -0,0 +1,54 @@
+-- A database stopped at schema version 7, before the compact layout: dashed text UUIDs, vote
+-- times as whatever string the voting site sent, and two archived periods whose tables were
+-- renamed to _p1 and _p2 by a rollover and registered in staff_periods.
+CREATE TABLE schema_version (version INTEGER PRIMARY KEY,description TEXT NOT NULL,applied_at INTEGER NOT NULL);
+CREATE TABLE staff_time (player_uuid TEXT PRIMARY KEY,player_name TEXT NOT NULL,total_time INTEGER NOT NULL DEFAULT 0);
+CREATE TABLE staff_sessions (player_uuid TEXT PRIMARY KEY,player_name TEXT NOT NULL,join_time INTEGER NOT NULL, session_start INTEGER NOT NULL DEFAULT 0, last_seen INTEGER NOT NULL DEFAULT 0);
+CREATE TABLE staff_votes (id INTEGER PRIMARY KEY AUTOINCREMENT,player_uuid TEXT NOT NULL,player_name TEXT NOT NULL,service_name TEXT NOT NULL,vote_time TEXT NOT NULL);
+CREATE TABLE sanctions_period (id INTEGER PRIMARY KEY CHECK (id = 1),last_reset INTEGER NOT NULL DEFAULT 0);
+CREATE INDEX idx_staff_votes_player ON staff_votes (player_uuid);
+CREATE TABLE staff_vote_counts (player_uuid TEXT PRIMARY KEY,vote_count INTEGER NOT NULL DEFAULT 0);
+CREATE TABLE staff_activity (player_uuid TEXT NOT NULL,bucket_start INTEGER NOT NULL,playtime INTEGER NOT NULL DEFAULT 0,votes INTEGER NOT NULL DEFAULT 0,sessions INTEGER NOT NULL DEFAULT 0,PRIMARY KEY (player_uuid, bucket_start));
+CREATE INDEX idx_staff_activity_bucket ON staff_activity (bucket_start);
+CREATE TABLE staff_session_log (id INTEGER PRIMARY KEY AUTOINCREMENT,player_uuid TEXT NOT NULL,session_start INTEGER NOT NULL,session_end INTEGER NOT NULL,duration INTEGER NOT NULL);
+CREATE INDEX idx_staff_session_log_player ON staff_session_log (player_uuid, session_start);
+CREATE TABLE staff_periods (id INTEGER PRIMARY KEY,started_at INTEGER NOT NULL,ended_at INTEGER NOT NULL);
+
+-- Archived tables keep the definition they had when the period ended, without secondary indexes.
+CREATE TABLE staff_time_p1 (player_uuid TEXT PRIMARY KEY,player_name TEXT NOT NULL,total_time INTEGER NOT NULL DEFAULT 0);
+CREATE TABLE staff_votes_p1 (id INTEGER PRIMARY KEY AUTOINCREMENT,player_uuid TEXT NOT NULL,player_name TEXT NOT NULL,service_name TEXT NOT NULL,vote_time TEXT NOT NULL);
+CREATE TABLE staff_vote_counts_p1 (player_uuid TEXT PRIMARY KEY,vote_count INTEGER NOT NULL DEFAULT 0);
+CREATE TABLE staff_time_p2 (player_uuid TEXT PRIMARY KEY,player_name TEXT NOT NULL,total_time INTEGER NOT NULL DEFAULT 0);
+CREATE TABLE staff_votes_p2 (id INTEGER PRIMARY KEY AUTOINCREMENT,player_uuid TEXT NOT NULL,player_name TEXT NOT NULL,service_name TEXT NOT NULL,vote_time TEXT NOT NULL);
+CREATE TABLE staff_vote_counts_p2 (player_uuid TEXT PRIMARY KEY,vote_count INTEGER NOT NULL DEFAULT 0);
+
+INSERT INTO schema_version VALUES (1, 'Create base tables', 1680000000000);
+INSERT INTO schema_version VALUES (2, 'Index staff_votes by player', 1680000000000);
+INSERT INTO schema_version VALUES (3, 'Materialize per-staff vote counts', 1680000000000);
+INSERT INTO schema_version VALUES (4, 'Create hourly activity buckets', 1680000000000);
+INSERT INTO schema_version VALUES (5, 'Create session log', 1680000000000);
+INSERT INTO schema_version VALUES (6, 'Add session heartbeat columns', 1680000000000);
+INSERT INTO schema_version VALUES (7, 'Create period registry', 1680000000000);
+
+INSERT INTO staff_periods VALUES (1, 1680000000000, 1685000000000);
+INSERT INTO staff_periods VALUES (2, 1685000000000, 1690000000000);
+
+INSERT INTO staff_time_p1 VALUES ('6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 'Alice', 1000000);
+INSERT INTO staff_time_p1 VALUES ('0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d', 'Bob', 2000000);
+INSERT INTO staff_time_p1 VALUES ('CONSOLE', 'Console', 5000);
+INSERT INTO staff_vote_counts_p1 VALUES ('6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 1);
+INSERT INTO staff_votes_p1 VALUES (1, '6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 'Alice', 'PlanetMinecraft', '1681000000');
+
+INSERT INTO staff_time_p2 VALUES ('6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 'Alice', 3000000);
+INSERT INTO staff_vote_counts_p2 VALUES ('0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d', 2);
+INSERT INTO staff_votes_p2 VALUES (2, '0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d', 'Bob', 'MinecraftServers', '1686000000000');
+INSERT INTO staff_votes_p2 VALUES (3, '0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d', 'Bob', 'PlanetMinecraft', 'soon');
+
+INSERT INTO staff_time VALUES ('6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 'Alice', 7200000);
+INSERT INTO staff_time VALUES ('0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d', 'Bob', 3600000);
+INSERT INTO staff_sessions VALUES ('0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d', 'Bob', 1700000000000, 1700000000000, 1700000300000);
+INSERT INTO staff_votes VALUES (4, '6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 'Alice', 'PlanetMinecraft', '1700000000000');
+INSERT INTO staff_vote_counts VALUES ('6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 1);
+INSERT INTO staff_activity VALUES ('6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 1699999200000, 3600000, 1, 1);
+INSERT INTO staff_session_log VALUES (1, '6f1c2a8e-3b5d-4c7e-9f10-2a3b4c5d6e7f', 1699999200000, 1700002800000, 3600000);
+INSERT INTO sanctions_period VALUES (1, 1690000000000);